@@ -0,0 +1,100 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupcdg.carbon.logging.cglib.AnnotationCglibFactory;
+import com.groupcdg.carbon.logging.proxy.AnnotationProxyFactory;
+
+/**
+ * Measures the proxies configured by discovery through AnnotationProxyFactory and
+ * AnnotationCglibFactory, both the cost of creating a proxy, which resolves the InterceptionPlan
+ * of the class, and the per-call cost of invoking one.
+ * <p>
+ * The annotations that configure these proxies also cause the service to be woven by LoggingAspect,
+ * so the per-call scores include the aspect and are compared with
+ * {@link InterceptionBenchmark#aspect()} rather than with a plain call.
+ * <p>
+ * Run with {@code mvn -Pbenchmark verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class AnnotationFactoryBenchmark {
+
+	@Param({"true", "false"})
+	private boolean loggingEnabled;
+
+	private BenchmarkService annotationProxy;
+
+	private BenchmarkService annotationCglibProxy;
+
+	private final BenchmarkService target = new WovenReflectionBenchmarkService();
+
+	private final BenchmarkPayload payload = new BenchmarkPayload();
+
+	private int count;
+
+	@Setup
+	public void setUp() throws Throwable {
+
+		LoggerContext context = (LoggerContext) LogManager.getContext(false);
+		context.getConfiguration().getLoggerConfig(LogManager.ROOT_LOGGER_NAME)
+			.setLevel(loggingEnabled ? org.apache.logging.log4j.Level.DEBUG : org.apache.logging.log4j.Level.INFO);
+		context.updateLoggers();
+
+		annotationProxy = AnnotationProxyFactory.getProxy(new WovenReflectionBenchmarkService());
+		annotationCglibProxy = AnnotationCglibFactory.getProxy(new WovenReflectionBenchmarkService());
+	}
+
+	@Benchmark
+	public BenchmarkService createAnnotationProxy() throws Throwable {
+		return AnnotationProxyFactory.getProxy(target);
+	}
+
+	@Benchmark
+	public BenchmarkService createAnnotationCglibProxy() throws Throwable {
+		return AnnotationCglibFactory.getProxy(target);
+	}
+
+	@Benchmark
+	public String annotationProxy() {
+		return annotationProxy.process(count++, "name", payload);
+	}
+
+	@Benchmark
+	public String annotationCglibProxy() {
+		return annotationCglibProxy.process(count++, "name", payload);
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.benchmark;
+
+/**
+ * A typical argument object. It deliberately does not override toString() so that the
+ * reflective rendering path is exercised.
+ */
+public class BenchmarkPayload {
+
+	private String reference = "ABC-123456";
+
+	private String description = "A payload passed to the benchmarked service";
+
+	private long amount = 1234567L;
+
+	private int quantity = 42;
+
+	private boolean active = true;
+
+	public String getReference() {
+		return reference;
+	}
+
+	public String getDescription() {
+		return description;
+	}
+
+	public long getAmount() {
+		return amount;
+	}
+
+	public int getQuantity() {
+		return quantity;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Compares a JMH JSON result file against a committed baseline and fails the build if any
+ * benchmark's score has regressed by more than the given tolerance. Scores are compared as
+ * reported by JMH, so the check assumes a mode where lower is better (e.g. average time).
+ * <p>
+ * Arguments: {@code <result file> <baseline file> <tolerance> [record]}, where tolerance is a
+ * fraction (e.g. 0.15 allows a 15% regression). When record is true the result file is copied to
+ * the baseline instead of being checked, which is how a baseline is taken from a trusted run. The
+ * check fails if the baseline file does not exist, so that a missing baseline cannot pass unnoticed.
+ */
+public final class BenchmarkRegressionCheck {
+
+	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+	private BenchmarkRegressionCheck() {}
+
+	public static void main(String[] args) throws IOException {
+
+		if (args.length != 3 && args.length != 4) {
+			throw new IllegalArgumentException("Usage: BenchmarkRegressionCheck <result file> <baseline file> <tolerance> [record]");
+		}
+
+		File resultFile = new File(args[0]);
+		File baselineFile = new File(args[1]);
+		double tolerance = Double.parseDouble(args[2]);
+		boolean record = args.length == 4 && Boolean.parseBoolean(args[3]);
+
+		if (record) {
+			File baselineDirectory = baselineFile.getAbsoluteFile().getParentFile();
+			if (!baselineDirectory.isDirectory() && !baselineDirectory.mkdirs()) {
+				throw new IOException("Could not create " + baselineDirectory);
+			}
+			Files.copy(resultFile.toPath(), baselineFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			System.out.println("Recorded benchmark baseline at " + baselineFile);
+			return;
+		}
+
+		if (!baselineFile.isFile()) {
+			throw new IllegalStateException("No benchmark baseline found at " + baselineFile
+					+ ". Record one from a trusted run with -Djmh.recordBaseline=true and commit it.");
+		}
+
+		Map<String, Double> results = readScores(resultFile);
+		Map<String, Double> baseline = readScores(baselineFile);
+
+		List<String> regressions = new ArrayList<>();
+		for (Map.Entry<String, Double> entry : results.entrySet()) {
+			Double baselineScore = baseline.get(entry.getKey());
+			if (baselineScore == null) {
+				System.out.println("No baseline for " + entry.getKey());
+				continue;
+			}
+			double limit = baselineScore.doubleValue() * (1 + tolerance);
+			String line = String.format("%s: %.3f (baseline %.3f, limit %.3f)", entry.getKey(), entry.getValue(), baselineScore, limit);
+			System.out.println(line);
+			if (entry.getValue().doubleValue() > limit) {
+				regressions.add(line);
+			}
+		}
+
+		if (!regressions.isEmpty()) {
+			throw new IllegalStateException("Benchmark regressions beyond " + (tolerance * 100) + "%: " + regressions);
+		}
+	}
+
+	private static Map<String, Double> readScores(File file) throws IOException {
+
+		Map<String, Double> scores = new LinkedHashMap<>();
+		for (JsonNode run : OBJECT_MAPPER.readTree(file)) {
+			scores.put(key(run), Double.valueOf(run.path("primaryMetric").path("score").asDouble()));
+		}
+		return scores;
+	}
+
+	private static String key(JsonNode run) {
+
+		Map<String, String> params = new TreeMap<>();
+		JsonNode paramsNode = run.path("params");
+		for (Iterator<Map.Entry<String, JsonNode>> it = paramsNode.fields(); it.hasNext();) {
+			Map.Entry<String, JsonNode> param = it.next();
+			params.put(param.getKey(), param.getValue().asText());
+		}
+		return run.path("benchmark").asText() + params;
+	}
+}
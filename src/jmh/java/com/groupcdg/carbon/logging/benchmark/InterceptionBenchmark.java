@@ -0,0 +1,127 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.groupcdg.carbon.logging.annotation.Level;
+import com.groupcdg.carbon.logging.bytecode.spi.BytecodeFactory;
+import com.groupcdg.carbon.logging.cglib.spi.CglibFactory;
+import com.groupcdg.carbon.logging.interceptor.LoggingMethodInterceptor;
+import com.groupcdg.carbon.logging.proxy.spi.ProxyFactory;
+import com.groupcdg.carbon.logging.tostring.JacksonToStringStrategy;
+import com.groupcdg.carbon.logging.tostring.ReflectionToStringStrategy;
+import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
+
+/**
+ * Measures the per-call overhead of each interception style against a plain call, with logging
+ * both enabled and disabled, for each ToStringStrategy.
+ * <p>
+ * Run with {@code mvn -Pbenchmark verify}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Dlog4j.configurationFile=log4j2-benchmark.xml")
+public class InterceptionBenchmark {
+
+	@Param({"true", "false"})
+	private boolean loggingEnabled;
+
+	@Param({"reflection", "jackson"})
+	private String strategy;
+
+	private BenchmarkService plain;
+
+	private BenchmarkService jdkProxy;
+
+	private BenchmarkService cglibProxy;
+
+	private BenchmarkService bytecodeProxy;
+
+	private BenchmarkService aspect;
+
+	private final BenchmarkPayload payload = new BenchmarkPayload();
+
+	private int count;
+
+	@Setup
+	public void setUp() {
+
+		LoggerContext context = (LoggerContext) LogManager.getContext(false);
+		context.getConfiguration().getLoggerConfig(LogManager.ROOT_LOGGER_NAME)
+			.setLevel(loggingEnabled ? org.apache.logging.log4j.Level.DEBUG : org.apache.logging.log4j.Level.INFO);
+		context.updateLoggers();
+
+		ToStringStrategy toStringStrategy;
+		if ("jackson".equals(strategy)) {
+			toStringStrategy = new JacksonToStringStrategy();
+			aspect = new WovenJacksonBenchmarkService();
+		} else {
+			toStringStrategy = new ReflectionToStringStrategy();
+			aspect = new WovenReflectionBenchmarkService();
+		}
+
+		plain = new PlainBenchmarkService();
+		jdkProxy = ProxyFactory.getProxy(new PlainBenchmarkService(),
+				LoggingMethodInterceptor.of(Level.DEBUG, toStringStrategy, true, true, true, true, true));
+		cglibProxy = CglibFactory.getProxy(new PlainBenchmarkService(),
+				LoggingMethodInterceptor.of(Level.DEBUG, toStringStrategy, true, true, true, true, true));
+		bytecodeProxy = BytecodeFactory.getProxy(new PlainBenchmarkService(),
+				LoggingMethodInterceptor.of(Level.DEBUG, toStringStrategy, true, true, true, true, true));
+	}
+
+	@Benchmark
+	public String plain() {
+		return plain.process(count++, "name", payload);
+	}
+
+	@Benchmark
+	public String jdkProxy() {
+		return jdkProxy.process(count++, "name", payload);
+	}
+
+	@Benchmark
+	public String cglibProxy() {
+		return cglibProxy.process(count++, "name", payload);
+	}
+
+	@Benchmark
+	public String bytecodeProxy() {
+		return bytecodeProxy.process(count++, "name", payload);
+	}
+
+	@Benchmark
+	public String aspect() {
+		return aspect.process(count++, "name", payload);
+	}
+}
@@ -102,6 +102,27 @@ public @interface Error {
      */
     boolean printStackTrace() default false;
 
+    /**
+     * The maximum number of stack trace frames printed for the exception and each of its causes.
+     * The default of 0 prints every frame.
+     * @return The maximum number of frames
+     */
+    int maxStackTraceFrames() default 0;
+
+    /**
+     * Indicates whether runs of reflection, proxy, cglib and AspectJ frames should be collapsed
+     * to a single line when printing stack traces
+     * @return True if framework frames should be collapsed
+     */
+    boolean collapseFrameworkFrames() default false;
+
+    /**
+     * Limits how many exceptions thrown from the method are logged each second. Exceptions beyond the
+     * limit are counted and periodically reported as suppressed. The default of 0 logs every exception.
+     * @return The maximum number of exceptions logged per second
+     */
+    int maxExceptionsLoggedPerSecond() default 0;
+
     /**
      * A strategy for outputting objects and method parameters as Strings
      * @return The Strategy
@@ -120,4 +141,17 @@ public @interface Error {
      * start and end block around the output.
      */
     boolean includeStartAndEndMarkers() default false;
+
+    /**
+     * Logs only one in this many invocations of the method, as selected by {@link #sampling()}.
+     * Exceptions are always logged. The default of 1 logs every invocation.
+     * @return The sample rate
+     */
+    int sampleRate() default 1;
+
+    /**
+     * How invocations are selected when {@link #sampleRate()} is greater than 1
+     * @return The sampling mode
+     */
+    Sampling sampling() default Sampling.RANDOM;
 }
\ No newline at end of file
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.annotation;
+
+/**
+ * How the execution times of methods marked with {@link LogPerformance} are reported
+ */
+public enum LatencyReporting {
+
+    /**
+     * Log a line for each call. This is the default.
+     */
+    PER_CALL,
+    /**
+     * Record each call in a per-method latency histogram, from which percentile summaries are
+     * logged periodically to the PerfSummaryLogger
+     */
+    SUMMARY,
+    /**
+     * Log a line for each call and also record it for periodic summaries
+     */
+    PER_CALL_AND_SUMMARY
+}
@@ -66,6 +66,27 @@ public @interface LogExceptions {
      */
     boolean printStackTrace() default false;
 
+    /**
+     * The maximum number of stack trace frames printed for the exception and each of its causes.
+     * The default of 0 prints every frame.
+     * @return The maximum number of frames
+     */
+    int maxStackTraceFrames() default 0;
+
+    /**
+     * Indicates whether runs of reflection, proxy, cglib and AspectJ frames should be collapsed
+     * to a single line when printing stack traces
+     * @return True if framework frames should be collapsed
+     */
+    boolean collapseFrameworkFrames() default false;
+
+    /**
+     * Limits how many exceptions thrown from the method are logged each second. Exceptions beyond the
+     * limit are counted and periodically reported as suppressed. The default of 0 logs every exception.
+     * @return The maximum number of exceptions logged per second
+     */
+    int maxLoggedPerSecond() default 0;
+
     /**
      * A strategy for outputting objects and method parameters as Strings
      * @return The Strategy
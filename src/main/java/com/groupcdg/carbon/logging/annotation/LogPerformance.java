@@ -54,6 +54,34 @@ public @interface LogPerformance {
      */
     long thresholdMilliseconds() default 1000;
 
+    /**
+     * Optional. The duration in microseconds above which performance logging should be performed,
+     * for methods where millisecond resolution is too coarse. When zero or more this is used in
+     * place of {@link #thresholdMilliseconds()}.
+     * @return The duration in microseconds, or a negative value if not set
+     */
+    long thresholdMicros() default -1;
+
+    /**
+     * Whether each call is logged, recorded for periodic percentile summaries, or both
+     * @return The reporting mode
+     */
+    LatencyReporting latencyReporting() default LatencyReporting.PER_CALL;
+
+    /**
+     * Optional. The inclusive upper bounds in milliseconds of the buckets selecting the logger for
+     * each call, by how far its duration exceeded the threshold. Used with {@link #bucketLoggerNames()}.
+     * @return The bucket bounds, in increasing order
+     */
+    long[] bucketMilliseconds() default {};
+
+    /**
+     * Optional. The logger name for each bucket in {@link #bucketMilliseconds()}, followed by the
+     * logger name for longer durations. If not given, the default buckets of LatencyBuckets are used.
+     * @return The logger names
+     */
+    String[] bucketLoggerNames() default {};
+
     /**
      * A strategy for outputting objects and method parameters as Strings
      * @return The Strategy
@@ -72,4 +100,18 @@ public @interface LogPerformance {
      * start and end block around the output.
      */
     boolean includeStartAndEndMarkers() default false;
+
+    /**
+     * Logs a line for only one in this many calls that return normally, as selected by {@link #sampling()}.
+     * Calls that throw are always logged, and every call is still counted in latency summaries. The
+     * default of 1 logs every call.
+     * @return The sample rate
+     */
+    int sampleRate() default 1;
+
+    /**
+     * How calls are selected when {@link #sampleRate()} is greater than 1
+     * @return The sampling mode
+     */
+    Sampling sampling() default Sampling.RANDOM;
 }
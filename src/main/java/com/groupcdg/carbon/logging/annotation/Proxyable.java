@@ -24,8 +24,8 @@ import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
 
 /**
  * Meta-annotation used to indicate that a particular annotation may be enforced via an interceptor.
- * The interceptor must provide a static of() method that constructs a new instance, taking the
- * base class type to be proxied as a parameter
+ * The interceptor must provide a public static of(Class, Annotation) method that constructs a new
+ * instance, taking the base class type to be proxied and the annotation found on it as parameters
  * @author Chris Pheby
  */
 @Retention(RetentionPolicy.RUNTIME)
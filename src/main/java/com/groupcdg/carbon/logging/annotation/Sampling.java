@@ -0,0 +1,32 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.annotation;
+
+/**
+ * How invocations are selected for logging when a sample rate greater than one is configured
+ */
+public enum Sampling {
+
+    /**
+     * Select each invocation independently with a probability of one in the sample rate. This is
+     * the default, and does not contend between threads.
+     */
+    RANDOM,
+    /**
+     * Select exactly every nth invocation of the method, counted across all threads
+     */
+    EVERY_NTH
+}
@@ -15,14 +15,12 @@
  */
 package com.groupcdg.carbon.logging.aspect;
 
-import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineActualType;
-
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 
 import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.AfterThrowing;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.MethodSignature;
 
 import com.groupcdg.carbon.logging.annotation.LogExceptions;
 import com.groupcdg.carbon.logging.interceptor.ExceptionMethodInterceptor;
@@ -35,6 +33,13 @@ import com.groupcdg.carbon.logging.interceptor.ExceptionMethodInterceptor;
 @Aspect
 public class ExceptionAspect {
 
+	private final InterceptorCache<ExceptionMethodInterceptor> interceptors = new InterceptorCache<ExceptionMethodInterceptor>(new InterceptorCache.InterceptorFactory<ExceptionMethodInterceptor>() {
+		@Override
+		public ExceptionMethodInterceptor create(Class<?> targetClass, Annotation annotation) {
+			return ExceptionMethodInterceptor.of(targetClass, annotation);
+		}
+	});
+
     @AfterThrowing(value="@within(log) && (!@annotation(com.groupcdg.carbon.logging.annotation.LogExceptions)) && execution(* *.*(..))", throwing="e")
     public void handleExceptionClassAnnotated(LogExceptions log, Throwable e, JoinPoint jp) {
     	doAfterThrowing(log, e, jp);
@@ -47,13 +52,12 @@ public class ExceptionAspect {
 
     private void doAfterThrowing(LogExceptions log, Throwable throwable, JoinPoint jp) {
 
+    	InterceptorCache.Binding<ExceptionMethodInterceptor> binding = interceptors.get(jp, log);
 
-    	Class<?> targetClass = jp.getTarget().getClass();
-    	Class<?> actualClass = determineActualType(jp.getTarget());
-
-    	Method method = ((MethodSignature)jp.getSignature()).getMethod();
-
-    	ExceptionMethodInterceptor interceptor = ExceptionMethodInterceptor.of(targetClass, log);
+    	Class<?> targetClass = binding.getTargetClass();
+    	Class<?> actualClass = binding.getActualClass();
+    	Method method = binding.getMethod();
+    	ExceptionMethodInterceptor interceptor = binding.getInterceptor();
 
     	interceptor.interceptAfterThrowing(targetClass, method, jp.getArgs(), actualClass, throwable, null);
     }
@@ -0,0 +1,114 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.aspect;
+
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineActualType;
+
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.reflect.MethodSignature;
+
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+
+/**
+ * Caches the interceptor and resolved method for each advised join point so that woven calls
+ * do not construct a new interceptor or resolve the method signature on every invocation.
+ * Entries are keyed by the runtime target class and then by the join point's static part, since
+ * the annotation bound to a given static part does not vary between invocations. The entries of
+ * each target class are held in a ClassValue of the class, so that the aspect singletons do not
+ * keep advised classes or their class loaders reachable. Aspects advising more than one annotation
+ * type should hold one cache per annotation type.
+ */
+final class InterceptorCache<I extends MethodInterceptor> {
+
+	private final ClassValue<ConcurrentMap<JoinPoint.StaticPart, Binding<I>>> bindings = new ClassValue<ConcurrentMap<JoinPoint.StaticPart, Binding<I>>>() {
+		@Override
+		protected ConcurrentMap<JoinPoint.StaticPart, Binding<I>> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private final InterceptorFactory<I> factory;
+
+	InterceptorCache(InterceptorFactory<I> factory) {
+		this.factory = factory;
+	}
+
+	Binding<I> get(JoinPoint jp, Annotation annotation) {
+
+		Object target = jp.getTarget();
+		Class<?> targetClass = target.getClass();
+
+		ConcurrentMap<JoinPoint.StaticPart, Binding<I>> classBindings = bindings.get(targetClass);
+		JoinPoint.StaticPart staticPart = jp.getStaticPart();
+		Binding<I> binding = classBindings.get(staticPart);
+		if (binding == null) {
+			Method method = ((MethodSignature) staticPart.getSignature()).getMethod();
+			binding = new Binding<I>(method, targetClass, determineActualType(target), factory.create(targetClass, annotation));
+			Binding<I> existing = classBindings.putIfAbsent(staticPart, binding);
+			if (existing != null) {
+				binding = existing;
+			}
+		}
+		return binding;
+	}
+
+	/**
+	 * Creates the interceptor to be used for a given target class and annotation
+	 */
+	interface InterceptorFactory<I extends MethodInterceptor> {
+
+		I create(Class<?> targetClass, Annotation annotation);
+	}
+
+	/**
+	 * The cached state for a join point and target class
+	 */
+	static final class Binding<I extends MethodInterceptor> {
+
+		private final Method method;
+		private final Class<?> targetClass;
+		private final Class<?> actualClass;
+		private final I interceptor;
+
+		private Binding(Method method, Class<?> targetClass, Class<?> actualClass, I interceptor) {
+			this.method = method;
+			this.targetClass = targetClass;
+			this.actualClass = actualClass;
+			this.interceptor = interceptor;
+		}
+
+		Method getMethod() {
+			return method;
+		}
+
+		Class<?> getTargetClass() {
+			return targetClass;
+		}
+
+		Class<?> getActualClass() {
+			return actualClass;
+		}
+
+		I getInterceptor() {
+			return interceptor;
+		}
+	}
+}
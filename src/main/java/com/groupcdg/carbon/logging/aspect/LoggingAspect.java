@@ -15,17 +15,12 @@
  */
 package com.groupcdg.carbon.logging.aspect;
 
-import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineActualType;
-
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 
-import org.aspectj.lang.JoinPoint;
-import org.aspectj.lang.annotation.AfterReturning;
-import org.aspectj.lang.annotation.AfterThrowing;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.annotation.Before;
-import org.aspectj.lang.reflect.MethodSignature;
 
 import com.groupcdg.carbon.logging.annotation.Debug;
 import com.groupcdg.carbon.logging.annotation.Error;
@@ -43,147 +38,79 @@ import com.groupcdg.carbon.logging.interceptor.LoggingMethodInterceptor;
 @Aspect
 public class LoggingAspect {
 
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Log * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, Log log) {
-    	doBefore(log, joinPoint);
-    }
-
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Log * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, Log log) {
-    	doAfterThrowing(log, throwable, joinPoint);
-    }
-
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Log * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, Log log, Object returnValue) {
-    	doAfter(log, returnValue, joinPoint);
-    }
-
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.None * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, None log) {
-    	doBefore(log, joinPoint);
-    }
-
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.None * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, None log) {
-    	doAfterThrowing(log, throwable, joinPoint);
-    }
-
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.None * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, None log, Object returnValue) {
-    	doAfter(log, returnValue, joinPoint);
-    }
-
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Debug * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, Debug log) {
-    	doBefore(log, joinPoint);
-    }
-
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Debug * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, Debug log) {
-    	doAfterThrowing(log, throwable, joinPoint);
-    }
-
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Debug * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, Debug log, Object returnValue) {
-    	doAfter(log, returnValue, joinPoint);
-    }
-
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Error * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, Error log) {
-    	doBefore(log, joinPoint);
-    }
-
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Error * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, Error log) {
-    	doAfterThrowing(log, throwable, joinPoint);
-    }
-
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Error * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, Error log, Object returnValue) {
-    	doAfter(log, returnValue, joinPoint);
-    }
-
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Info * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, Info log) {
-    	doBefore(log, joinPoint);
-    }
-
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Info * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, Info log) {
-    	doAfterThrowing(log, throwable, joinPoint);
-    }
-
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Info * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, Info log, Object returnValue) {
-    	doAfter(log, returnValue, joinPoint);
-    }
+	private static final InterceptorCache.InterceptorFactory<LoggingMethodInterceptor> INTERCEPTOR_FACTORY = new InterceptorCache.InterceptorFactory<LoggingMethodInterceptor>() {
+		@Override
+		public LoggingMethodInterceptor create(Class<?> targetClass, Annotation annotation) {
+			return LoggingMethodInterceptor.of(targetClass, annotation);
+		}
+	};
 
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Trace * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, Trace log) {
-    	doBefore(log, joinPoint);
-    }
+	// A method may carry more than one of the annotations, so each is cached separately
+	private final InterceptorCache<LoggingMethodInterceptor> logInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
+	private final InterceptorCache<LoggingMethodInterceptor> noneInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
+	private final InterceptorCache<LoggingMethodInterceptor> debugInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
+	private final InterceptorCache<LoggingMethodInterceptor> errorInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
+	private final InterceptorCache<LoggingMethodInterceptor> infoInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
+	private final InterceptorCache<LoggingMethodInterceptor> traceInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
+	private final InterceptorCache<LoggingMethodInterceptor> warnInterceptors = new InterceptorCache<LoggingMethodInterceptor>(INTERCEPTOR_FACTORY);
 
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Trace * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, Trace log) {
-    	doAfterThrowing(log, throwable, joinPoint);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Log * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, Log log) throws Throwable {
+    	return doAround(logInterceptors, log, joinPoint);
     }
 
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Trace * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, Trace log, Object returnValue) {
-    	doAfter(log, returnValue, joinPoint);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.None * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, None log) throws Throwable {
+    	return doAround(noneInterceptors, log, joinPoint);
     }
 
-    @Before(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Warn * *(..))", argNames = "joinPoint, log")
-    public void beforeAnnotatedMethod(JoinPoint joinPoint, Warn log) {
-    	doBefore(log, joinPoint);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Debug * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, Debug log) throws Throwable {
+    	return doAround(debugInterceptors, log, joinPoint);
     }
 
-    @AfterThrowing(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Warn * *(..))", throwing = "throwable", argNames = "joinPoint, throwable, log")
-    public void afterAnnotatedMethodThrowing(JoinPoint joinPoint, Throwable throwable, Warn log) throws Throwable {
-        doAfterThrowing(log, throwable, joinPoint);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Error * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, Error log) throws Throwable {
+    	return doAround(errorInterceptors, log, joinPoint);
     }
 
-    @AfterReturning(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Warn * *(..))", returning = "returnValue", argNames = "joinPoint, log, returnValue")
-    public void afterAnnotatedMethod(JoinPoint joinPoint, Warn log, Object returnValue) {
-        doAfter(log, returnValue, joinPoint);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Info * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, Info log) throws Throwable {
+    	return doAround(infoInterceptors, log, joinPoint);
     }
 
-
-    private void doBefore(Annotation log, JoinPoint jp) {
-
-    	Class<?> targetClass = jp.getTarget().getClass();
-    	Class<?> actualClass = determineActualType(jp.getTarget());
-
-    	Method method = ((MethodSignature) jp.getSignature()).getMethod();
-
-    	LoggingMethodInterceptor interceptor = LoggingMethodInterceptor.of(targetClass, log);
-
-    	interceptor.interceptBefore(targetClass, method, jp.getArgs(), actualClass);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Trace * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, Trace log) throws Throwable {
+    	return doAround(traceInterceptors, log, joinPoint);
     }
 
-    private void doAfterThrowing(Annotation log, Throwable throwable, JoinPoint jp) {
-
-    	Class<?> targetClass = jp.getTarget().getClass();
-    	Class<?> actualClass = determineActualType(jp.getTarget());
-
-    	Method method = ((MethodSignature)jp.getSignature()).getMethod();
-
-    	LoggingMethodInterceptor interceptor = LoggingMethodInterceptor.of(targetClass, log);
-
-    	interceptor.interceptAfterThrowing(targetClass, method, jp.getArgs(), actualClass, throwable, null);
+    @Around(value = "@annotation(log) && execution(@com.groupcdg.carbon.logging.annotation.Warn * *(..))", argNames = "joinPoint, log")
+    public Object aroundAnnotatedMethod(ProceedingJoinPoint joinPoint, Warn log) throws Throwable {
+    	return doAround(warnInterceptors, log, joinPoint);
     }
 
+    private Object doAround(InterceptorCache<LoggingMethodInterceptor> interceptors, Annotation log, ProceedingJoinPoint jp) throws Throwable {
 
-    private void doAfter(Annotation log, Object returnValue, JoinPoint jp) {
+    	InterceptorCache.Binding<LoggingMethodInterceptor> binding = interceptors.get(jp, log);
 
-    	Class<?> targetClass = jp.getTarget().getClass();
-    	Class<?> actualClass = determineActualType(jp.getTarget());
+    	Class<?> targetClass = binding.getTargetClass();
+    	Class<?> actualClass = binding.getActualClass();
+    	Method method = binding.getMethod();
+    	LoggingMethodInterceptor interceptor = binding.getInterceptor();
 
-    	Method method = ((MethodSignature)jp.getSignature()).getMethod();
+    	Object[] args = jp.getArgs();
 
-    	LoggingMethodInterceptor interceptor = LoggingMethodInterceptor.of(targetClass, log);
+    	Object interceptBeforeReturnObject = interceptor.interceptBefore(targetClass, method, args, actualClass);
 
-    	interceptor.interceptAfter(targetClass, method, jp.getArgs(), actualClass, returnValue, null);
+        Object result = null;
+		try {
+			result = jp.proceed();
+		} catch (Throwable e) {
+			interceptor.interceptAfterThrowing(targetClass, method, args, actualClass, e, interceptBeforeReturnObject);
+			throw e;
+		}
+        interceptor.interceptAfter(targetClass, method, args, actualClass, result, interceptBeforeReturnObject);
 
+		return result;
     }
-}
+}
\ No newline at end of file
@@ -15,14 +15,12 @@
  */
 package com.groupcdg.carbon.logging.aspect;
 
-import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineActualType;
-
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.MethodSignature;
 
 import com.groupcdg.carbon.logging.annotation.LogPerformance;
 import com.groupcdg.carbon.logging.interceptor.PerformanceMethodInterceptor;
@@ -33,10 +31,18 @@ import com.groupcdg.carbon.logging.interceptor.PerformanceMethodInterceptor;
  * To use this aspect you must define Loggers named Perf1Logger, Perf5Logger, Perf10Logger, Perf30Logger, PerfMaxLogger.
  * These may have each their own appenders so that each logger can write to a different file. The loggers are used for
  * &lt;=1s, &lt;=5s, &lt;= 10 s, &lt;= 30 s and &gt; 30s greater than the configured threshold respectively.
+ * Where latency summaries are enabled with {@link LogPerformance#latencyReporting()}, they are logged to PerfSummaryLogger.
  */
 @Aspect
 public class PerformanceAspect {
 
+	private final InterceptorCache<PerformanceMethodInterceptor> interceptors = new InterceptorCache<PerformanceMethodInterceptor>(new InterceptorCache.InterceptorFactory<PerformanceMethodInterceptor>() {
+		@Override
+		public PerformanceMethodInterceptor create(Class<?> targetClass, Annotation annotation) {
+			return PerformanceMethodInterceptor.of(targetClass, annotation);
+		}
+	});
+
     @Around(value = "@within(log) && (!@annotation(com.groupcdg.carbon.logging.annotation.LogPerformance)) && execution(* *.*(..))")
     public Object handlePerformanceClassAnnotated(LogPerformance log, ProceedingJoinPoint jp) throws Throwable {
 
@@ -51,21 +57,24 @@ public class PerformanceAspect {
 
     private Object doAround(LogPerformance log, ProceedingJoinPoint jp) throws Throwable {
 
-    	Class<?> targetClass = jp.getTarget().getClass();
-    	Class<?> actualClass = determineActualType(jp.getTarget());
+    	InterceptorCache.Binding<PerformanceMethodInterceptor> binding = interceptors.get(jp, log);
 
-    	Method method = ((MethodSignature)jp.getSignature()).getMethod();
+    	// The woven object is passed as the proxy so that metrics and messages are attributed to its class
+    	Object target = jp.getTarget();
+    	Class<?> actualClass = binding.getActualClass();
+    	Method method = binding.getMethod();
+    	PerformanceMethodInterceptor interceptor = binding.getInterceptor();
 
-    	PerformanceMethodInterceptor interceptor = PerformanceMethodInterceptor.of(targetClass, log);
+    	Object[] args = jp.getArgs();
 
-    	Long start = interceptor.interceptBefore(targetClass, method, jp.getArgs(), actualClass);
+    	Object start = interceptor.interceptBefore(target, method, args, actualClass);
 
         Object result = null;
 		try {
 			result = jp.proceed();
-	        interceptor.interceptAfter(targetClass, method, jp.getArgs(), actualClass, result, start);
+	        interceptor.interceptAfter(target, method, args, actualClass, result, start);
 		} catch (Throwable e) {
-			interceptor.interceptAfterThrowing(targetClass, method, jp.getArgs(), actualClass, e, start);
+			interceptor.interceptAfterThrowing(target, method, args, actualClass, e, start);
 			throw e;
 		}
 
@@ -15,14 +15,12 @@
  */
 package com.groupcdg.carbon.logging.aspect;
 
-import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineActualType;
-
+import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 
 import org.aspectj.lang.ProceedingJoinPoint;
 import org.aspectj.lang.annotation.Around;
 import org.aspectj.lang.annotation.Aspect;
-import org.aspectj.lang.reflect.MethodSignature;
 
 import com.groupcdg.carbon.logging.annotation.Record;
 import com.groupcdg.carbon.logging.interceptor.RecordingMethodInterceptor;
@@ -33,6 +31,13 @@ import com.groupcdg.carbon.logging.interceptor.RecordingMethodInterceptor;
 @Aspect
 public class RecordingAspect {
 
+	private final InterceptorCache<RecordingMethodInterceptor> interceptors = new InterceptorCache<RecordingMethodInterceptor>(new InterceptorCache.InterceptorFactory<RecordingMethodInterceptor>() {
+		@Override
+		public RecordingMethodInterceptor create(Class<?> targetClass, Annotation annotation) {
+			return RecordingMethodInterceptor.of(targetClass, annotation);
+		}
+	});
+
     @Around(value = "@within(log) && (!@annotation(com.groupcdg.carbon.logging.annotation.Record)) && execution(* *.*(..))")
     public Object handlePerformanceClassAnnotated(Record log, ProceedingJoinPoint jp) throws Throwable {
 
@@ -47,21 +52,24 @@ public class RecordingAspect {
 
     private Object doAround(Record log, ProceedingJoinPoint jp) throws Throwable {
 
-    	Class<?> targetClass = jp.getTarget().getClass();
-    	Class<?> actualClass = determineActualType(jp.getTarget());
+    	InterceptorCache.Binding<RecordingMethodInterceptor> binding = interceptors.get(jp, log);
 
-    	Method method = ((MethodSignature)jp.getSignature()).getMethod();
+    	// The woven object is passed as the proxy so that metrics and messages are attributed to its class
+    	Object target = jp.getTarget();
+    	Class<?> actualClass = binding.getActualClass();
+    	Method method = binding.getMethod();
+    	RecordingMethodInterceptor interceptor = binding.getInterceptor();
 
-    	RecordingMethodInterceptor interceptor = RecordingMethodInterceptor.of(targetClass, log);
+    	Object[] args = jp.getArgs();
 
-    	Long start = interceptor.interceptBefore(jp.getTarget(), method, jp.getArgs(), actualClass);
+    	Object start = interceptor.interceptBefore(target, method, args, actualClass);
 
         Object result = null;
 		try {
 			result = jp.proceed();
-	        interceptor.interceptAfter(targetClass, method, jp.getArgs(), actualClass, result, start);
+	        interceptor.interceptAfter(target, method, args, actualClass, result, start);
 		} catch (Throwable e) {
-			interceptor.interceptAfterThrowing(targetClass, method, jp.getArgs(), actualClass, e, start);
+			interceptor.interceptAfterThrowing(target, method, args, actualClass, e, start);
 			throw e;
 		}
 
@@ -0,0 +1,36 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.bytecode;
+
+import java.lang.reflect.Method;
+
+import com.groupcdg.carbon.logging.bytecode.spi.BytecodeFactory;
+import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
+import com.groupcdg.carbon.logging.interceptor.InterceptionPlan;
+
+/**
+ * Configures proxies by discovery in the same way as
+ * {@link com.groupcdg.carbon.logging.proxy.AnnotationProxyFactory}, but creates them through
+ * {@link BytecodeFactory}. Requires ASM on the classpath.
+ */
+public class AnnotationBytecodeFactory {
+
+	public static <V, W extends V> V getProxy(W inputObject, Method... matchMethods) throws Throwable {
+
+		Class<?> underlyingTarget = LoggingUtils.determineActualType(inputObject);
+		return BytecodeFactory.getProxy(inputObject, InterceptionPlan.of(underlyingTarget).getInterceptors());
+	}
+}
@@ -0,0 +1,253 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.bytecode.spi;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
+import com.groupcdg.carbon.logging.proxy.spi.ProxyFactory;
+
+/**
+ * Creates interface based proxies, like {@link ProxyFactory}, from classes generated with ASM.
+ * Each proxy method calls the target directly rather than reflectively; methods matched by no
+ * interceptor only delegate, without allocating an argument array or calling any interceptor.
+ * <p>
+ * Since the routing is fixed when a class is generated, proxy classes are cached by target class
+ * and by the methods intercepted, in a ClassValue of the target class so that the cache does not
+ * keep the target's class loader reachable. Where a proxy class cannot be generated, for example
+ * because an interface is not public, a JDK dynamic proxy is returned instead.
+ */
+public class BytecodeFactory {
+
+	private static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+
+	private static final MethodType CONSTRUCTOR_TYPE = MethodType.methodType(Object.class, Object.class, ProxyInterception.class);
+
+	private static final Method[] OBJECT_METHODS;
+
+	static {
+		try {
+			OBJECT_METHODS = new Method[] {
+				Object.class.getMethod("hashCode"),
+				Object.class.getMethod("equals", Object.class),
+				Object.class.getMethod("toString")
+			};
+		} catch (NoSuchMethodException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static final ClassValue<ProxyClasses> PROXY_CLASSES = new ClassValue<ProxyClasses>() {
+		@Override
+		protected ProxyClasses computeValue(Class<?> targetClass) {
+			return new ProxyClasses(targetClass);
+		}
+	};
+
+	private BytecodeFactory() {
+	}
+
+	/**
+	 * Creates a single proxy applying all of the given interceptors, in the order in which they
+	 * would apply had the object been wrapped once for each interceptor in turn
+	 */
+	@SuppressWarnings("unchecked")
+	public static <V, W extends V> V getProxy(W inputObject, MethodInterceptor... interceptors) {
+
+		if (interceptors == null || interceptors.length == 0) {
+			return inputObject;
+		}
+
+		ProxyClasses proxyClasses = PROXY_CLASSES.get(inputObject.getClass());
+		if (proxyClasses.methods == null) {
+			return ProxyFactory.getProxy(inputObject, interceptors);
+		}
+
+		MethodInterceptor[][] matchedInterceptors = new MethodInterceptor[proxyClasses.methods.length][];
+		boolean[] intercepted = new boolean[proxyClasses.methods.length];
+		for (int i = 0; i < proxyClasses.methods.length; i++) {
+			matchedInterceptors[i] = matchedInterceptors(proxyClasses.targetMethods[i], interceptors);
+			intercepted[i] = matchedInterceptors[i].length > 0;
+		}
+
+		ProxyInterception interception = new ProxyInterception(inputObject, proxyClasses.targetMethods, matchedInterceptors);
+		try {
+			return (V) proxyClasses.get(intercepted).invokeExact((Object) inputObject, interception);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not instantiate proxy of " + inputObject.getClass(), e);
+		}
+	}
+
+	private static MethodInterceptor[] matchedInterceptors(Method method, MethodInterceptor[] interceptors) {
+
+		List<MethodInterceptor> matched = new ArrayList<>();
+		for (MethodInterceptor next : interceptors) {
+			if (next != null && (!(next instanceof MethodMatcher) || ((MethodMatcher) next).isMatchedMethod(method))) {
+				matched.add(next);
+			}
+		}
+		return matched.isEmpty() ? NO_INTERCEPTORS : matched.toArray(new MethodInterceptor[matched.size()]);
+	}
+
+	/**
+	 * The interfaces and methods proxied for a target class, and the constructors of the proxy
+	 * classes generated for it by the methods they intercept
+	 */
+	private static final class ProxyClasses {
+
+		private final ClassLoader loader;
+
+		private final Class<?>[] interfaces;
+
+		/**
+		 * The proxied methods, or null if a proxy class cannot be generated for the target class
+		 */
+		private final Method[] methods;
+
+		/**
+		 * The target class's implementation of each proxied method, which is matched against and
+		 * passed to the interceptors so that they see the annotations of the implementation
+		 */
+		private final Method[] targetMethods;
+
+		private final ConcurrentMap<RoutingKey, MethodHandle> constructors = new ConcurrentHashMap<>();
+
+		private ProxyClasses(Class<?> targetClass) {
+			this.loader = targetClass.getClassLoader();
+			this.interfaces = targetClass.getInterfaces();
+			this.methods = proxiedMethods(loader, interfaces);
+			this.targetMethods = methods == null ? null : targetMethods(targetClass, methods);
+		}
+
+		private MethodHandle get(boolean[] intercepted) {
+
+			RoutingKey key = new RoutingKey(intercepted);
+			MethodHandle constructor = constructors.get(key);
+			if (constructor == null) {
+				Class<?> proxyClass = ProxyClassGenerator.generate(loader, interfaces, methods, intercepted);
+				try {
+					constructor = MethodHandles.publicLookup()
+							.findConstructor(proxyClass, MethodType.methodType(void.class, Object.class, ProxyInterception.class))
+							.asType(CONSTRUCTOR_TYPE);
+				} catch (NoSuchMethodException | IllegalAccessException e) {
+					throw new IllegalStateException("Could not find constructor of " + proxyClass, e);
+				}
+				MethodHandle existing = constructors.putIfAbsent(key, constructor);
+				if (existing != null) {
+					constructor = existing;
+				}
+			}
+			return constructor;
+		}
+
+		/**
+		 * Collects the methods of Object handled by JDK proxies followed by the instance methods of
+		 * the interfaces, once for each signature, or returns null where the interfaces cannot be
+		 * implemented by a generated class
+		 */
+		private static Method[] proxiedMethods(ClassLoader loader, Class<?>[] interfaces) {
+
+			if (interfaces.length == 0) {
+				return null;
+			}
+
+			Map<String, Method> methods = new LinkedHashMap<>();
+			for (Method method : OBJECT_METHODS) {
+				methods.put(signature(method), method);
+			}
+			for (Class<?> next : interfaces) {
+				if (!Modifier.isPublic(next.getModifiers()) || !isVisible(loader, next)) {
+					return null;
+				}
+				for (Method method : next.getMethods()) {
+					if (Modifier.isStatic(method.getModifiers())) {
+						continue;
+					}
+					Method existing = methods.get(signature(method));
+					if (existing == null) {
+						methods.put(signature(method), method);
+					} else if (existing.getReturnType() != method.getReturnType()) {
+						return null;
+					}
+				}
+			}
+			return methods.values().toArray(new Method[methods.size()]);
+		}
+
+		private static Method[] targetMethods(Class<?> targetClass, Method[] methods) {
+
+			Method[] result = new Method[methods.length];
+			for (int i = 0; i < methods.length; i++) {
+				result[i] = LoggingUtils.determineTargetMethod(methods[i], targetClass);
+			}
+			return result;
+		}
+
+		private static boolean isVisible(ClassLoader loader, Class<?> type) {
+			try {
+				return Class.forName(type.getName(), false, loader) == type;
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+
+		private static String signature(Method method) {
+
+			StringBuilder signature = new StringBuilder(method.getName()).append('(');
+			for (Class<?> parameterType : method.getParameterTypes()) {
+				signature.append(parameterType.getName()).append(',');
+			}
+			return signature.append(')').toString();
+		}
+	}
+
+	/**
+	 * Identifies a generated class by which of the proxied methods it intercepts
+	 */
+	private static final class RoutingKey {
+
+		private final boolean[] intercepted;
+
+		private RoutingKey(boolean[] intercepted) {
+			this.intercepted = intercepted;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof RoutingKey && Arrays.equals(((RoutingKey) obj).intercepted, intercepted);
+		}
+
+		@Override
+		public int hashCode() {
+			return Arrays.hashCode(intercepted);
+		}
+	}
+}
@@ -0,0 +1,326 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.bytecode.spi;
+
+import static org.objectweb.asm.Opcodes.AASTORE;
+import static org.objectweb.asm.Opcodes.ACC_FINAL;
+import static org.objectweb.asm.Opcodes.ACC_PRIVATE;
+import static org.objectweb.asm.Opcodes.ACC_PUBLIC;
+import static org.objectweb.asm.Opcodes.ACC_SUPER;
+import static org.objectweb.asm.Opcodes.ACC_SYNTHETIC;
+import static org.objectweb.asm.Opcodes.ACONST_NULL;
+import static org.objectweb.asm.Opcodes.ALOAD;
+import static org.objectweb.asm.Opcodes.ANEWARRAY;
+import static org.objectweb.asm.Opcodes.ASTORE;
+import static org.objectweb.asm.Opcodes.ATHROW;
+import static org.objectweb.asm.Opcodes.BIPUSH;
+import static org.objectweb.asm.Opcodes.CHECKCAST;
+import static org.objectweb.asm.Opcodes.DUP;
+import static org.objectweb.asm.Opcodes.GETFIELD;
+import static org.objectweb.asm.Opcodes.GOTO;
+import static org.objectweb.asm.Opcodes.ICONST_0;
+import static org.objectweb.asm.Opcodes.ILOAD;
+import static org.objectweb.asm.Opcodes.INVOKEINTERFACE;
+import static org.objectweb.asm.Opcodes.INVOKESPECIAL;
+import static org.objectweb.asm.Opcodes.INVOKESTATIC;
+import static org.objectweb.asm.Opcodes.INVOKEVIRTUAL;
+import static org.objectweb.asm.Opcodes.IRETURN;
+import static org.objectweb.asm.Opcodes.ISTORE;
+import static org.objectweb.asm.Opcodes.PUTFIELD;
+import static org.objectweb.asm.Opcodes.RETURN;
+import static org.objectweb.asm.Opcodes.SIPUSH;
+import static org.objectweb.asm.Opcodes.V1_7;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Type;
+
+/**
+ * Generates proxy classes implementing a set of interfaces. Each proxy holds its target and a
+ * {@link ProxyInterception}, and each of its methods calls the target through a direct
+ * invokeinterface or invokevirtual instruction. Methods that are not intercepted only delegate;
+ * intercepted methods box their arguments for the interceptors and call the interception hooks
+ * with their own method index around the call.
+ */
+final class ProxyClassGenerator {
+
+	private static final String PROXY_CLASS_PREFIX = "com/groupcdg/carbon/logging/bytecode/spi/$CarbonProxy";
+
+	private static final String OBJECT = Type.getInternalName(Object.class);
+
+	private static final String TARGET_DESCRIPTOR = Type.getDescriptor(Object.class);
+
+	private static final String INTERCEPTION = Type.getInternalName(ProxyInterception.class);
+
+	private static final String INTERCEPTION_DESCRIPTOR = Type.getDescriptor(ProxyInterception.class);
+
+	private static final String BEFORE_DESCRIPTOR = "(ILjava/lang/Object;[Ljava/lang/Object;)[Ljava/lang/Object;";
+
+	private static final String AFTER_DESCRIPTOR = "(ILjava/lang/Object;[Ljava/lang/Object;Ljava/lang/Object;[Ljava/lang/Object;)V";
+
+	private static final String AFTER_THROWING_DESCRIPTOR = "(ILjava/lang/Object;[Ljava/lang/Object;Ljava/lang/Throwable;[Ljava/lang/Object;)V";
+
+	private static final AtomicInteger COUNTER = new AtomicInteger();
+
+	private ProxyClassGenerator() {
+	}
+
+	/**
+	 * Generates a proxy class with a constructor taking the target and its ProxyInterception
+	 * @param loader The class loader from which the interfaces are visible
+	 * @param interfaces The interfaces implemented by the proxy
+	 * @param methods The methods implemented by the proxy, each declared by Object or one of the interfaces
+	 * @param intercepted Whether each method is routed through the interception hooks
+	 */
+	static Class<?> generate(ClassLoader loader, Class<?>[] interfaces, Method[] methods, boolean[] intercepted) {
+
+		String className = PROXY_CLASS_PREFIX + COUNTER.incrementAndGet();
+
+		String[] interfaceNames = new String[interfaces.length];
+		for (int i = 0; i < interfaces.length; i++) {
+			interfaceNames[i] = Type.getInternalName(interfaces[i]);
+		}
+
+		ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_FRAMES | ClassWriter.COMPUTE_MAXS) {
+			@Override
+			protected String getCommonSuperClass(String type1, String type2) {
+				// Only needed to merge frames in the generated methods, which hold no conflicting types
+				return OBJECT;
+			}
+		};
+		writer.visit(V1_7, ACC_PUBLIC | ACC_FINAL | ACC_SUPER | ACC_SYNTHETIC, className, null, OBJECT, interfaceNames);
+		writer.visitField(ACC_PRIVATE | ACC_FINAL, "target", TARGET_DESCRIPTOR, null, null).visitEnd();
+		writer.visitField(ACC_PRIVATE | ACC_FINAL, "interception", INTERCEPTION_DESCRIPTOR, null, null).visitEnd();
+
+		generateConstructor(writer, className);
+		for (int i = 0; i < methods.length; i++) {
+			if (intercepted[i]) {
+				generateInterceptedMethod(writer, className, methods[i], i);
+			} else {
+				generateDelegatingMethod(writer, className, methods[i]);
+			}
+		}
+		writer.visitEnd();
+
+		return new ProxyClassLoader(loader).define(className.replace('/', '.'), writer.toByteArray());
+	}
+
+	private static void generateConstructor(ClassWriter writer, String className) {
+
+		MethodVisitor mv = writer.visitMethod(ACC_PUBLIC, "<init>", "(" + TARGET_DESCRIPTOR + INTERCEPTION_DESCRIPTOR + ")V", null, null);
+		mv.visitCode();
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitMethodInsn(INVOKESPECIAL, OBJECT, "<init>", "()V", false);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 1);
+		mv.visitFieldInsn(PUTFIELD, className, "target", TARGET_DESCRIPTOR);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, 2);
+		mv.visitFieldInsn(PUTFIELD, className, "interception", INTERCEPTION_DESCRIPTOR);
+		mv.visitInsn(RETURN);
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateDelegatingMethod(ClassWriter writer, String className, Method method) {
+
+		MethodVisitor mv = visitMethod(writer, method);
+		mv.visitCode();
+		invokeTarget(mv, className, method);
+		mv.visitInsn(Type.getReturnType(method).getOpcode(IRETURN));
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static void generateInterceptedMethod(ClassWriter writer, String className, Method method, int index) {
+
+		Type[] argumentTypes = Type.getArgumentTypes(method);
+		Type returnType = Type.getReturnType(method);
+
+		int argsSlot = 1;
+		for (Type argumentType : argumentTypes) {
+			argsSlot += argumentType.getSize();
+		}
+		int beforeSlot = argsSlot + 1;
+		int throwableSlot = beforeSlot + 1;
+		int returnSlot = throwableSlot + 1;
+
+		MethodVisitor mv = visitMethod(writer, method);
+		mv.visitCode();
+
+		// Object[] args = new Object[] {...}
+		pushInt(mv, argumentTypes.length);
+		mv.visitTypeInsn(ANEWARRAY, OBJECT);
+		for (int i = 0, slot = 1; i < argumentTypes.length; slot += argumentTypes[i].getSize(), i++) {
+			mv.visitInsn(DUP);
+			pushInt(mv, i);
+			mv.visitVarInsn(argumentTypes[i].getOpcode(ILOAD), slot);
+			box(mv, argumentTypes[i]);
+			mv.visitInsn(AASTORE);
+		}
+		mv.visitVarInsn(ASTORE, argsSlot);
+
+		// Object[] before = interception.before(index, this, args)
+		loadInterceptionCall(mv, className, index, argsSlot);
+		mv.visitMethodInsn(INVOKEVIRTUAL, INTERCEPTION, "before", BEFORE_DESCRIPTOR, false);
+		mv.visitVarInsn(ASTORE, beforeSlot);
+
+		Label tryStart = new Label();
+		Label tryEnd = new Label();
+		Label handler = new Label();
+		Label after = new Label();
+		mv.visitTryCatchBlock(tryStart, tryEnd, handler, "java/lang/Throwable");
+
+		mv.visitLabel(tryStart);
+		invokeTarget(mv, className, method);
+		if (returnType.getSort() != Type.VOID) {
+			mv.visitVarInsn(returnType.getOpcode(ISTORE), returnSlot);
+		}
+		mv.visitLabel(tryEnd);
+		mv.visitJumpInsn(GOTO, after);
+
+		// catch (Throwable cause) { interception.afterThrowing(index, this, args, cause, before); throw cause; }
+		mv.visitLabel(handler);
+		mv.visitVarInsn(ASTORE, throwableSlot);
+		loadInterceptionCall(mv, className, index, argsSlot);
+		mv.visitVarInsn(ALOAD, throwableSlot);
+		mv.visitVarInsn(ALOAD, beforeSlot);
+		mv.visitMethodInsn(INVOKEVIRTUAL, INTERCEPTION, "afterThrowing", AFTER_THROWING_DESCRIPTOR, false);
+		mv.visitVarInsn(ALOAD, throwableSlot);
+		mv.visitInsn(ATHROW);
+
+		// interception.after(index, this, args, result, before); return result;
+		mv.visitLabel(after);
+		loadInterceptionCall(mv, className, index, argsSlot);
+		if (returnType.getSort() == Type.VOID) {
+			mv.visitInsn(ACONST_NULL);
+		} else {
+			mv.visitVarInsn(returnType.getOpcode(ILOAD), returnSlot);
+			box(mv, returnType);
+		}
+		mv.visitVarInsn(ALOAD, beforeSlot);
+		mv.visitMethodInsn(INVOKEVIRTUAL, INTERCEPTION, "after", AFTER_DESCRIPTOR, false);
+		if (returnType.getSort() != Type.VOID) {
+			mv.visitVarInsn(returnType.getOpcode(ILOAD), returnSlot);
+		}
+		mv.visitInsn(returnType.getOpcode(IRETURN));
+
+		mv.visitMaxs(0, 0);
+		mv.visitEnd();
+	}
+
+	private static MethodVisitor visitMethod(ClassWriter writer, Method method) {
+
+		Class<?>[] exceptionTypes = method.getExceptionTypes();
+		String[] exceptions = new String[exceptionTypes.length];
+		for (int i = 0; i < exceptionTypes.length; i++) {
+			exceptions[i] = Type.getInternalName(exceptionTypes[i]);
+		}
+		return writer.visitMethod(ACC_PUBLIC | ACC_FINAL, method.getName(), Type.getMethodDescriptor(method), null, exceptions);
+	}
+
+	/**
+	 * Loads the target and the method's arguments and calls the method on the target
+	 */
+	private static void invokeTarget(MethodVisitor mv, String className, Method method) {
+
+		Class<?> owner = method.getDeclaringClass();
+		String ownerName = Type.getInternalName(owner);
+
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, className, "target", TARGET_DESCRIPTOR);
+		if (owner != Object.class) {
+			mv.visitTypeInsn(CHECKCAST, ownerName);
+		}
+		int slot = 1;
+		for (Type argumentType : Type.getArgumentTypes(method)) {
+			mv.visitVarInsn(argumentType.getOpcode(ILOAD), slot);
+			slot += argumentType.getSize();
+		}
+		if (owner.isInterface()) {
+			mv.visitMethodInsn(INVOKEINTERFACE, ownerName, method.getName(), Type.getMethodDescriptor(method), true);
+		} else {
+			mv.visitMethodInsn(INVOKEVIRTUAL, ownerName, method.getName(), Type.getMethodDescriptor(method), false);
+		}
+	}
+
+	/**
+	 * Loads the interception, method index, proxy and argument array common to each hook
+	 */
+	private static void loadInterceptionCall(MethodVisitor mv, String className, int index, int argsSlot) {
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitFieldInsn(GETFIELD, className, "interception", INTERCEPTION_DESCRIPTOR);
+		pushInt(mv, index);
+		mv.visitVarInsn(ALOAD, 0);
+		mv.visitVarInsn(ALOAD, argsSlot);
+	}
+
+	private static void pushInt(MethodVisitor mv, int value) {
+		if (value <= 5) {
+			mv.visitInsn(ICONST_0 + value);
+		} else if (value <= Byte.MAX_VALUE) {
+			mv.visitIntInsn(BIPUSH, value);
+		} else if (value <= Short.MAX_VALUE) {
+			mv.visitIntInsn(SIPUSH, value);
+		} else {
+			mv.visitLdcInsn(value);
+		}
+	}
+
+	private static void box(MethodVisitor mv, Type type) {
+
+		String wrapper;
+		switch (type.getSort()) {
+			case Type.BOOLEAN: wrapper = "java/lang/Boolean"; break;
+			case Type.BYTE: wrapper = "java/lang/Byte"; break;
+			case Type.CHAR: wrapper = "java/lang/Character"; break;
+			case Type.SHORT: wrapper = "java/lang/Short"; break;
+			case Type.INT: wrapper = "java/lang/Integer"; break;
+			case Type.LONG: wrapper = "java/lang/Long"; break;
+			case Type.FLOAT: wrapper = "java/lang/Float"; break;
+			case Type.DOUBLE: wrapper = "java/lang/Double"; break;
+			default: return;
+		}
+		mv.visitMethodInsn(INVOKESTATIC, wrapper, "valueOf", "(" + type.getDescriptor() + ")L" + wrapper + ";", false);
+	}
+
+	/**
+	 * Defines a generated proxy class in a child of the interfaces' class loader, through which the
+	 * proxy also sees this package's ProxyInterception
+	 */
+	private static final class ProxyClassLoader extends ClassLoader {
+
+		private ProxyClassLoader(ClassLoader parent) {
+			super(parent);
+		}
+
+		@Override
+		protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+			if (ProxyInterception.class.getName().equals(name)) {
+				return ProxyInterception.class;
+			}
+			return super.loadClass(name, resolve);
+		}
+
+		private Class<?> define(String name, byte[] bytes) {
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+}
@@ -0,0 +1,70 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.bytecode.spi;
+
+import java.lang.reflect.Method;
+
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+
+/**
+ * The interception state of a single generated proxy. Generated methods identify themselves by
+ * the index of their method in the proxy class, and each index has its matching interceptors
+ * resolved when the proxy is created. Interceptors are applied in the same order as
+ * {@link com.groupcdg.carbon.logging.proxy.spi.GenericInvocationHandler}.
+ * <p>
+ * This class is public only so that generated proxies, which are defined in their own class
+ * loader, can call it.
+ */
+public final class ProxyInterception {
+
+	private final Object realTarget;
+
+	private final Method[] methods;
+
+	private final MethodInterceptor[][] interceptors;
+
+	ProxyInterception(Object realTarget, Method[] methods, MethodInterceptor[][] interceptors) {
+		this.realTarget = realTarget;
+		this.methods = methods;
+		this.interceptors = interceptors;
+	}
+
+	public Object[] before(int index, Object proxy, Object[] args) {
+
+		MethodInterceptor[] methodInterceptors = interceptors[index];
+		Object[] interceptBeforeReturnObjects = new Object[methodInterceptors.length];
+		for (int i = methodInterceptors.length - 1; i >= 0; i--) {
+			interceptBeforeReturnObjects[i] = methodInterceptors[i].interceptBefore(proxy, methods[index], args, realTarget);
+		}
+		return interceptBeforeReturnObjects;
+	}
+
+	public void after(int index, Object proxy, Object[] args, Object retObject, Object[] interceptBeforeReturnObjects) {
+
+		MethodInterceptor[] methodInterceptors = interceptors[index];
+		for (int i = 0; i < methodInterceptors.length; i++) {
+			methodInterceptors[i].interceptAfter(proxy, methods[index], args, realTarget, retObject, interceptBeforeReturnObjects[i]);
+		}
+	}
+
+	public void afterThrowing(int index, Object proxy, Object[] args, Throwable cause, Object[] interceptBeforeReturnObjects) {
+
+		MethodInterceptor[] methodInterceptors = interceptors[index];
+		for (int i = 0; i < methodInterceptors.length; i++) {
+			methodInterceptors[i].interceptAfterThrowing(proxy, methods[index], args, realTarget, cause, interceptBeforeReturnObjects[i]);
+		}
+	}
+}
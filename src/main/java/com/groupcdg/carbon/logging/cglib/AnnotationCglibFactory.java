@@ -20,38 +20,26 @@ import java.lang.annotation.ElementType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
-import com.groupcdg.carbon.logging.annotation.Proxyable;
 import com.groupcdg.carbon.logging.cglib.spi.CglibFactory;
 import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
-import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.InterceptionPlan;
 
 public class AnnotationCglibFactory {
 
 	public static <V, W extends V> V getProxy(W inputObject, Method... matchMethods) throws Throwable {
 
 		Class<?> underlyingTarget = LoggingUtils.determineActualType(inputObject);
-
-		@SuppressWarnings("unchecked")
-		List<Class<? extends Annotation>> proxyableTypes = getClassAndMethodAnnotationTypesWithMetaAnnotation(underlyingTarget, new ElementType[] {ElementType.TYPE,  ElementType.METHOD}, true, Proxyable.class);
-
-		MethodInterceptor[] interceptors = new MethodInterceptor[proxyableTypes.size()];
-		for (int i =0; i < proxyableTypes.size(); i++) {
-			Class<? extends Annotation> proxyAnnotationType = proxyableTypes.get(i);
-			Class<? extends MethodInterceptor> methodInterceptor = proxyAnnotationType.getAnnotation(Proxyable.class).interceptor();
-			Method ofMethod = methodInterceptor.getMethod("of", Class.class, Class.class);
-			MethodInterceptor interceptor = (MethodInterceptor) ofMethod.invoke(null, underlyingTarget, proxyAnnotationType);
-			interceptors[i] = interceptor;
-		}
-
-		return CglibFactory.getProxy(inputObject, interceptors);
+		return CglibFactory.getProxy(inputObject, InterceptionPlan.of(underlyingTarget).getInterceptors());
 	}
 
 	public static final List<Class<? extends Annotation>> getClassAndMethodAnnotationTypesWithMetaAnnotation(Class<?> targetClass, ElementType[] searchLocations, boolean searchHierarchy, @SuppressWarnings("unchecked") Class<? extends Annotation>... metaAnnotations) {
 
 		// TODO Should resolve bridge methods / synthetics like Spring's AnnotationUtils?
-		List<Class<? extends Annotation>> result = new ArrayList<>();
+		Set<Class<? extends Annotation>> result = new LinkedHashSet<>();
 
 		for (ElementType searchLocation : searchLocations) {
 
@@ -59,13 +47,9 @@ public class AnnotationCglibFactory {
 				Annotation[] annotations = targetClass.getAnnotations();
 				for (Annotation next : annotations) {
 					if (metaAnnotations == null) {
-						if (!result.contains(next.annotationType())) {
-							result.add(next.annotationType());
-						}
+						result.add(next.annotationType());
 					} else if (hasMetaAnnotation(next.annotationType(), false, metaAnnotations)) {
-						if (!result.contains(next.annotationType())) {
-							result.add(next.annotationType());
-						}
+						result.add(next.annotationType());
 					}
 				}
 			}
@@ -77,13 +61,9 @@ public class AnnotationCglibFactory {
 					Annotation[] annotations = nextMethod.getAnnotations();
 					for (Annotation next : annotations) {
 						if (metaAnnotations == null) {
-							if (!result.contains(next.annotationType())) {
-								result.add(next.annotationType());
-							}
+							result.add(next.annotationType());
 						} else if (hasMetaAnnotation(next.annotationType(), false, metaAnnotations)) {
-							if (!result.contains(next.annotationType())) {
-								result.add(next.annotationType());
-							}
+							result.add(next.annotationType());
 						}
 					}
 				}
@@ -94,7 +74,7 @@ public class AnnotationCglibFactory {
 			}
 		}
 
-		return result;
+		return new ArrayList<>(result);
 	}
 
 	public static Method[] getAccessibleMethods(Class<?> clazz, boolean searchHierarchy) {
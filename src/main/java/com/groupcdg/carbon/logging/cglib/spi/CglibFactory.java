@@ -15,54 +15,301 @@
  */
 package com.groupcdg.carbon.logging.cglib.spi;
 
-import java.lang.reflect.Proxy;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
 
+import net.sf.cglib.core.CodeGenerationException;
+import net.sf.cglib.proxy.Callback;
+import net.sf.cglib.proxy.CallbackFilter;
 import net.sf.cglib.proxy.Enhancer;
+import net.sf.cglib.proxy.Factory;
+import net.sf.cglib.proxy.NoOp;
 
+/**
+ * Creates class based proxies applying any number of interceptors through a single
+ * {@link GenericCglibHandler}. Only methods matched by at least one interceptor are routed to the
+ * handler; the generated class calls the superclass directly for the rest, so unannotated methods,
+ * toString and hashCode carry no interception overhead.
+ * <p>
+ * Since the routing is fixed when a class is generated, proxy classes are cached by superclass
+ * and by the set of intercepted methods, along with a prototype instance from which further
+ * proxies are created through {@link Factory#newInstance(Callback[])}. The cache is held in a
+ * ClassValue of the superclass so that it does not keep the superclass's class loader reachable.
+ * The routing of each set of interceptors is also cached, by the identity of the interceptors,
+ * which are shared by every proxy of a class configured by discovery, so that creating a further
+ * proxy only instantiates it.
+ */
 public class CglibFactory {
 
+	private static final int INTERCEPTED = 0;
+
+	private static final int NOT_INTERCEPTED = 1;
+
+	private static final ClassValue<ProxyClasses> PROXY_CLASSES = new ClassValue<ProxyClasses>() {
+		@Override
+		protected ProxyClasses computeValue(Class<?> superclass) {
+			return new ProxyClasses(superclass);
+		}
+	};
+
 	private CglibFactory() {
 	}
 
+	@SuppressWarnings("unchecked")
 	public static <V, W extends V> V getProxy(W inputObject, MethodInterceptor... interceptors) {
 
-		if (interceptors != null && interceptors.length > 0) {
+		if (interceptors == null || interceptors.length == 0) {
+			return inputObject;
+		}
+
+		GenericCglibHandler handler = new GenericCglibHandler();
+		handler.setMethodInterceptors(interceptors);
+		handler.setRealTarget(inputObject);
+		handler.setTarget(inputObject);
+
+		try {
+			return (V) PROXY_CLASSES.get(inputObject.getClass()).get(interceptors).newInstance(handler);
+		} catch (CodeGenerationException e) {
+			throw new IllegalStateException("Could not create proxy of " + inputObject.getClass(), e);
+		}
+	}
+
+	/**
+	 * The methods of a superclass that a proxy may override, and the proxy classes generated for it
+	 */
+	private static final class ProxyClasses {
+
+		private final Class<?> superclass;
+
+		private final Method[] methods;
+
+		private final String[] signatures;
+
+		private final ConcurrentMap<RoutingFilter, ProxyClass> byFilter = new ConcurrentHashMap<>();
+
+		/**
+		 * The proxy class routing each set of interceptors, which are held weakly
+		 */
+		private final ConcurrentMap<InterceptorsKey, ProxyClass> byInterceptors = new ConcurrentHashMap<>();
+
+		private ProxyClasses(Class<?> superclass) {
+			this.superclass = superclass;
+			this.methods = overridableMethods(superclass);
+			this.signatures = new String[methods.length];
+			for (int i = 0; i < methods.length; i++) {
+				signatures[i] = signature(methods[i]);
+			}
+		}
+
+		private ProxyClass get(MethodInterceptor[] interceptors) {
 
-			V inputProxiedObject = inputObject;
+			ProxyClass proxyClass = byInterceptors.get(new InterceptorsKey(interceptors, false));
+			if (proxyClass == null) {
+				removeCollected();
+				proxyClass = get(new RoutingFilter(interceptedSignatures(interceptors)));
+				byInterceptors.putIfAbsent(new InterceptorsKey(interceptors, true), proxyClass);
+			}
+			return proxyClass;
+		}
+
+		private ProxyClass get(RoutingFilter filter) {
+
+			ProxyClass proxyClass = byFilter.get(filter);
+			if (proxyClass == null) {
+				proxyClass = ProxyClass.create(superclass, filter);
+				ProxyClass existing = byFilter.putIfAbsent(filter, proxyClass);
+				if (existing != null) {
+					proxyClass = existing;
+				}
+			}
+			return proxyClass;
+		}
+
+		private void removeCollected() {
+			for (Iterator<InterceptorsKey> i = byInterceptors.keySet().iterator(); i.hasNext();) {
+				if (i.next().isCollected()) {
+					i.remove();
+				}
+			}
+		}
+
+		private Set<String> interceptedSignatures(MethodInterceptor[] interceptors) {
+
+			Set<String> intercepted = new HashSet<>();
+			for (int i = 0; i < methods.length; i++) {
+				for (MethodInterceptor interceptor : interceptors) {
+					if (interceptor != null && (!(interceptor instanceof MethodMatcher) || ((MethodMatcher) interceptor).isMatchedMethod(methods[i]))) {
+						intercepted.add(signatures[i]);
+						break;
+					}
+				}
+			}
+			return intercepted;
+		}
+
+		private static Method[] overridableMethods(Class<?> superclass) {
+
+			List<Method> methods = new ArrayList<>();
+			for (Class<?> next = superclass; next != null; next = next.getSuperclass()) {
+				for (Method method : next.getDeclaredMethods()) {
+					int modifiers = method.getModifiers();
+					if (!Modifier.isStatic(modifiers) && !Modifier.isFinal(modifiers) && !Modifier.isPrivate(modifiers) && !method.isBridge()) {
+						methods.add(method);
+					}
+				}
+			}
+			return methods.toArray(new Method[methods.size()]);
+		}
+	}
+
+	/**
+	 * Identifies a set of interceptors by the identity of its members. Keys stored in the cache hold
+	 * the interceptors weakly, so that the cache does not keep discarded interceptors reachable;
+	 * keys used only for lookup hold them directly, to avoid allocating references.
+	 */
+	private static final class InterceptorsKey {
+
+		private final Object[] interceptors;
+
+		private final int hashCode;
+
+		private InterceptorsKey(MethodInterceptor[] interceptors, boolean weak) {
+			this.interceptors = new Object[interceptors.length];
+			int hash = 1;
 			for (int i = 0; i < interceptors.length; i++) {
-				try {
-					inputProxiedObject = getProxy(inputObject, interceptors[i], inputProxiedObject);
-				} catch (Throwable e) {
-					throw new RuntimeException(e); // TODO Refactor
+				this.interceptors[i] = weak && interceptors[i] != null ? new WeakReference<MethodInterceptor>(interceptors[i]) : interceptors[i];
+				hash = 31 * hash + System.identityHashCode(interceptors[i]);
+			}
+			this.hashCode = hash;
+		}
+
+		private Object get(int i) {
+			Object interceptor = interceptors[i];
+			return interceptor instanceof WeakReference ? ((WeakReference<?>) interceptor).get() : interceptor;
+		}
+
+		private boolean isCollected() {
+			for (int i = 0; i < interceptors.length; i++) {
+				if (interceptors[i] != null && get(i) == null) {
+					return true;
 				}
 			}
-			return inputProxiedObject;
-		} else {
-			return inputObject;
+			return false;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+
+			if (obj == this) {
+				return true;
+			}
+			if (!(obj instanceof InterceptorsKey)) {
+				return false;
+			}
+			InterceptorsKey other = (InterceptorsKey) obj;
+			if (other.hashCode != hashCode || other.interceptors.length != interceptors.length) {
+				return false;
+			}
+			for (int i = 0; i < interceptors.length; i++) {
+				Object interceptor = get(i);
+				if (interceptor != other.get(i) || interceptor == null && (interceptors[i] != null || other.interceptors[i] != null)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		@Override
+		public int hashCode() {
+			return hashCode;
 		}
 	}
 
-	@SuppressWarnings("unchecked")
-	private static <V, W extends V> V getProxy(W inObject, MethodInterceptor interceptor, V inputProxiedObject) throws Throwable {
+	/**
+	 * Routes the methods intercepted by a proxy to its handler and the rest to the superclass. A
+	 * filter is built once for each set of interceptors of a superclass, when its proxy class is
+	 * first looked up, and is kept with the generated class. The filter is part of cglib's own
+	 * class cache key, so equality depends only on the routing.
+	 */
+	private static final class RoutingFilter implements CallbackFilter {
+
+		private final Set<String> interceptedSignatures;
+
+		private RoutingFilter(Set<String> interceptedSignatures) {
+			this.interceptedSignatures = interceptedSignatures;
+		}
 
-		if (interceptor == null) {
-			return inputProxiedObject;
+		@Override
+		public int accept(Method method) {
+			return interceptedSignatures.contains(signature(method)) ? INTERCEPTED : NOT_INTERCEPTED;
 		}
 
-		Enhancer enhancer = new Enhancer();
-		enhancer.setSuperclass(inputProxiedObject.getClass());
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof RoutingFilter && ((RoutingFilter) obj).interceptedSignatures.equals(interceptedSignatures);
+		}
 
-		GenericCglibHandler handler = new GenericCglibHandler();
-		handler.setMethodInterceptor(interceptor);
-		handler.setRealTarget(inObject);
-		handler.setTarget(inputProxiedObject);
+		@Override
+		public int hashCode() {
+			return interceptedSignatures.hashCode();
+		}
+	}
+
+	/**
+	 * A generated proxy class and an instance of it from which further instances are created
+	 */
+	private static final class ProxyClass {
+
+		private final Factory prototype;
+
+		private ProxyClass(Factory prototype) {
+			this.prototype = prototype;
+		}
+
+		private static ProxyClass create(Class<?> superclass, RoutingFilter filter) {
+
+			Enhancer enhancer = new Enhancer();
+			enhancer.setSuperclass(superclass);
+			enhancer.setCallbackTypes(new Class<?>[] { GenericCglibHandler.class, NoOp.class });
+			enhancer.setCallbackFilter(filter);
+			Class<?> proxyClass = enhancer.createClass();
 
-		enhancer.setCallback(handler);
+			Enhancer.registerCallbacks(proxyClass, callbacks(new GenericCglibHandler()));
+			try {
+				return new ProxyClass((Factory) proxyClass.newInstance());
+			} catch (InstantiationException | IllegalAccessException e) {
+				throw new IllegalStateException("Could not instantiate proxy of " + superclass, e);
+			} finally {
+				Enhancer.registerCallbacks(proxyClass, null);
+			}
+		}
 
-		V proxy = (V) enhancer.create();
+		private Object newInstance(GenericCglibHandler handler) {
+			return prototype.newInstance(callbacks(handler));
+		}
 
-		return proxy;
+		private static Callback[] callbacks(GenericCglibHandler handler) {
+			return new Callback[] { handler, NoOp.INSTANCE };
+		}
+	}
+
+	private static String signature(Method method) {
+
+		StringBuilder signature = new StringBuilder(method.getName()).append('(');
+		for (Class<?> parameterType : method.getParameterTypes()) {
+			signature.append(parameterType.getName()).append(',');
+		}
+		return signature.append(')').toString();
 	}
-}
\ No newline at end of file
+}
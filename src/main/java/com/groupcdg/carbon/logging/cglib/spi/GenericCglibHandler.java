@@ -15,15 +15,28 @@
  */
 package com.groupcdg.carbon.logging.cglib.spi;
 
-import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
 
 import net.sf.cglib.proxy.MethodProxy;
 
+/**
+ * Applies any number of interceptors around calls to a cglib proxy, in the same order as
+ * {@link com.groupcdg.carbon.logging.proxy.spi.GenericInvocationHandler}: the last interceptor's
+ * before advice runs first, and the first interceptor's after advice runs first. Interceptors
+ * that implement {@link MethodMatcher} are skipped for methods they do not match; the interceptors
+ * applying to each method are resolved once.
+ */
 public class GenericCglibHandler implements net.sf.cglib.proxy.MethodInterceptor {
 
+	private static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+
 	private Object target = null;
 
 	public void setTarget(Object target) {
@@ -36,32 +49,72 @@ public class GenericCglibHandler implements net.sf.cglib.proxy.MethodInterceptor
 		this.realtarget = realtarget;
 	}
 
-	MethodInterceptor methodInterceptor = null;
+	private MethodInterceptor[] methodInterceptors = NO_INTERCEPTORS;
+
+	private final ConcurrentMap<Method, MethodInterceptor[]> matchedInterceptors = new ConcurrentHashMap<>();
 
 	public void setMethodInterceptor(MethodInterceptor methodInterceptor) {
-		this.methodInterceptor = methodInterceptor;
+		setMethodInterceptors(methodInterceptor);
+	}
+
+	public void setMethodInterceptors(MethodInterceptor... methodInterceptors) {
+
+		List<MethodInterceptor> interceptors = new ArrayList<>();
+		if (methodInterceptors != null) {
+			for (MethodInterceptor next : methodInterceptors) {
+				if (next != null) {
+					interceptors.add(next);
+				}
+			}
+		}
+		this.methodInterceptors = interceptors.toArray(new MethodInterceptor[interceptors.size()]);
+		this.matchedInterceptors.clear();
 	}
 
 	public Object intercept(Object obj, Method method, Object[] args, MethodProxy proxy) throws Throwable {
 
-		Object interceptBeforeReturnObject = null;
+		MethodInterceptor[] interceptors = getMatchedInterceptors(method);
+		if (interceptors.length == 0) {
+			return proxy.invokeSuper(obj, args);
+		}
+
+		Object[] interceptBeforeReturnObjects = new Object[interceptors.length];
+		for (int i = interceptors.length - 1; i >= 0; i--) {
+			interceptBeforeReturnObjects[i] = interceptors[i].interceptBefore(obj, method, args, realtarget);
+		}
+
+		Object retObject;
 		try {
-			if (methodInterceptor != null) {
-				interceptBeforeReturnObject = methodInterceptor.interceptBefore(obj, method, args, realtarget);
-			}
-			Object retObject = proxy.invokeSuper(obj, args);
-			if (methodInterceptor != null) {
-				methodInterceptor.interceptAfter(obj, method, args, realtarget, retObject, interceptBeforeReturnObject);
+			retObject = proxy.invokeSuper(obj, args);
+		} catch (Throwable cause) {
+			for (int i = 0; i < interceptors.length; i++) {
+				interceptors[i].interceptAfterThrowing(obj, method, args, realtarget, cause, interceptBeforeReturnObjects[i]);
 			}
-			return retObject;
-		} catch (InvocationTargetException e) {
-			Throwable cause = e.getTargetException();
-			methodInterceptor.interceptAfterThrowing(obj, method, args, realtarget, cause, interceptBeforeReturnObject);
-			throw e.getTargetException();
+			throw cause;
 		}
 
-		catch (Exception e) {
-			throw e;
+		for (int i = 0; i < interceptors.length; i++) {
+			interceptors[i].interceptAfter(obj, method, args, realtarget, retObject, interceptBeforeReturnObjects[i]);
+		}
+		return retObject;
+	}
+
+	private MethodInterceptor[] getMatchedInterceptors(Method method) {
+
+		MethodInterceptor[] interceptors = matchedInterceptors.get(method);
+		if (interceptors == null) {
+			List<MethodInterceptor> matched = new ArrayList<>();
+			for (MethodInterceptor next : methodInterceptors) {
+				if (!(next instanceof MethodMatcher) || ((MethodMatcher) next).isMatchedMethod(method)) {
+					matched.add(next);
+				}
+			}
+			interceptors = matched.isEmpty() ? NO_INTERCEPTORS : matched.toArray(new MethodInterceptor[matched.size()]);
+			MethodInterceptor[] existing = matchedInterceptors.putIfAbsent(method, interceptors);
+			if (existing != null) {
+				interceptors = existing;
+			}
 		}
+		return interceptors;
 	}
 }
@@ -0,0 +1,271 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.groupcdg.carbon.logging.annotation.Level;
+
+/**
+ * Moves the formatting and logging of events off the calling thread. While the dispatcher is
+ * running, the helpers capture each enabled event into a bounded lock-free ring, and a dedicated
+ * daemon thread applies the ToStringStrategy and passes the event to SLF4J, so the latency of an
+ * intercepted call no longer depends on the speed of the strategy or the appenders.
+ * <p>
+ * Arguments of immutable types are rendered on the consumer thread; unless the render policy is
+ * {@link RenderPolicy#LAZY}, other arguments are rendered on the calling thread so that later
+ * changes to them are not logged. Stack traces are also rendered on the calling thread. The
+ * consumer restores the MDC of the calling thread while logging each event, and adds the name of
+ * the calling thread and the time the event was captured under {@value #CALLER_THREAD_KEY} and
+ * {@value #EVENT_TIME_KEY}.
+ * <p>
+ * The dispatcher is started with {@link #start(int, AsyncWaitPolicy, AsyncOverflowPolicy)}, or at
+ * startup by setting the system property {@value #ASYNC_PROPERTY} to true, with the buffer size and
+ * policies given by {@value #BUFFER_SIZE_PROPERTY}, {@value #WAIT_POLICY_PROPERTY} and
+ * {@value #OVERFLOW_POLICY_PROPERTY}. Events still buffered are logged when it is stopped or the
+ * JVM shuts down.
+ */
+public final class AsyncLogDispatcher {
+
+	public static final String ASYNC_PROPERTY = "com.groupcdg.carbon.logging.async";
+
+	public static final String BUFFER_SIZE_PROPERTY = "com.groupcdg.carbon.logging.async.bufferSize";
+
+	public static final String WAIT_POLICY_PROPERTY = "com.groupcdg.carbon.logging.async.waitPolicy";
+
+	public static final String OVERFLOW_POLICY_PROPERTY = "com.groupcdg.carbon.logging.async.overflowPolicy";
+
+	public static final String CALLER_THREAD_KEY = "carbon.callerThread";
+
+	public static final String EVENT_TIME_KEY = "carbon.eventTime";
+
+	private static final int DEFAULT_BUFFER_SIZE = 8192;
+
+	private static final int SPIN_TRIES = 100;
+
+	private static final long PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(AsyncLogDispatcher.class);
+
+	private static volatile AsyncLogDispatcher running;
+
+	private final LogEventRing ring;
+
+	private final AsyncWaitPolicy waitPolicy;
+
+	private final AsyncOverflowPolicy overflowPolicy;
+
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * The number of producers between checking that the dispatcher is not stopping and publishing,
+	 * which the consumer waits for before its final drain
+	 */
+	private final AtomicInteger offering = new AtomicInteger();
+
+	private final Thread consumer;
+
+	private volatile boolean stopping;
+
+	static {
+		if (Boolean.getBoolean(ASYNC_PROPERTY)) {
+			start(Integer.getInteger(BUFFER_SIZE_PROPERTY, DEFAULT_BUFFER_SIZE).intValue(),
+					AsyncWaitPolicy.valueOf(System.getProperty(WAIT_POLICY_PROPERTY, AsyncWaitPolicy.PARK.name())),
+					AsyncOverflowPolicy.valueOf(System.getProperty(OVERFLOW_POLICY_PROPERTY, AsyncOverflowPolicy.SUMMARIZE.name())));
+		}
+		Runtime.getRuntime().addShutdownHook(new Thread(new Runnable() {
+			@Override
+			public void run() {
+				AsyncLogDispatcher.stop();
+			}
+		}, "carbon-logging-async-shutdown"));
+	}
+
+	private AsyncLogDispatcher(int bufferSize, AsyncWaitPolicy waitPolicy, AsyncOverflowPolicy overflowPolicy) {
+		this.ring = new LogEventRing(bufferSize);
+		this.waitPolicy = waitPolicy;
+		this.overflowPolicy = overflowPolicy;
+		this.consumer = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				consume();
+			}
+		}, "carbon-logging-async");
+		this.consumer.setDaemon(true);
+	}
+
+	/**
+	 * Starts dispatching events asynchronously, replacing any dispatcher already running
+	 * @param bufferSize The number of events buffered, which must be a power of two
+	 * @param waitPolicy How the consumer waits for events
+	 * @param overflowPolicy What happens to events when the buffer is full
+	 */
+	public static synchronized void start(int bufferSize, AsyncWaitPolicy waitPolicy, AsyncOverflowPolicy overflowPolicy) {
+
+		AsyncLogDispatcher dispatcher = new AsyncLogDispatcher(bufferSize, waitPolicy, overflowPolicy);
+		stop();
+		dispatcher.consumer.start();
+		running = dispatcher;
+	}
+
+	/**
+	 * Stops dispatching asynchronously, once the events already buffered have been logged
+	 */
+	public static synchronized void stop() {
+
+		AsyncLogDispatcher dispatcher = running;
+		if (dispatcher == null) {
+			return;
+		}
+		running = null;
+		dispatcher.stopping = true;
+		LockSupport.unpark(dispatcher.consumer);
+		try {
+			dispatcher.consumer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	public static boolean isRunning() {
+		return running != null;
+	}
+
+	/**
+	 * Returns the number of events discarded by the running dispatcher because its buffer was full
+	 * @return The number of events discarded, or zero if no dispatcher is running
+	 */
+	public static long getDroppedCount() {
+		AsyncLogDispatcher dispatcher = running;
+		return dispatcher == null ? 0L : dispatcher.dropped.get();
+	}
+
+	/**
+	 * Hands an event to the running dispatcher
+	 * @return False if the event should be logged on the calling thread instead
+	 */
+	static boolean dispatch(Logger logger, Level level, String pattern, Object[] args) {
+
+		AsyncLogDispatcher dispatcher = running;
+		// Events raised while the consumer renders an event are logged directly, as it cannot wait on itself
+		if (dispatcher == null || Thread.currentThread() == dispatcher.consumer) {
+			return false;
+		}
+		return dispatcher.offer(logger, level, pattern, args);
+	}
+
+	private boolean offer(Logger logger, Level level, String pattern, Object[] args) {
+
+		offering.incrementAndGet();
+		try {
+			// Once stopping, the consumer may already have drained the ring for the last time
+			if (stopping) {
+				return false;
+			}
+			return publish(logger, level, pattern, args);
+		} finally {
+			offering.decrementAndGet();
+		}
+	}
+
+	private boolean publish(Logger logger, Level level, String pattern, Object[] args) {
+
+		String callerThread = Thread.currentThread().getName();
+		long timeMillis = System.currentTimeMillis();
+		Map<String, String> context = MDC.getCopyOfContextMap();
+		if (ring.offer(logger, level, pattern, args, context, callerThread, timeMillis)) {
+			return true;
+		}
+
+		if (overflowPolicy != AsyncOverflowPolicy.BLOCK) {
+			dropped.incrementAndGet();
+			return true;
+		}
+		for (int tries = 0; !ring.offer(logger, level, pattern, args, context, callerThread, timeMillis); tries++) {
+			if (stopping) {
+				return false;
+			}
+			idle(tries);
+		}
+		return true;
+	}
+
+	private void consume() {
+
+		long reportedDropped = 0L;
+		int tries = 0;
+		while (true) {
+			LogEventRing.Event event = ring.peek();
+			if (event == null) {
+				if (overflowPolicy == AsyncOverflowPolicy.SUMMARIZE) {
+					reportedDropped = reportDropped(reportedDropped);
+				}
+				if (stopping && offering.get() == 0) {
+					// No producer can publish any more, so anything left is drained before returning
+					if (ring.peek() == null) {
+						return;
+					}
+					continue;
+				}
+				idle(tries++);
+				continue;
+			}
+			tries = 0;
+			try {
+				if (event.getContext() != null) {
+					MDC.setContextMap(event.getContext());
+				}
+				MDC.put(CALLER_THREAD_KEY, event.getCallerThread());
+				MDC.put(EVENT_TIME_KEY, Long.toString(event.getTimeMillis()));
+				LoggingUtils.doLogNow(event.getLogger(), event.getLevel(), event.getPattern(), event.getArgs());
+			} catch (RuntimeException e) {
+				LOGGER.warn("Could not log event", e);
+			} finally {
+				MDC.clear();
+				ring.release();
+			}
+		}
+	}
+
+	private long reportDropped(long reportedDropped) {
+
+		long total = dropped.get();
+		if (total != reportedDropped) {
+			LOGGER.warn("{} log events were discarded because the asynchronous buffer was full", Long.valueOf(total - reportedDropped));
+		}
+		return total;
+	}
+
+	private void idle(int tries) {
+
+		if (waitPolicy == AsyncWaitPolicy.SPIN || tries < SPIN_TRIES) {
+			return;
+		}
+		if (waitPolicy == AsyncWaitPolicy.YIELD) {
+			Thread.yield();
+		} else {
+			LockSupport.parkNanos(PARK_NANOS);
+		}
+	}
+}
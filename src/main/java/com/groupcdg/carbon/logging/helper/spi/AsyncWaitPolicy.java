@@ -0,0 +1,38 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+/**
+ * How the {@link AsyncLogDispatcher} consumer thread waits for events when its buffer is empty,
+ * and how a caller waits for a free slot under {@link AsyncOverflowPolicy#BLOCK}
+ */
+public enum AsyncWaitPolicy {
+
+	/**
+	 * Spin briefly, then park for short intervals. This is the default, and uses no CPU while idle.
+	 */
+	PARK,
+
+	/**
+	 * Spin briefly, then yield the processor between checks
+	 */
+	YIELD,
+
+	/**
+	 * Spin continuously, occupying a processor for the lowest latency
+	 */
+	SPIN
+}
@@ -17,6 +17,7 @@ package com.groupcdg.carbon.logging.helper.spi;
 
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.constructStackTrace;
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.doLog;
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.renderFields;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,6 +31,26 @@ public class ExceptionHelper {
 	}
 
     public static void logAfterThrowing(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, Class<? extends Throwable>[] exceptionClasses, Class<? extends Throwable>[] ignoredExceptionClasses, Throwable throwable, boolean printStackTrace, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+        logAfterThrowing(logger, targetClass, methodName, paramNames, params, levelToUse, exceptionClasses, ignoredExceptionClasses, throwable, printStackTrace, LogRateLimiter.unlimited(), toStringStrategy, includeStartAndEndMarkers);
+    }
+
+    /**
+     * Logs an exception thrown from a method unless the given rate limiter has no tokens left, in which
+     * case the event is counted as suppressed
+     */
+    public static void logAfterThrowing(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, Class<? extends Throwable>[] exceptionClasses, Class<? extends Throwable>[] ignoredExceptionClasses, Throwable throwable, boolean printStackTrace, LogRateLimiter rateLimiter, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+        logAfterThrowing(logger, targetClass, methodName, paramNames, params, levelToUse, exceptionClasses, ignoredExceptionClasses, throwable, printStackTrace, rateLimiter, StackTraceRenderer.full(), toStringStrategy, includeStartAndEndMarkers);
+    }
+
+    /**
+     * Logs an exception thrown from a method unless the given rate limiter has no tokens left,
+     * rendering any stack trace with the given renderer
+     */
+    public static void logAfterThrowing(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, Class<? extends Throwable>[] exceptionClasses, Class<? extends Throwable>[] ignoredExceptionClasses, Throwable throwable, boolean printStackTrace, LogRateLimiter rateLimiter, StackTraceRenderer stackTraceRenderer, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+
+        if (!LoggingUtils.isLogEnabled(logger, levelToUse)) {
+            return;
+        }
 
         if (exceptionClasses.length > 0) {
             Class<? extends Throwable> throwableClass = throwable.getClass();
@@ -52,17 +73,14 @@ public class ExceptionHelper {
             }
         }
 
-        if (LoggingUtils.isLogEnabled(logger, levelToUse)) {
+        if (!rateLimiter.tryAcquire(logger, levelToUse)) {
+            return;
+        }
 
-            String stackTrace = constructStackTrace(throwable, printStackTrace);
+        String stackTrace = constructStackTrace(throwable, printStackTrace, stackTraceRenderer);
 
-            doLog(logger, targetClass,
-                    levelToUse,
-                    String.format("%s.%s(%s) threw %s with message {%s}%s", targetClass.getName(), methodName, toStringStrategy.fieldsToString(includeStartAndEndMarkers, paramNames, params),
-                            throwable.getClass().getName(), throwable.getMessage(),
-                            stackTrace
-                            ));
-        }
+        doLog(logger, targetClass, levelToUse, "{}.{}({}) threw {} with message {{}}{}", targetClass.getName(), methodName, renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params),
+                throwable.getClass().getName(), throwable.getMessage(), stackTrace);
     }
 
     public static final Logger getExceptionLogger() {
@@ -0,0 +1,132 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The loggers to which performance events are written, selected by how far the duration of a call
+ * exceeded its threshold. Each bucket covers durations up to and including its upper bound in
+ * milliseconds, with a final logger for durations above the highest bound. Loggers are resolved
+ * once, when the buckets are created.
+ * <p>
+ * The default buckets are those of Perf1Logger, Perf5Logger, Perf10Logger, Perf30Logger and
+ * PerfMaxLogger, for up to 1, 5, 10 and 30 seconds and above. They may be replaced with
+ * {@link #setDefault(LatencyBuckets)} or the system property {@value #DEFAULT_BUCKETS_PROPERTY},
+ * given in the form accepted by {@link #parse(String)}.
+ */
+public final class LatencyBuckets {
+
+	public static final String DEFAULT_BUCKETS_PROPERTY = "com.groupcdg.carbon.logging.latencyBuckets";
+
+	private static final String STANDARD_BUCKETS = "1000=Perf1Logger,5000=Perf5Logger,10000=Perf10Logger,30000=Perf30Logger,PerfMaxLogger";
+
+	private static volatile LatencyBuckets defaultBuckets = parse(System.getProperty(DEFAULT_BUCKETS_PROPERTY, STANDARD_BUCKETS));
+
+	private final long[] upperBoundsMillis;
+
+	private final Logger[] loggers;
+
+	private LatencyBuckets(long[] upperBoundsMillis, String[] loggerNames) {
+
+		if (loggerNames.length != upperBoundsMillis.length + 1) {
+			throw new IllegalStateException("Expected " + (upperBoundsMillis.length + 1) + " logger names for bucket bounds " + Arrays.toString(upperBoundsMillis) + " but found " + Arrays.toString(loggerNames));
+		}
+		for (int i = 1; i < upperBoundsMillis.length; i++) {
+			if (upperBoundsMillis[i] <= upperBoundsMillis[i - 1]) {
+				throw new IllegalStateException("Bucket bounds must be in increasing order: " + Arrays.toString(upperBoundsMillis));
+			}
+		}
+
+		this.upperBoundsMillis = upperBoundsMillis.clone();
+		this.loggers = new Logger[loggerNames.length];
+		for (int i = 0; i < loggerNames.length; i++) {
+			loggers[i] = LoggerFactory.getLogger(loggerNames[i]);
+		}
+	}
+
+	/**
+	 * Creates buckets from their upper bounds and logger names
+	 * @param upperBoundsMillis The inclusive upper bound of each bucket in milliseconds, in increasing order
+	 * @param loggerNames The logger name for each bucket, followed by the name for durations above the highest bound
+	 * @return The buckets
+	 */
+	public static LatencyBuckets of(long[] upperBoundsMillis, String[] loggerNames) {
+		return new LatencyBuckets(upperBoundsMillis, loggerNames);
+	}
+
+	/**
+	 * Creates buckets from a description such as
+	 * {@code 50=Perf50Logger,100=Perf100Logger,250=Perf250Logger,PerfMaxLogger}, giving the upper bound
+	 * in milliseconds and logger name of each bucket followed by the logger name for longer durations
+	 * @param description The description of the buckets
+	 * @return The buckets
+	 */
+	public static LatencyBuckets parse(String description) {
+
+		String[] entries = description.split(",");
+		List<String> loggerNames = new ArrayList<>();
+		long[] upperBoundsMillis = new long[entries.length - 1];
+		for (int i = 0; i < entries.length; i++) {
+			String entry = entries[i].trim();
+			int separator = entry.indexOf('=');
+			if (i < entries.length - 1) {
+				if (separator < 0) {
+					throw new IllegalStateException("Expected bound=loggerName but found: " + entry);
+				}
+				upperBoundsMillis[i] = Long.parseLong(entry.substring(0, separator).trim());
+				loggerNames.add(entry.substring(separator + 1).trim());
+			} else {
+				if (separator >= 0) {
+					throw new IllegalStateException("Expected the final entry to be a logger name only but found: " + entry);
+				}
+				loggerNames.add(entry);
+			}
+		}
+		return new LatencyBuckets(upperBoundsMillis, loggerNames.toArray(new String[loggerNames.size()]));
+	}
+
+	public static LatencyBuckets getDefault() {
+		return defaultBuckets;
+	}
+
+	public static void setDefault(LatencyBuckets buckets) {
+		if (buckets == null) {
+			throw new IllegalStateException("LatencyBuckets must not be null");
+		}
+		defaultBuckets = buckets;
+	}
+
+	/**
+	 * Selects the logger for a duration
+	 * @param millis The duration in milliseconds
+	 * @return The logger of the first bucket whose upper bound is at least the duration
+	 */
+	public Logger getLogger(long millis) {
+
+		// Bucket counts are small, so count the bounds exceeded rather than search
+		int index = 0;
+		for (long upperBound : upperBoundsMillis) {
+			index += millis > upperBound ? 1 : 0;
+		}
+		return loggers[index];
+	}
+}
@@ -0,0 +1,53 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
+
+/**
+ * A log message argument that renders a set of values with a ToStringStrategy when it is first
+ * formatted, and returns the same rendering thereafter
+ */
+final class LazyFields {
+
+	private final ToStringStrategy toStringStrategy;
+
+	private final boolean includeStartAndEndMarkers;
+
+	private final String[] names;
+
+	private final Object[] values;
+
+	private String rendered;
+
+	LazyFields(ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, String[] names, Object[] values) {
+		this.toStringStrategy = toStringStrategy;
+		this.includeStartAndEndMarkers = includeStartAndEndMarkers;
+		this.names = names;
+		this.values = values;
+	}
+
+	@Override
+	public String toString() {
+
+		String result = rendered;
+		if (result == null) {
+			result = toStringStrategy.fieldsToString(includeStartAndEndMarkers, names, values);
+			rendered = result;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,164 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import org.slf4j.Logger;
+
+import com.groupcdg.carbon.logging.annotation.Level;
+
+/**
+ * A bounded, lock-free ring of log events with many producers and a single consumer. Events are
+ * preallocated and reused. Each slot carries a sequence number: a producer claims a position with
+ * a compare-and-set on the tail and publishes the slot by advancing its sequence, and the consumer
+ * frees the slot by advancing the sequence a lap further.
+ */
+final class LogEventRing {
+
+	private final Event[] events;
+
+	private final AtomicLongArray sequences;
+
+	private final int mask;
+
+	private final AtomicLong tail = new AtomicLong();
+
+	// Only accessed by the consumer thread
+	private long head;
+
+	LogEventRing(int capacity) {
+
+		if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+			throw new IllegalStateException("Capacity must be a power of two but was " + capacity);
+		}
+		this.events = new Event[capacity];
+		this.sequences = new AtomicLongArray(capacity);
+		this.mask = capacity - 1;
+		for (int i = 0; i < capacity; i++) {
+			events[i] = new Event();
+			sequences.set(i, i);
+		}
+	}
+
+	/**
+	 * Publishes an event if a slot is free
+	 * @return False if the ring is full
+	 */
+	boolean offer(Logger logger, Level level, String pattern, Object[] args, Map<String, String> context, String callerThread, long timeMillis) {
+
+		while (true) {
+			long position = tail.get();
+			int index = (int) (position & mask);
+			long available = sequences.get(index) - position;
+			if (available == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					events[index].set(logger, level, pattern, args, context, callerThread, timeMillis);
+					sequences.lazySet(index, position + 1);
+					return true;
+				}
+			} else if (available < 0) {
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Returns the next published event without removing it, for the consumer thread only
+	 * @return The event, or null if none is published
+	 */
+	Event peek() {
+
+		int index = (int) (head & mask);
+		return sequences.get(index) == head + 1 ? events[index] : null;
+	}
+
+	/**
+	 * Frees the slot of the event returned by {@link #peek()}, for the consumer thread only
+	 */
+	void release() {
+
+		int index = (int) (head & mask);
+		events[index].clear();
+		sequences.lazySet(index, head + mask + 1);
+		head++;
+	}
+
+	/**
+	 * A log event captured on the calling thread, ready to be passed to SLF4J
+	 */
+	static final class Event {
+
+		private Logger logger;
+		private Level level;
+		private String pattern;
+		private Object[] args;
+		private Map<String, String> context;
+		private String callerThread;
+		private long timeMillis;
+
+		private void set(Logger logger, Level level, String pattern, Object[] args, Map<String, String> context, String callerThread, long timeMillis) {
+			this.logger = logger;
+			this.level = level;
+			this.pattern = pattern;
+			this.args = args;
+			this.context = context;
+			this.callerThread = callerThread;
+			this.timeMillis = timeMillis;
+		}
+
+		private void clear() {
+			this.logger = null;
+			this.pattern = null;
+			this.args = null;
+			this.context = null;
+			this.callerThread = null;
+		}
+
+		Logger getLogger() {
+			return logger;
+		}
+
+		Level getLevel() {
+			return level;
+		}
+
+		String getPattern() {
+			return pattern;
+		}
+
+		Object[] getArgs() {
+			return args;
+		}
+
+		/**
+		 * Returns the MDC of the calling thread when the event was captured, or null if it was empty
+		 */
+		Map<String, String> getContext() {
+			return context;
+		}
+
+		String getCallerThread() {
+			return callerThread;
+		}
+
+		long getTimeMillis() {
+			return timeMillis;
+		}
+	}
+}
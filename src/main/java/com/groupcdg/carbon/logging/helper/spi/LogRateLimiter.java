@@ -0,0 +1,186 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.doLog;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.groupcdg.carbon.logging.annotation.Level;
+
+/**
+ * A lock-free token bucket limiting how many events are logged for a method. The bucket holds up
+ * to one second's worth of events and refills continuously; it is held as the time at which it
+ * would next be full, so acquiring a token is a single compare-and-set.
+ * <p>
+ * Events that are refused are counted, and each limiter that refused events is reported
+ * periodically as "N similar events suppressed" to the logger and level of the last refused
+ * event. The report interval defaults to 60 seconds and may be set with the system property
+ * {@value #REPORT_INTERVAL_PROPERTY}, where a value of zero or less disables reporting. Limiters
+ * are only weakly reachable from the reporter, so those of discarded configurations, for example
+ * of classes that have been unloaded, can be collected.
+ */
+public final class LogRateLimiter {
+
+	public static final String REPORT_INTERVAL_PROPERTY = "com.groupcdg.carbon.logging.suppressionReportIntervalSeconds";
+
+	private static final long REPORT_INTERVAL_SECONDS = Long.getLong(REPORT_INTERVAL_PROPERTY, 60L).longValue();
+
+	private static final LogRateLimiter UNLIMITED = new LogRateLimiter("unlimited", 0);
+
+	private static final Set<LogRateLimiter> ALL_LIMITERS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<LogRateLimiter, Boolean>()));
+
+	private static final AtomicBoolean REPORTER_STARTED = new AtomicBoolean();
+
+	private final String name;
+
+	private final long nanosPerEvent;
+
+	private final long burstNanos;
+
+	private final AtomicLong fullAt = new AtomicLong(Long.MIN_VALUE);
+
+	private final AtomicLong suppressed = new AtomicLong();
+
+	private volatile Logger lastLogger;
+
+	private volatile Level lastLevel;
+
+	private LogRateLimiter(String name, int eventsPerSecond) {
+		this.name = name;
+		this.nanosPerEvent = eventsPerSecond > 0 ? TimeUnit.SECONDS.toNanos(1) / eventsPerSecond : 0L;
+		this.burstNanos = TimeUnit.SECONDS.toNanos(1);
+	}
+
+	/**
+	 * Creates a limiter
+	 * @param name The name of the method or logger being limited, used when reporting suppressed events
+	 * @param eventsPerSecond The number of events logged per second, or zero or less for no limit
+	 * @return The limiter
+	 */
+	public static LogRateLimiter of(String name, int eventsPerSecond) {
+
+		if (eventsPerSecond <= 0) {
+			return UNLIMITED;
+		}
+		LogRateLimiter limiter = new LogRateLimiter(name, eventsPerSecond);
+		ALL_LIMITERS.add(limiter);
+		startReporter();
+		return limiter;
+	}
+
+	/**
+	 * Returns a limiter that permits every event
+	 * @return The limiter
+	 */
+	public static LogRateLimiter unlimited() {
+		return UNLIMITED;
+	}
+
+	/**
+	 * Takes a token for an event about to be logged, or counts the event as suppressed if none remain
+	 * @param logger The logger the event would be written to
+	 * @param levelToUse The level the event would be written at
+	 * @return True if the event should be logged
+	 */
+	public boolean tryAcquire(Logger logger, Level levelToUse) {
+
+		if (nanosPerEvent == 0L) {
+			return true;
+		}
+
+		long now = System.nanoTime();
+		while (true) {
+			long current = fullAt.get();
+			// An empty or long idle bucket is full now
+			long base = current == Long.MIN_VALUE || current - now < 0 ? now : current;
+			long next = base + nanosPerEvent;
+			if (next - now > burstNanos) {
+				lastLogger = logger;
+				lastLevel = levelToUse;
+				suppressed.incrementAndGet();
+				return false;
+			}
+			if (fullAt.compareAndSet(current, next)) {
+				return true;
+			}
+		}
+	}
+
+	/**
+	 * Logs the number of events suppressed by each limiter since the previous report
+	 */
+	public static void report() {
+
+		// Copied so that the set is not locked while logging
+		List<LogRateLimiter> limiters;
+		synchronized (ALL_LIMITERS) {
+			limiters = new ArrayList<>(ALL_LIMITERS);
+		}
+		for (LogRateLimiter limiter : limiters) {
+			limiter.reportSuppressed();
+		}
+	}
+
+	private void reportSuppressed() {
+
+		long count = suppressed.getAndSet(0L);
+		Logger logger = lastLogger;
+		Level level = lastLevel;
+		if (count > 0 && logger != null && LoggingUtils.isLogEnabled(logger, level)) {
+			doLog(logger, null, level, "{} similar events suppressed for {}", count, name);
+		}
+	}
+
+	private static void startReporter() {
+
+		if (REPORT_INTERVAL_SECONDS <= 0 || !REPORTER_STARTED.compareAndSet(false, true)) {
+			return;
+		}
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "carbon-logging-suppression-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					report();
+				} catch (RuntimeException e) {
+					LoggerFactory.getLogger(LogRateLimiter.class).warn("Could not report suppressed events", e);
+				}
+			}
+		}, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+}
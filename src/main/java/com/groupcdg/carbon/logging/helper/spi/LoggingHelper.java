@@ -17,6 +17,7 @@ package com.groupcdg.carbon.logging.helper.spi;
 
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.constructStackTrace;
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.doLog;
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.renderFields;
 
 import org.slf4j.Logger;
 
@@ -25,6 +26,8 @@ import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
 
 public class LoggingHelper {
 
+	private static final String[] RETURN_VALUE_NAMES = new String[] {"returnValue"};
+
 	private LoggingHelper() {
 	}
 
@@ -33,7 +36,7 @@ public class LoggingHelper {
         if (LoggingUtils.isLogEnabled(logger, levelToUse)) {
 
             if ((params != null) && (params.length != 0) && (logArgs)) {
-                doLog(logger, targetClass, levelToUse, "Before {}({})", methodName, toStringStrategy.fieldsToString(includeStartAndEndMarkers, paramNames, params));
+                doLog(logger, targetClass, levelToUse, "Before {}({})", methodName, renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params));
             } else {
                 doLog(logger, targetClass, levelToUse, "Before {}()", methodName);
             }
@@ -41,8 +44,24 @@ public class LoggingHelper {
     }
 
     public static void logAfterThrowing(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, boolean logExceptions, Class<? extends Throwable>[] exceptionClasses, Class<? extends Throwable>[] ignoredExceptionClasses, Throwable throwable, boolean printStackTrace, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+        logAfterThrowing(logger, targetClass, methodName, paramNames, params, levelToUse, logExceptions, exceptionClasses, ignoredExceptionClasses, throwable, printStackTrace, LogRateLimiter.unlimited(), toStringStrategy, includeStartAndEndMarkers);
+    }
+
+    /**
+     * Logs an exception thrown from a method unless the given rate limiter has no tokens left, in which
+     * case the event is counted as suppressed
+     */
+    public static void logAfterThrowing(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, boolean logExceptions, Class<? extends Throwable>[] exceptionClasses, Class<? extends Throwable>[] ignoredExceptionClasses, Throwable throwable, boolean printStackTrace, LogRateLimiter rateLimiter, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+        logAfterThrowing(logger, targetClass, methodName, paramNames, params, levelToUse, logExceptions, exceptionClasses, ignoredExceptionClasses, throwable, printStackTrace, rateLimiter, StackTraceRenderer.full(), toStringStrategy, includeStartAndEndMarkers);
+    }
 
-        if (!logExceptions) {
+    /**
+     * Logs an exception thrown from a method unless the given rate limiter has no tokens left,
+     * rendering any stack trace with the given renderer
+     */
+    public static void logAfterThrowing(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, boolean logExceptions, Class<? extends Throwable>[] exceptionClasses, Class<? extends Throwable>[] ignoredExceptionClasses, Throwable throwable, boolean printStackTrace, LogRateLimiter rateLimiter, StackTraceRenderer stackTraceRenderer, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+
+        if (!logExceptions || !LoggingUtils.isLogEnabled(logger, levelToUse)) {
             return;
         }
 
@@ -67,31 +86,27 @@ public class LoggingHelper {
             }
         }
 
-        if (LoggingUtils.isLogEnabled(logger, levelToUse)) {
+        if (!rateLimiter.tryAcquire(logger, levelToUse)) {
+            return;
+        }
 
-            String stackTrace = constructStackTrace(throwable, printStackTrace);
+        String stackTrace = constructStackTrace(throwable, printStackTrace, stackTraceRenderer);
 
-            doLog(logger, targetClass,
-                    levelToUse,
-                    String.format("%s(%s) threw %s with message {%s}%s", methodName, toStringStrategy.fieldsToString(includeStartAndEndMarkers, paramNames, params),
-                            throwable.getClass().getName(), throwable.getMessage(), stackTrace));
-        }
+        doLog(logger, targetClass, levelToUse, "{}({}) threw {} with message {{}}{}", methodName, renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params),
+                throwable.getClass().getName(), throwable.getMessage(), stackTrace);
     }
 
     public static void logAfter(Logger logger, Class<?> targetClass, String methodName, Class<?> returnType, Level levelToUse, boolean logReturning, boolean logReturnValue, Object returnValue, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
 
-        if (!logReturning && !logReturnValue) {
+        if ((!logReturning && !logReturnValue) || !LoggingUtils.isLogEnabled(logger, levelToUse)) {
             return;
         }
 
-        if (LoggingUtils.isLogEnabled(logger, levelToUse)) {
-
-            if (returnType.getName().compareTo("void") == 0 || !logReturnValue) {
-                doLog(logger, targetClass, levelToUse, "After  {}() =>", methodName);
-                return;
-            }
+        if (returnType == void.class || !logReturnValue) {
+            doLog(logger, targetClass, levelToUse, "After  {}() =>", methodName);
+            return;
         }
 
-        doLog(logger, targetClass, levelToUse, "After  {}() => {}", methodName, toStringStrategy.fieldsToString(includeStartAndEndMarkers, new String[]{"returnValue"}, new Object[] {returnValue}));
+        doLog(logger, targetClass, levelToUse, "After  {}() => {}", methodName, renderFields(toStringStrategy, includeStartAndEndMarkers, RETURN_VALUE_NAMES, new Object[] {returnValue}));
     }
 }
@@ -15,16 +15,17 @@
  */
 package com.groupcdg.carbon.logging.helper.spi;
 
-import java.io.PrintWriter;
-import java.io.StringWriter;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Field;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.Parameter;
 import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.math.BigInteger;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 import org.apache.commons.lang3.builder.ToStringStyle;
 import org.slf4j.Logger;
@@ -59,26 +60,174 @@ public class LoggingUtils {
 		}
 	}
 
+	private static final ClassValue<Logger> LOGGERS = new ClassValue<Logger>() {
+		@Override
+		protected Logger computeValue(Class<?> type) {
+			return LoggerFactory.getLogger(type);
+		}
+	};
+
+	/**
+	 * The prefix of the names of the proxy classes generated by
+	 * {@link com.groupcdg.carbon.logging.bytecode.spi.BytecodeFactory}, which like JDK proxies
+	 * stand for their first interface
+	 */
+	private static final String GENERATED_PROXY_PREFIX = "com.groupcdg.carbon.logging.bytecode.spi.$CarbonProxy";
+
+	private static final ClassValue<Class<?>> ACTUAL_TYPES = new ClassValue<Class<?>>() {
+		@Override
+		protected Class<?> computeValue(Class<?> type) {
+
+			Class<?> actualType;
+			if (Proxy.isProxyClass(type) || type.getName().startsWith(GENERATED_PROXY_PREFIX)) {
+				actualType = type.getInterfaces()[0];
+			}
+			else {
+				actualType = type;
+				while (actualType.getSimpleName().contains("$$EnhancerByCGLIB$$")) {
+					actualType = actualType.getSuperclass();
+				}
+			}
+			return actualType;
+		}
+	};
+
+    /**
+     * The system property from which the initial {@link RenderPolicy} is read, as by {@link RenderPolicy#parse(String)}
+     */
+    public static final String RENDER_POLICY_PROPERTY = "com.groupcdg.carbon.logging.renderPolicy";
+
+    private static volatile RenderPolicy renderPolicy = RenderPolicy.parse(System.getProperty(RENDER_POLICY_PROPERTY));
+
+	private static final ClassValue<Boolean> IMMUTABLE_TYPES = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			return Boolean.valueOf(type == String.class || type == Boolean.class || type == Character.class
+					|| type == Byte.class || type == Short.class || type == Integer.class || type == Long.class
+					|| type == Float.class || type == Double.class || type == BigInteger.class || type == BigDecimal.class
+					|| type == UUID.class || type == Class.class || Enum.class.isAssignableFrom(type));
+		}
+	};
+
     private LoggingUtils() {
     }
 
+    public static final RenderPolicy getRenderPolicy() {
+        return renderPolicy;
+    }
+
+    public static final void setRenderPolicy(RenderPolicy policy) {
+        if (policy == null) {
+            throw new IllegalArgumentException("RenderPolicy must not be null");
+        }
+        renderPolicy = policy;
+    }
+
+    /**
+     * Produces a log message argument for the given values according to the current
+     * {@link RenderPolicy}. This is either the rendered String, or an object that renders the values
+     * when it is formatted.
+     * @param toStringStrategy The strategy with which to render the values
+     * @param includeStartAndEndMarkers Whether to include the strategy's start and end markers
+     * @param names The value names, or null
+     * @param values The values to render
+     * @return An object whose toString() gives the rendered values
+     */
+    public static final Object renderFields(ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, String[] names, Object[] values) {
+
+        RenderPolicy policy = renderPolicy;
+        if (policy == RenderPolicy.EAGER && AsyncLogDispatcher.isRunning()) {
+            // Leave values that cannot change to be rendered by the dispatcher's consumer thread
+            policy = RenderPolicy.LAZY_IMMUTABLE;
+        }
+
+        switch (policy) {
+        case LAZY:
+            return new LazyFields(toStringStrategy, includeStartAndEndMarkers, names, values.clone());
+        case LAZY_IMMUTABLE:
+            if (isImmutable(values)) {
+                return new LazyFields(toStringStrategy, includeStartAndEndMarkers, names, values.clone());
+            }
+            return toStringStrategy.fieldsToString(includeStartAndEndMarkers, names, values);
+        case EAGER:
+        default:
+            return toStringStrategy.fieldsToString(includeStartAndEndMarkers, names, values);
+        }
+    }
+
+    private static boolean isImmutable(Object[] values) {
+
+        for (Object next : values) {
+            if (next != null && !IMMUTABLE_TYPES.get(next.getClass()).booleanValue()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public static final Logger getLogger(Class<? extends Object> clazz) {
-        return LoggerFactory.getLogger(clazz);
+        return LOGGERS.get(clazz);
     }
 
+    /**
+     * Renders the stack trace to be appended to a log message. Stack traces are rendered in full
+     * unless deduplication is enabled with {@value StackTraceCache#WINDOW_PROPERTY}, in which case
+     * repeated exceptions are rendered in full only once in each window, see {@link StackTraceCache}.
+     * @param throwable The throwable
+     * @param printStackTrace Whether the stack trace is required
+     * @return The stack trace, or an empty String if not required
+     */
     public static final String constructStackTrace(Throwable throwable, boolean printStackTrace) {
+        return constructStackTrace(throwable, printStackTrace, StackTraceRenderer.full());
+    }
+
+    /**
+     * Renders the stack trace to be appended to a log message with the given renderer
+     * @param throwable The throwable
+     * @param printStackTrace Whether the stack trace is required
+     * @param renderer The renderer
+     * @return The stack trace, or an empty String if not required
+     */
+    public static final String constructStackTrace(Throwable throwable, boolean printStackTrace, StackTraceRenderer renderer) {
 
     	String stackTrace = "";
         if (printStackTrace == true) {
-            StringWriter sw = new StringWriter();
-            PrintWriter pWriter = new PrintWriter(sw);
-            throwable.printStackTrace(pWriter);
-            stackTrace = System.getProperty("line.separator") + sw.toString();
+            stackTrace = StackTraceCache.render(throwable, renderer);
         }
         return stackTrace;
     }
 
+    /**
+     * Formats a duration in nanoseconds as milliseconds to microsecond precision, e.g. 0.350
+     * @param nanos The duration in nanoseconds
+     * @return The formatted duration
+     */
+    public static final String formatNanosAsMillis(long nanos) {
+
+        long micros = nanos / 1000;
+        long fraction = Math.abs(micros % 1000);
+
+        StringBuilder result = new StringBuilder(16);
+        if (micros < 0) {
+            result.append('-');
+        }
+        result.append(Math.abs(micros / 1000)).append('.');
+        if (fraction < 100) {
+            result.append('0');
+        }
+        if (fraction < 10) {
+            result.append('0');
+        }
+        return result.append(fraction).toString();
+    }
+
     public static final void doLog(Logger logger, Class<?> clazz, Level logLevel, String pattern, Object... args) {
+        if (!AsyncLogDispatcher.dispatch(logger, logLevel, pattern, args)) {
+            doLogNow(logger, logLevel, pattern, args);
+        }
+    }
+
+    static final void doLogNow(Logger logger, Level logLevel, String pattern, Object[] args) {
         switch (logLevel) {
         case ERROR:
             logger.error(pattern, args);
@@ -178,18 +327,27 @@ public class LoggingUtils {
 	}
 
 	public static Class<?> determineActualType(Object proxy) {
+		return ACTUAL_TYPES.get(proxy.getClass());
+	}
+
+	/**
+	 * Resolves the method of the target class that implements a method called through one of its
+	 * interfaces, since annotations on the implementation are not visible through the interface
+	 * @param method The method as called through the proxy
+	 * @param targetClass The class of the object being proxied, or null if it is not known
+	 * @return The implementing method, or the given method if the target class has no public method
+	 * with the same signature
+	 */
+	public static Method determineTargetMethod(Method method, Class<?> targetClass) {
 
-		Class<?> actualType;
-		if (Proxy.isProxyClass(proxy.getClass())) {
-			actualType = proxy.getClass().getInterfaces()[0];
+		if (targetClass == null || method.getDeclaringClass() == targetClass) {
+			return method;
 		}
-		else {
-			actualType = proxy.getClass();
-			while (actualType.getSimpleName().contains("$$EnhancerByCGLIB$$")) {
-				actualType = actualType.getSuperclass();
-			}
+		try {
+			return targetClass.getMethod(method.getName(), method.getParameterTypes());
+		} catch (NoSuchMethodException | SecurityException e) {
+			return method;
 		}
-		return actualType;
 	}
 
 	public static boolean matchMethod(Method method, Method[] matchMethods) {
@@ -16,9 +16,11 @@
 package com.groupcdg.carbon.logging.helper.spi;
 
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.doLog;
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.formatNanosAsMillis;
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.renderFields;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 
 import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
 
 import com.groupcdg.carbon.logging.annotation.Level;
 import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
@@ -38,24 +40,41 @@ public class PerformanceHelper {
 
             if (params.length != 0 && logArgs) {
                 doLog(logger, targetClass, levelToUse, "Execution of {}.{}({}) took {} milliseconds", targetClass.getName(), methodName,
-                		toStringStrategy.fieldsToString(includeStartAndEndMarkers, paramNames, params), duration);
+                		renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params), duration);
             } else {
                 doLog(logger, targetClass, levelToUse, "Execution of {}.{}() took {} milliseconds", targetClass.getName(), methodName, duration);
             }
         }
     }
 
-    public static final Logger getLogger(Class<? extends Object> clazz, long millis) {
+    /**
+     * Logs the execution time of a method timed in nanoseconds. The duration is reported in
+     * milliseconds to microsecond precision.
+     */
+    public static void logAfterNanos(Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, boolean logArgs, long durationNanos, long thresholdNanos, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+        logAfterNanos(targetClass, methodName, paramNames, params, levelToUse, logArgs, durationNanos, thresholdNanos, LatencyBuckets.getDefault(), toStringStrategy, includeStartAndEndMarkers);
+    }
+
+    /**
+     * Logs the execution time of a method timed in nanoseconds to the logger of the given buckets
+     * selected by how far the duration exceeded the threshold
+     */
+    public static void logAfterNanos(Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, boolean logArgs, long durationNanos, long thresholdNanos, LatencyBuckets buckets, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+
+        Logger logger = buckets.getLogger(NANOSECONDS.toMillis(durationNanos - thresholdNanos));
+
+        if (LoggingUtils.isLogEnabled(logger, levelToUse)) {
 
-        if (millis <= 1000) {
-            return LoggerFactory.getLogger("Perf1Logger");
-        } else if (millis <= 5000) {
-            return LoggerFactory.getLogger("Perf5Logger");
-        } else if (millis <= 10000) {
-            return LoggerFactory.getLogger("Perf10Logger");
-        } else if (millis <= 30000) {
-            return LoggerFactory.getLogger("Perf30Logger");
+            if (params != null && params.length != 0 && logArgs) {
+                doLog(logger, targetClass, levelToUse, "Execution of {}.{}({}) took {} milliseconds", targetClass.getName(), methodName,
+                		renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params), formatNanosAsMillis(durationNanos));
+            } else {
+                doLog(logger, targetClass, levelToUse, "Execution of {}.{}() took {} milliseconds", targetClass.getName(), methodName, formatNanosAsMillis(durationNanos));
+            }
         }
-        return LoggerFactory.getLogger("PerfMaxLogger");
+    }
+
+    public static final Logger getLogger(Class<? extends Object> clazz, long millis) {
+        return LatencyBuckets.getDefault().getLogger(millis);
     }
 }
@@ -16,6 +16,8 @@
 package com.groupcdg.carbon.logging.helper.spi;
 
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.doLog;
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.formatNanosAsMillis;
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.renderFields;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -36,13 +38,30 @@ public class RecordingHelper {
 
             if (params.length != 0 && logArgs) {
                 doLog(logger, targetClass, levelToUse, "Execution of {}.{}({}) took {} milliseconds", targetClass.getName(), methodName,
-                		toStringStrategy.fieldsToString(includeStartAndEndMarkers, paramNames, params), duration);
+                		renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params), duration);
             } else {
                 doLog(logger, targetClass, levelToUse, "Execution of {}.{}() took {} milliseconds", targetClass.getName(), methodName, duration);
             }
         }
     }
 
+    /**
+     * Logs the execution time of a method timed in nanoseconds. The duration is reported in
+     * milliseconds to microsecond precision.
+     */
+    public static void logAfterNanos(Logger logger, Class<?> targetClass, String methodName, String[] paramNames, Object[] params, Level levelToUse, boolean logArgs, long durationNanos, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
+
+        if (LoggingUtils.isLogEnabled(logger, levelToUse)) {
+
+            if (params != null && params.length != 0 && logArgs) {
+                doLog(logger, targetClass, levelToUse, "Execution of {}.{}({}) took {} milliseconds", targetClass.getName(), methodName,
+                		renderFields(toStringStrategy, includeStartAndEndMarkers, paramNames, params), formatNanosAsMillis(durationNanos));
+            } else {
+                doLog(logger, targetClass, levelToUse, "Execution of {}.{}() took {} milliseconds", targetClass.getName(), methodName, formatNanosAsMillis(durationNanos));
+            }
+        }
+    }
+
     public static final Logger getLogger() {
 
         return LoggerFactory.getLogger("RecordLogger");
@@ -0,0 +1,69 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import java.util.Locale;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Determines when the helpers render method arguments and return values into log messages.
+ * Deferred rendering passes SLF4J an object that invokes the ToStringStrategy only when the
+ * message is formatted, which for an asynchronous appender happens on the appender thread and
+ * for a message rejected by a filter or appender threshold does not happen at all.
+ * <p>
+ * The policy is set with {@link LoggingUtils#setRenderPolicy(RenderPolicy)}, or with the system
+ * property {@value LoggingUtils#RENDER_POLICY_PROPERTY}.
+ */
+public enum RenderPolicy {
+
+	/**
+	 * Render on the calling thread before the message is logged. This is the default.
+	 */
+	EAGER,
+
+	/**
+	 * Defer rendering when every value is of a type known to be immutable, such as a String,
+	 * a primitive wrapper or an enum, and otherwise render on the calling thread
+	 */
+	LAZY_IMMUTABLE,
+
+	/**
+	 * Always defer rendering. The argument array is copied, but the arguments themselves are not,
+	 * so this is only safe where arguments are not modified once the method returns.
+	 */
+	LAZY;
+
+	/**
+	 * Reads a policy by name, ignoring case and surrounding whitespace. A missing or unknown name
+	 * gives {@link #EAGER}, with a warning for an unknown name, so that a mistyped system property
+	 * does not prevent logging from starting.
+	 * @param name The name of the policy, or null
+	 * @return The named policy, or EAGER
+	 */
+	public static RenderPolicy parse(String name) {
+
+		if (name == null || name.trim().isEmpty()) {
+			return EAGER;
+		}
+		try {
+			return valueOf(name.trim().toUpperCase(Locale.ROOT));
+		} catch (IllegalArgumentException e) {
+			LoggerFactory.getLogger(RenderPolicy.class).warn("Unknown render policy '{}', rendering with {}", name, EAGER);
+			return EAGER;
+		}
+	}
+}
@@ -0,0 +1,194 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Renders stack traces so that repeated exceptions are only printed in full once in each window.
+ * Exceptions are fingerprinted by the type and top stack frames of the throwable and each of its
+ * causes; messages are left out, since they often carry ids or values that differ between
+ * occurrences of the same failure. The first occurrence of a fingerprint within the window is rendered in full,
+ * prefixed by the fingerprint id; later occurrences give only the id and an occurrence count.
+ * <p>
+ * Deduplication is off unless the system property {@value #WINDOW_PROPERTY} gives a window in
+ * seconds greater than zero, so by default every stack trace is rendered in full, as by
+ * Throwable.printStackTrace(). At most {@value #MAX_ENTRIES} fingerprints are retained.
+ */
+public final class StackTraceCache {
+
+	public static final String WINDOW_PROPERTY = "com.groupcdg.carbon.logging.stackTraceWindowSeconds";
+
+	static final int MAX_ENTRIES = 1024;
+
+	private static final int FINGERPRINT_FRAMES = 8;
+
+	/**
+	 * The number of throwables in a cause chain that contribute to its fingerprint, which also
+	 * bounds the walk of a circular chain
+	 */
+	private static final int FINGERPRINT_CAUSES = 8;
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private static final StackTraceCache DEFAULT = new StackTraceCache(TimeUnit.SECONDS.toNanos(Long.getLong(WINDOW_PROPERTY, 0L).longValue()));
+
+	private final long windowNanos;
+
+	private final ConcurrentMap<Key, Entry> entries = new ConcurrentHashMap<>();
+
+	StackTraceCache(long windowNanos) {
+		this.windowNanos = windowNanos;
+	}
+
+	/**
+	 * Renders the stack trace of the given throwable for appending to a log message
+	 * @param throwable The throwable
+	 * @return The full stack trace, or a reference to one logged earlier in the window
+	 */
+	public static String render(Throwable throwable) {
+		return render(throwable, StackTraceRenderer.full());
+	}
+
+	/**
+	 * Renders the stack trace of the given throwable with the given renderer for appending to a log message
+	 * @param throwable The throwable
+	 * @param renderer The renderer
+	 * @return The rendered stack trace, or a reference to one logged earlier in the window
+	 */
+	public static String render(Throwable throwable, StackTraceRenderer renderer) {
+		return DEFAULT.format(throwable, renderer, System.nanoTime());
+	}
+
+	String format(Throwable throwable, StackTraceRenderer renderer, long now) {
+
+		if (windowNanos <= 0) {
+			return LINE_SEPARATOR + renderer.render(throwable);
+		}
+
+		long fingerprint = fingerprint(throwable);
+		// Traces rendered differently are counted separately, but share the fingerprint id
+		Key key = new Key(fingerprint, renderer);
+		Entry entry = entries.get(key);
+		if (entry == null) {
+			if (entries.size() >= MAX_ENTRIES) {
+				evict(now);
+			}
+			Entry created = new Entry(Long.toHexString(fingerprint), now);
+			entry = entries.putIfAbsent(key, created);
+			if (entry == null) {
+				return " [fingerprint " + created.id + "]" + LINE_SEPARATOR + renderer.render(throwable);
+			}
+		}
+
+		long occurrence = entry.occurrences.incrementAndGet();
+		long windowStart = entry.windowStart.get();
+		if (now - windowStart >= windowNanos && entry.windowStart.compareAndSet(windowStart, now)) {
+			return " [fingerprint " + entry.id + ", occurrence " + occurrence + "]" + LINE_SEPARATOR + renderer.render(throwable);
+		}
+		return " [fingerprint " + entry.id + ", occurrence " + occurrence + ", stack trace logged previously]";
+	}
+
+	/**
+	 * Computes a fingerprint from the type and top stack frames of a throwable and its causes
+	 * @param throwable The throwable
+	 * @return The fingerprint
+	 */
+	public static long fingerprint(Throwable throwable) {
+
+		long hash = 0L;
+		Throwable next = throwable;
+		for (int depth = 0; next != null && depth < FINGERPRINT_CAUSES; depth++) {
+			hash = 31 * hash + next.getClass().getName().hashCode();
+			StackTraceElement[] frames = next.getStackTrace();
+			int limit = Math.min(frames.length, FINGERPRINT_FRAMES);
+			for (int i = 0; i < limit; i++) {
+				StackTraceElement frame = frames[i];
+				hash = 31 * hash + frame.getClassName().hashCode();
+				hash = 31 * hash + frame.getMethodName().hashCode();
+				hash = 31 * hash + frame.getLineNumber();
+			}
+			next = next.getCause() == next ? null : next.getCause();
+		}
+		// Spread the bits so that similar traces do not give similar ids
+		hash ^= hash >>> 33;
+		hash *= 0xff51afd7ed558ccdL;
+		hash ^= hash >>> 33;
+		return hash;
+	}
+
+	private synchronized void evict(long now) {
+
+		if (entries.size() < MAX_ENTRIES) {
+			return;
+		}
+		for (Iterator<Entry> values = entries.values().iterator(); values.hasNext();) {
+			if (now - values.next().windowStart.get() >= windowNanos) {
+				values.remove();
+			}
+		}
+		if (entries.size() >= MAX_ENTRIES) {
+			entries.clear();
+		}
+	}
+
+	private static final class Key {
+
+		private final long fingerprint;
+
+		private final StackTraceRenderer renderer;
+
+		private Key(long fingerprint, StackTraceRenderer renderer) {
+			this.fingerprint = fingerprint;
+			this.renderer = renderer;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (int) (fingerprint ^ (fingerprint >>> 32)) + renderer.hashCode();
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return fingerprint == other.fingerprint && renderer.equals(other.renderer);
+		}
+	}
+
+	private static final class Entry {
+
+		private final String id;
+
+		private final AtomicLong windowStart;
+
+		private final AtomicLong occurrences = new AtomicLong(1L);
+
+		private Entry(String id, long windowStart) {
+			this.id = id;
+			this.windowStart = new AtomicLong(windowStart);
+		}
+	}
+}
@@ -0,0 +1,256 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+
+/**
+ * Renders stack traces for log messages. The {@link #full()} renderer gives the output of
+ * Throwable.printStackTrace(). Other renderers follow the same layout, including eliding the
+ * frames a cause shares with its enclosing trace, but may also cap the number of frames shown for
+ * each cause and collapse runs of frames from filtered packages into a single line. These render
+ * into a StringBuilder reused by each thread. Renderers created with the same settings are equal.
+ */
+public final class StackTraceRenderer {
+
+	/**
+	 * The packages of the reflection, proxy, cglib, generated proxy and AspectJ frames that surround intercepted calls
+	 */
+	public static final String[] FRAMEWORK_PACKAGES = new String[] {
+		"java.lang.reflect.", "sun.reflect.", "jdk.internal.reflect.", "com.sun.proxy.", "jdk.proxy",
+		"net.sf.cglib.", "org.aspectj.",
+		"com.groupcdg.carbon.logging.proxy.", "com.groupcdg.carbon.logging.cglib.", "com.groupcdg.carbon.logging.bytecode.",
+		"com.groupcdg.carbon.logging.aspect."
+	};
+
+	/**
+	 * Fragments of the names of classes generated by cglib, which live in the package of the class they enhance
+	 */
+	private static final String[] GENERATED_CLASS_MARKERS = new String[] {
+		"$$EnhancerByCGLIB$$", "$$FastClassByCGLIB$$"
+	};
+
+	private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+	private static final int MAX_RETAINED_CAPACITY = 16384;
+
+	private static final StackTraceRenderer FULL = new StackTraceRenderer(0, new String[0], false);
+
+	private static final ThreadLocal<StringBuilder> BUILDERS = new ThreadLocal<StringBuilder>() {
+		@Override
+		protected StringBuilder initialValue() {
+			return new StringBuilder(1024);
+		}
+	};
+
+	private final int maxFramesPerCause;
+
+	private final String[] collapsedPackages;
+
+	private final boolean collapseGeneratedClasses;
+
+	private StackTraceRenderer(int maxFramesPerCause, String[] collapsedPackages, boolean collapseGeneratedClasses) {
+		this.maxFramesPerCause = maxFramesPerCause;
+		this.collapsedPackages = collapsedPackages.clone();
+		this.collapseGeneratedClasses = collapseGeneratedClasses;
+	}
+
+	/**
+	 * Returns the renderer that gives the output of Throwable.printStackTrace()
+	 * @return The renderer
+	 */
+	public static StackTraceRenderer full() {
+		return FULL;
+	}
+
+	/**
+	 * Creates a renderer
+	 * @param maxFramesPerCause The maximum number of frames shown for the throwable and each cause, or zero for no limit
+	 * @param collapseFrameworkFrames Whether to collapse the frames of {@link #FRAMEWORK_PACKAGES} and cglib generated classes
+	 * @return The renderer
+	 */
+	public static StackTraceRenderer of(int maxFramesPerCause, boolean collapseFrameworkFrames) {
+
+		if (maxFramesPerCause <= 0 && !collapseFrameworkFrames) {
+			return FULL;
+		}
+		return new StackTraceRenderer(Math.max(maxFramesPerCause, 0), collapseFrameworkFrames ? FRAMEWORK_PACKAGES : new String[0], collapseFrameworkFrames);
+	}
+
+	/**
+	 * Creates a renderer collapsing the frames of the given packages
+	 * @param maxFramesPerCause The maximum number of frames shown for the throwable and each cause, or zero for no limit
+	 * @param collapsedPackages The prefixes of the class names whose frames are collapsed
+	 * @return The renderer
+	 */
+	public static StackTraceRenderer of(int maxFramesPerCause, String... collapsedPackages) {
+		return new StackTraceRenderer(Math.max(maxFramesPerCause, 0), collapsedPackages, false);
+	}
+
+	/**
+	 * Renders the stack trace of a throwable and its causes
+	 * @param throwable The throwable
+	 * @return The rendered stack trace
+	 */
+	public String render(Throwable throwable) {
+
+		if (this == FULL) {
+			StringWriter sw = new StringWriter();
+			throwable.printStackTrace(new PrintWriter(sw));
+			return sw.toString();
+		}
+
+		StringBuilder builder = BUILDERS.get();
+		builder.setLength(0);
+		render(throwable, builder);
+		String result = builder.toString();
+		if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+			BUILDERS.remove();
+		}
+		return result;
+	}
+
+	/**
+	 * Renders the stack trace of a throwable and its causes into the given builder
+	 * @param throwable The throwable
+	 * @param builder The builder to append to
+	 */
+	public void render(Throwable throwable, StringBuilder builder) {
+
+		if (this == FULL) {
+			builder.append(render(throwable));
+			return;
+		}
+
+		Set<Throwable> seen = Collections.newSetFromMap(new IdentityHashMap<Throwable, Boolean>());
+		seen.add(throwable);
+
+		builder.append(throwable).append(LINE_SEPARATOR);
+		StackTraceElement[] trace = throwable.getStackTrace();
+		appendFrames(builder, trace, trace.length, "");
+
+		for (Throwable suppressed : throwable.getSuppressed()) {
+			appendEnclosed(builder, suppressed, trace, "Suppressed: ", "\t", seen);
+		}
+		Throwable cause = throwable.getCause();
+		if (cause != null) {
+			appendEnclosed(builder, cause, trace, "Caused by: ", "", seen);
+		}
+	}
+
+	private void appendEnclosed(StringBuilder builder, Throwable throwable, StackTraceElement[] enclosingTrace, String caption, String prefix, Set<Throwable> seen) {
+
+		if (!seen.add(throwable)) {
+			builder.append(prefix).append(caption).append("[CIRCULAR REFERENCE: ").append(throwable).append(']').append(LINE_SEPARATOR);
+			return;
+		}
+
+		StackTraceElement[] trace = throwable.getStackTrace();
+		int m = trace.length - 1;
+		int n = enclosingTrace.length - 1;
+		while (m >= 0 && n >= 0 && trace[m].equals(enclosingTrace[n])) {
+			m--;
+			n--;
+		}
+		int framesInCommon = trace.length - 1 - m;
+
+		builder.append(prefix).append(caption).append(throwable).append(LINE_SEPARATOR);
+		appendFrames(builder, trace, m + 1, prefix);
+		if (framesInCommon != 0) {
+			builder.append(prefix).append("\t... ").append(framesInCommon).append(" more").append(LINE_SEPARATOR);
+		}
+
+		for (Throwable suppressed : throwable.getSuppressed()) {
+			appendEnclosed(builder, suppressed, trace, "Suppressed: ", prefix + "\t", seen);
+		}
+		Throwable cause = throwable.getCause();
+		if (cause != null) {
+			appendEnclosed(builder, cause, trace, "Caused by: ", prefix, seen);
+		}
+	}
+
+	private void appendFrames(StringBuilder builder, StackTraceElement[] trace, int end, String prefix) {
+
+		int shown = 0;
+		int collapsed = 0;
+		for (int i = 0; i < end; i++) {
+			StackTraceElement frame = trace[i];
+			if (isCollapsed(frame)) {
+				collapsed++;
+				continue;
+			}
+			if (maxFramesPerCause > 0 && shown == maxFramesPerCause) {
+				builder.append(prefix).append("\t... ").append(end - i + collapsed).append(" frames omitted").append(LINE_SEPARATOR);
+				return;
+			}
+			appendCollapsed(builder, collapsed, prefix);
+			collapsed = 0;
+			builder.append(prefix).append("\tat ").append(frame).append(LINE_SEPARATOR);
+			shown++;
+		}
+		appendCollapsed(builder, collapsed, prefix);
+	}
+
+	private static void appendCollapsed(StringBuilder builder, int collapsed, String prefix) {
+		if (collapsed > 0) {
+			builder.append(prefix).append("\t... ").append(collapsed).append(collapsed == 1 ? " framework frame" : " framework frames").append(LINE_SEPARATOR);
+		}
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * (31 * maxFramesPerCause + Arrays.hashCode(collapsedPackages)) + (collapseGeneratedClasses ? 1 : 0);
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof StackTraceRenderer)) {
+			return false;
+		}
+		// The full renderer delegates to printStackTrace(), so is only equal to itself
+		StackTraceRenderer other = (StackTraceRenderer) obj;
+		return this != FULL && other != FULL
+				&& maxFramesPerCause == other.maxFramesPerCause
+				&& collapseGeneratedClasses == other.collapseGeneratedClasses
+				&& Arrays.equals(collapsedPackages, other.collapsedPackages);
+	}
+
+	private boolean isCollapsed(StackTraceElement frame) {
+
+		String className = frame.getClassName();
+		for (String collapsedPackage : collapsedPackages) {
+			if (className.startsWith(collapsedPackage)) {
+				return true;
+			}
+		}
+		if (collapseGeneratedClasses) {
+			for (String marker : GENERATED_CLASS_MARKERS) {
+				if (className.contains(marker)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+}
@@ -23,15 +23,20 @@ import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.obtainToString
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.groupcdg.carbon.logging.annotation.Level;
 import com.groupcdg.carbon.logging.annotation.LogExceptions;
+import com.groupcdg.carbon.logging.helper.spi.LogRateLimiter;
 import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
+import com.groupcdg.carbon.logging.helper.spi.StackTraceRenderer;
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
 import com.groupcdg.carbon.logging.tostring.ReflectionToStringStrategy;
 import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
 
-public class ExceptionMethodInterceptor implements MethodInterceptor {
+public class ExceptionMethodInterceptor implements MethodInterceptor, MethodMatcher {
 
 	private static final ExceptionMethodInterceptor ERROR = new ExceptionMethodInterceptor(new StaticConfiguration(Level.ERROR));
 	private static final ExceptionMethodInterceptor WARN = new ExceptionMethodInterceptor(new StaticConfiguration(Level.WARN));
@@ -59,14 +64,18 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 	public void interceptAfterThrowing(Object proxy, Method method, Object[] args, Object realTarget, Throwable cause,
 			Object interceptBeforeReturnObject) {
 
-		boolean matchedMethod = configuration.isMatchedMethod(method);
-		if (matchedMethod) {
+		Descriptor descriptor = configuration.getDescriptor(method);
+		if (descriptor != null) {
 			Class<?> proxiedInterface = LoggingUtils.determineActualType(proxy);
-			String[] paramNames = determineParameterNames(method.getParameters());
-			logAfterThrowing(getExceptionLogger(), proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.getLogExceptionTypes(method), configuration.getIgnoredExceptionTypes(method), cause, configuration.isPrintStackTrace(method), configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+			logAfterThrowing(getExceptionLogger(), proxiedInterface, method.getName(), descriptor.getParameterNames(), args, descriptor.getLevelToUse(), descriptor.getLogExceptionTypes(), descriptor.getIgnoredExceptionTypes(), cause, descriptor.isPrintStackTrace(), descriptor.getRateLimiter(), descriptor.getStackTraceRenderer(), descriptor.getToStringStrategy(), descriptor.isIncludeStartAndEndMarkers());
 		}
 	}
 
+	@Override
+	public boolean isMatchedMethod(Method method) {
+		return configuration.getDescriptor(method) != null;
+	}
+
 	public static ExceptionMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers) {
 		return new ExceptionMethodInterceptor(new StaticConfiguration(level, toStringStrategy, includeStartAndEndMarkers));
 	}
@@ -75,6 +84,14 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 		return new ExceptionMethodInterceptor(new StaticConfiguration(level, toStringStrategy, includeStartAndEndMarkers, printStackTrace, matchMethods));
 	}
 
+	public static ExceptionMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, boolean printStackTrace, int maxLoggedPerSecond, Method... matchMethods) {
+		return new ExceptionMethodInterceptor(new StaticConfiguration(level, toStringStrategy, includeStartAndEndMarkers, printStackTrace, maxLoggedPerSecond, matchMethods));
+	}
+
+	public static ExceptionMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, boolean printStackTrace, int maxLoggedPerSecond, StackTraceRenderer stackTraceRenderer, Method... matchMethods) {
+		return new ExceptionMethodInterceptor(new StaticConfiguration(level, toStringStrategy, includeStartAndEndMarkers, printStackTrace, maxLoggedPerSecond, stackTraceRenderer, matchMethods));
+	}
+
 	public static ExceptionMethodInterceptor of(Level level, ToStringStrategy toStringStrategy) {
 		return new ExceptionMethodInterceptor(new StaticConfiguration(level, toStringStrategy));
 	}
@@ -120,7 +137,19 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 
 		public boolean isPrintStackTrace(Method method);
 
+		public LogRateLimiter getRateLimiter(Method method);
+
+		public StackTraceRenderer getStackTraceRenderer(Method method);
+
 		public boolean isMatchedMethod(Method method);
+
+		/**
+		 * Resolves the complete configuration for a method. Implementations build the descriptor once and
+		 * return the same instance for later invocations.
+		 * @param method The intercepted method
+		 * @return The resolved Descriptor, or null if the method is not matched
+		 */
+		public Descriptor getDescriptor(Method method);
 	}
 
 	private static class StaticConfiguration implements Configuration {
@@ -139,8 +168,23 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 
 		private boolean printStackTrace = true;
 
+		private int maxLoggedPerSecond = 0;
+
+		private StackTraceRenderer stackTraceRenderer = StackTraceRenderer.full();
+
 		private Method[] matchMethods = null;
 
+		/**
+		 * Descriptors for the methods of each declaring class, held in a ClassValue so that the shared
+		 * configurations do not keep the classes they have intercepted reachable
+		 */
+		private final ClassValue<ConcurrentMap<Method, Descriptor>> descriptors = new ClassValue<ConcurrentMap<Method, Descriptor>>() {
+			@Override
+			protected ConcurrentMap<Method, Descriptor> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
 		private StaticConfiguration(Level levelToUse) {
 			this.levelToUse = levelToUse;
 		}
@@ -164,6 +208,16 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 			this.matchMethods = matchMethods;
 		}
 
+		private StaticConfiguration(Level levelToUse, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, boolean printStackTrace, int maxLoggedPerSecond, Method... matchMethods) {
+			this(levelToUse, toStringStrategy, includeStartAndEndMarkers, printStackTrace, matchMethods);
+			this.maxLoggedPerSecond = maxLoggedPerSecond;
+		}
+
+		private StaticConfiguration(Level levelToUse, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, boolean printStackTrace, int maxLoggedPerSecond, StackTraceRenderer stackTraceRenderer, Method... matchMethods) {
+			this(levelToUse, toStringStrategy, includeStartAndEndMarkers, printStackTrace, maxLoggedPerSecond, matchMethods);
+			this.stackTraceRenderer = stackTraceRenderer;
+		}
+
 		@Override
 		public Level getLevelToUse(Method method) {
 			return levelToUse;
@@ -194,21 +248,132 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 			return printStackTrace;
 		}
 
+		@Override
+		public LogRateLimiter getRateLimiter(Method method) {
+			Descriptor descriptor = getDescriptor(method);
+			return descriptor == null ? LogRateLimiter.unlimited() : descriptor.getRateLimiter();
+		}
+
+		@Override
+		public StackTraceRenderer getStackTraceRenderer(Method method) {
+			return stackTraceRenderer;
+		}
+
 		@Override
 		public boolean isMatchedMethod(Method method) {
 			return matchMethod(method, matchMethods);
 		}
+
+		@Override
+		public Descriptor getDescriptor(Method method) {
+
+			ConcurrentMap<Method, Descriptor> methodDescriptors = descriptors.get(method.getDeclaringClass());
+			Descriptor descriptor = methodDescriptors.get(method);
+			if (descriptor == null) {
+				if (!isMatchedMethod(method)) {
+					return null;
+				}
+				descriptor = new Descriptor(levelToUse, toStringStrategy, includeStartAndEndMarkers, logExceptionTypes, ignoredExceptionTypes, printStackTrace, LogRateLimiter.of(method.getDeclaringClass().getName() + "." + method.getName(), maxLoggedPerSecond), stackTraceRenderer, determineParameterNames(method.getParameters()));
+				Descriptor existing = methodDescriptors.putIfAbsent(method, descriptor);
+				if (existing != null) {
+					descriptor = existing;
+				}
+			}
+			return descriptor;
+		}
+	}
+
+	/**
+	 * The resolved exception logging configuration for a single method. Descriptors are immutable and are built
+	 * once per method so that logging an exception does not need to repeat annotation lookups.
+	 */
+	public static final class Descriptor {
+
+		private final Level levelToUse;
+		private final ToStringStrategy toStringStrategy;
+		private final boolean includeStartAndEndMarkers;
+		private final Class<? extends Throwable>[] logExceptionTypes;
+		private final Class<? extends Throwable>[] ignoredExceptionTypes;
+		private final boolean printStackTrace;
+		private final LogRateLimiter rateLimiter;
+		private final StackTraceRenderer stackTraceRenderer;
+		private final String[] parameterNames;
+
+		private Descriptor(Level levelToUse, ToStringStrategy toStringStrategy, boolean includeStartAndEndMarkers, Class<? extends Throwable>[] logExceptionTypes, Class<? extends Throwable>[] ignoredExceptionTypes, boolean printStackTrace, LogRateLimiter rateLimiter, StackTraceRenderer stackTraceRenderer, String[] parameterNames) {
+			this.levelToUse = levelToUse;
+			this.toStringStrategy = toStringStrategy;
+			this.includeStartAndEndMarkers = includeStartAndEndMarkers;
+			this.logExceptionTypes = logExceptionTypes;
+			this.ignoredExceptionTypes = ignoredExceptionTypes;
+			this.printStackTrace = printStackTrace;
+			this.rateLimiter = rateLimiter;
+			this.stackTraceRenderer = stackTraceRenderer;
+			this.parameterNames = parameterNames;
+		}
+
+		public Level getLevelToUse() {
+			return levelToUse;
+		}
+
+		public ToStringStrategy getToStringStrategy() {
+			return toStringStrategy;
+		}
+
+		public boolean isIncludeStartAndEndMarkers() {
+			return includeStartAndEndMarkers;
+		}
+
+		public Class<? extends Throwable>[] getLogExceptionTypes() {
+			return logExceptionTypes;
+		}
+
+		public Class<? extends Throwable>[] getIgnoredExceptionTypes() {
+			return ignoredExceptionTypes;
+		}
+
+		public boolean isPrintStackTrace() {
+			return printStackTrace;
+		}
+
+		public LogRateLimiter getRateLimiter() {
+			return rateLimiter;
+		}
+
+		public StackTraceRenderer getStackTraceRenderer() {
+			return stackTraceRenderer;
+		}
+
+		public String[] getParameterNames() {
+			return parameterNames;
+		}
 	}
 
 	private static class TargetAnnotationConfiguration implements Configuration {
 
+		/**
+		 * Stands in for methods that carry no @LogExceptions, since a ConcurrentMap cannot hold null
+		 */
+		@SuppressWarnings("unchecked")
+		private static final Descriptor NOT_MATCHED = new Descriptor(Level.NONE, null, false, new Class[0], new Class[0], false, LogRateLimiter.unlimited(), null, new String[0]);
+
+		/**
+		 * Descriptors for each method of a target class, held in a ClassValue so that they are released
+		 * with the class
+		 */
+		private static final ClassValue<ConcurrentMap<Method, Descriptor>> DESCRIPTORS = new ClassValue<ConcurrentMap<Method, Descriptor>>() {
+			@Override
+			protected ConcurrentMap<Method, Descriptor> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
 		private Class<?> targetType;
 
 		private TargetAnnotationConfiguration(Class<?> targetType) {
 			this.targetType = targetType;
 		}
 
-		private LogExceptions findLogExceptions(Class<?> targetType, Method method) {
+		private static LogExceptions findLogExceptions(Class<?> targetType, Method method) {
 			LogExceptions le = method.getAnnotation(LogExceptions.class);
 			if (le == null) {
 				le = targetType.getAnnotation(LogExceptions.class);
@@ -217,50 +382,86 @@ public class ExceptionMethodInterceptor implements MethodInterceptor {
 		}
 
 		@Override
-		public Level getLevelToUse(Method method) {
+		public Descriptor getDescriptor(Method method) {
+
+			ConcurrentMap<Method, Descriptor> methodDescriptors = DESCRIPTORS.get(targetType);
+			Descriptor descriptor = methodDescriptors.get(method);
+			if (descriptor == null) {
+				descriptor = resolveDescriptor(targetType, method);
+				Descriptor existing = methodDescriptors.putIfAbsent(method, descriptor);
+				if (existing != null) {
+					descriptor = existing;
+				}
+			}
+			return descriptor == NOT_MATCHED ? null : descriptor;
+		}
+
+		private static Descriptor resolveDescriptor(Class<?> targetType, Method method) {
+
 			LogExceptions logExceptions = findLogExceptions(targetType, method);
-			return logExceptions.level();
+			if (logExceptions == null) {
+				return NOT_MATCHED;
+			}
+
+			return new Descriptor(logExceptions.level(), obtainToStringStrategy(logExceptions.toStringStrategy(), logExceptions.toStringStrategyStyleName()), logExceptions.includeStartAndEndMarkers(),
+					logExceptions.logExceptionTypes(), logExceptions.ignoredExceptionTypes(), logExceptions.printStackTrace(),
+					LogRateLimiter.of(method.getDeclaringClass().getName() + "." + method.getName(), logExceptions.maxLoggedPerSecond()),
+					StackTraceRenderer.of(logExceptions.maxStackTraceFrames(), logExceptions.collapseFrameworkFrames()),
+					determineParameterNames(method.getParameters()));
+		}
+
+		private Descriptor requireDescriptor(Method method) {
+
+			Descriptor descriptor = getDescriptor(method);
+			if (descriptor == null) {
+				throw new IllegalStateException("Method " + method + " is not annotated with: " + LogExceptions.class);
+			}
+			return descriptor;
+		}
+
+		@Override
+		public Level getLevelToUse(Method method) {
+			return requireDescriptor(method).getLevelToUse();
 		}
 
 		@Override
 		public boolean isIncludeStartAndEndMarkers(Method method) {
-			LogExceptions logExceptions = findLogExceptions(targetType, method);
-			return logExceptions.includeStartAndEndMarkers();
+			return requireDescriptor(method).isIncludeStartAndEndMarkers();
 		}
 
 		@Override
 		public Class<? extends Throwable>[] getLogExceptionTypes(Method method) {
-			LogExceptions logExceptions = findLogExceptions(targetType, method);
-			return logExceptions.logExceptionTypes();
+			return requireDescriptor(method).getLogExceptionTypes();
 		}
 
 		@Override
 		public Class<? extends Throwable>[] getIgnoredExceptionTypes(Method method) {
-			LogExceptions logExceptions = findLogExceptions(targetType, method);
-			return logExceptions.ignoredExceptionTypes();
+			return requireDescriptor(method).getIgnoredExceptionTypes();
 		}
 
 		@Override
 		public boolean isPrintStackTrace(Method method) {
-			LogExceptions logExceptions = findLogExceptions(targetType, method);
-			return logExceptions.printStackTrace();
+			return requireDescriptor(method).isPrintStackTrace();
+		}
+
+		@Override
+		public LogRateLimiter getRateLimiter(Method method) {
+			return requireDescriptor(method).getRateLimiter();
+		}
+
+		@Override
+		public StackTraceRenderer getStackTraceRenderer(Method method) {
+			return requireDescriptor(method).getStackTraceRenderer();
 		}
 
 		@Override
 		public boolean isMatchedMethod(Method method) {
-			if (method.getAnnotation(LogExceptions.class) != null) {
-				return true;
-			} if (targetType.getAnnotation(LogExceptions.class) != null) {
-				return true;
-			} else {
-				return false;
-			}
+			return getDescriptor(method) != null;
 		}
 
 		@Override
 		public ToStringStrategy getToStringStrategy(Method method) {
-			LogExceptions logExceptions = findLogExceptions(targetType, method);
-			return obtainToStringStrategy(logExceptions.toStringStrategy(), logExceptions.toStringStrategyStyleName());
+			return requireDescriptor(method).getToStringStrategy();
 		}
 	}
-}
\ No newline at end of file
+}
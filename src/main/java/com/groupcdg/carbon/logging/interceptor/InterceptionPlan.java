@@ -0,0 +1,129 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.groupcdg.carbon.logging.annotation.Proxyable;
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+
+/**
+ * The interceptors applied to a class configured by discovery. The class, its public and protected
+ * methods and those of its superclasses are scanned once for annotations meta-annotated with
+ * {@link Proxyable}, and one interceptor is created for each annotation type found, in the order
+ * first encountered. Plans are cached per class, so every proxy for a class shares its interceptors
+ * and the per-method state they hold.
+ */
+public final class InterceptionPlan {
+
+	private static final MethodType OF_TYPE = MethodType.methodType(MethodInterceptor.class, Class.class, Annotation.class);
+
+	private static final ClassValue<InterceptionPlan> PLANS = new ClassValue<InterceptionPlan>() {
+		@Override
+		protected InterceptionPlan computeValue(Class<?> type) {
+			return create(type);
+		}
+	};
+
+	/**
+	 * The of(Class, Annotation) factory of each interceptor type, as required by {@link Proxyable}
+	 */
+	private static final ClassValue<MethodHandle> FACTORIES = new ClassValue<MethodHandle>() {
+		@Override
+		protected MethodHandle computeValue(Class<?> interceptorType) {
+			try {
+				Method ofMethod = interceptorType.getMethod("of", Class.class, Annotation.class);
+				if (!Modifier.isStatic(ofMethod.getModifiers())) {
+					throw new IllegalStateException(interceptorType + " does not provide a static of(Class, Annotation) method");
+				}
+				return MethodHandles.publicLookup().unreflect(ofMethod).asType(OF_TYPE);
+			} catch (NoSuchMethodException | IllegalAccessException e) {
+				throw new IllegalStateException(interceptorType + " does not provide a public of(Class, Annotation) method", e);
+			}
+		}
+	};
+
+	private final MethodInterceptor[] interceptors;
+
+	private InterceptionPlan(MethodInterceptor[] interceptors) {
+		this.interceptors = interceptors;
+	}
+
+	/**
+	 * Returns the plan for the given class
+	 * @param targetClass The class being proxied, as returned by
+	 * {@link com.groupcdg.carbon.logging.helper.spi.LoggingUtils#determineActualType(Object)}
+	 * @return The plan
+	 */
+	public static InterceptionPlan of(Class<?> targetClass) {
+		return PLANS.get(targetClass);
+	}
+
+	/**
+	 * Returns the interceptors to apply. The array is a copy, but the interceptors are shared by
+	 * all proxies for the class.
+	 * @return The interceptors
+	 */
+	public MethodInterceptor[] getInterceptors() {
+		return interceptors.clone();
+	}
+
+	private static InterceptionPlan create(Class<?> targetClass) {
+
+		// The first annotation found of each type is passed to the interceptor's of() method
+		Map<Class<? extends Annotation>, Annotation> proxyableAnnotations = new LinkedHashMap<>();
+		addProxyableAnnotations(targetClass.getAnnotations(), proxyableAnnotations);
+		for (Class<?> next = targetClass; next != null; next = next.getSuperclass()) {
+			for (Method method : next.getDeclaredMethods()) {
+				int modifiers = method.getModifiers();
+				if (Modifier.isPublic(modifiers) || Modifier.isProtected(modifiers)) {
+					addProxyableAnnotations(method.getAnnotations(), proxyableAnnotations);
+				}
+			}
+		}
+
+		MethodInterceptor[] interceptors = new MethodInterceptor[proxyableAnnotations.size()];
+		int i = 0;
+		for (Map.Entry<Class<? extends Annotation>, Annotation> next : proxyableAnnotations.entrySet()) {
+			Class<? extends MethodInterceptor> interceptorType = next.getKey().getAnnotation(Proxyable.class).interceptor();
+			try {
+				interceptors[i++] = (MethodInterceptor) FACTORIES.get(interceptorType).invokeExact(targetClass, next.getValue());
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException("Could not create " + interceptorType + " for " + targetClass, e);
+			}
+		}
+		return new InterceptionPlan(interceptors);
+	}
+
+	private static void addProxyableAnnotations(Annotation[] annotations, Map<Class<? extends Annotation>, Annotation> proxyableAnnotations) {
+
+		for (Annotation next : annotations) {
+			Class<? extends Annotation> annotationType = next.annotationType();
+			if (!proxyableAnnotations.containsKey(annotationType) && annotationType.isAnnotationPresent(Proxyable.class)) {
+				proxyableAnnotations.put(annotationType, next);
+			}
+		}
+	}
+}
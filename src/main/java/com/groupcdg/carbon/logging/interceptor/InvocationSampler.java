@@ -0,0 +1,107 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.groupcdg.carbon.logging.annotation.Sampling;
+
+/**
+ * Decides whether a given invocation of a method should be logged. Samplers for a rate of one
+ * log every invocation without doing any work. Samplers hold per-method state, so each method
+ * should have its own.
+ */
+public abstract class InvocationSampler {
+
+	private static final InvocationSampler ALWAYS = new InvocationSampler() {
+		@Override
+		public boolean sample() {
+			return true;
+		}
+	};
+
+	private InvocationSampler() {
+	}
+
+	/**
+	 * Returns a sampler selecting one in the given number of invocations
+	 * @param sampleRate The number of invocations for each one logged
+	 * @param sampling How invocations are selected
+	 * @return The sampler
+	 */
+	public static InvocationSampler of(int sampleRate, Sampling sampling) {
+
+		if (sampleRate < 1) {
+			throw new IllegalStateException("Sample rate must be at least 1 but was " + sampleRate);
+		}
+		if (sampleRate == 1) {
+			return ALWAYS;
+		}
+		switch (sampling) {
+		case RANDOM:
+			return new RandomSampler(sampleRate);
+		case EVERY_NTH:
+			return new EveryNthSampler(sampleRate);
+		default:
+			throw new IllegalStateException("Sampling " + sampling + " was not found");
+		}
+	}
+
+	/**
+	 * Returns a sampler that selects every invocation
+	 * @return The sampler
+	 */
+	public static InvocationSampler always() {
+		return ALWAYS;
+	}
+
+	/**
+	 * Determines whether the current invocation should be logged
+	 * @return True if the invocation should be logged
+	 */
+	public abstract boolean sample();
+
+	private static final class RandomSampler extends InvocationSampler {
+
+		private final int sampleRate;
+
+		private RandomSampler(int sampleRate) {
+			this.sampleRate = sampleRate;
+		}
+
+		@Override
+		public boolean sample() {
+			return ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+		}
+	}
+
+	private static final class EveryNthSampler extends InvocationSampler {
+
+		private final int sampleRate;
+
+		private final AtomicLong invocations = new AtomicLong();
+
+		private EveryNthSampler(int sampleRate) {
+			this.sampleRate = sampleRate;
+		}
+
+		@Override
+		public boolean sample() {
+			return invocations.getAndIncrement() % sampleRate == 0;
+		}
+	}
+}
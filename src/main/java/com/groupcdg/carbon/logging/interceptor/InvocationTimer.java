@@ -0,0 +1,101 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+/**
+ * Times intercepted invocations with {@link System#nanoTime()} without allocating. Each thread
+ * holds a stack of reusable frames: {@link #start()} takes the next frame and records the start
+ * time in it, and {@link #stop(Object)} returns the elapsed time and releases that frame together
+ * with any above it, so a frame that is never stopped does not leak. A frame must be stopped on the
+ * thread that started it.
+ */
+final class InvocationTimer {
+
+	private static final ThreadLocal<Frames> FRAMES = new ThreadLocal<Frames>() {
+		@Override
+		protected Frames initialValue() {
+			return new Frames();
+		}
+	};
+
+	private InvocationTimer() {
+	}
+
+	/**
+	 * Starts timing an invocation
+	 * @return The frame to be passed to {@link #stop(Object)}
+	 */
+	static Object start() {
+		Frame frame = FRAMES.get().push();
+		frame.startNanos = System.nanoTime();
+		return frame;
+	}
+
+	/**
+	 * Stops timing an invocation
+	 * @param frame The frame returned by {@link #start()}
+	 * @return The elapsed time in nanoseconds
+	 */
+	static long stop(Object frame) {
+		long end = System.nanoTime();
+		Frame started = (Frame) frame;
+		long duration = end - started.startNanos;
+		started.frames.release(started.depth);
+		return duration;
+	}
+
+	private static final class Frame {
+
+		private final Frames frames;
+
+		private final int depth;
+
+		private long startNanos;
+
+		private Frame(Frames frames, int depth) {
+			this.frames = frames;
+			this.depth = depth;
+		}
+	}
+
+	private static final class Frames {
+
+		private Frame[] frames = new Frame[8];
+
+		private int size;
+
+		private Frame push() {
+			if (size == frames.length) {
+				Frame[] grown = new Frame[size * 2];
+				System.arraycopy(frames, 0, grown, 0, size);
+				frames = grown;
+			}
+			Frame frame = frames[size];
+			if (frame == null) {
+				frame = new Frame(this, size);
+				frames[size] = frame;
+			}
+			size++;
+			return frame;
+		}
+
+		private void release(int depth) {
+			if (depth < size) {
+				size = depth;
+			}
+		}
+	}
+}
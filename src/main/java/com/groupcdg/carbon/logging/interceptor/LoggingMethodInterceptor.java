@@ -26,20 +26,26 @@ import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.obtainToString
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.groupcdg.carbon.logging.annotation.Debug;
 import com.groupcdg.carbon.logging.annotation.Info;
 import com.groupcdg.carbon.logging.annotation.Level;
 import com.groupcdg.carbon.logging.annotation.Log;
 import com.groupcdg.carbon.logging.annotation.None;
+import com.groupcdg.carbon.logging.annotation.Sampling;
 import com.groupcdg.carbon.logging.annotation.Trace;
 import com.groupcdg.carbon.logging.annotation.Warn;
+import com.groupcdg.carbon.logging.helper.spi.LogRateLimiter;
 import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
+import com.groupcdg.carbon.logging.helper.spi.StackTraceRenderer;
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
 import com.groupcdg.carbon.logging.tostring.ReflectionToStringStrategy;
 import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
 
-public class LoggingMethodInterceptor implements MethodInterceptor {
+public class LoggingMethodInterceptor implements MethodInterceptor, MethodMatcher {
 
 	private static final LoggingMethodInterceptor ERROR = new LoggingMethodInterceptor(new StaticConfiguration(Level.ERROR));
 	private static final LoggingMethodInterceptor WARN = new LoggingMethodInterceptor(new StaticConfiguration(Level.WARN));
@@ -49,12 +55,17 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 	private static final LoggingMethodInterceptor DEFAULT = new LoggingMethodInterceptor(new StaticConfiguration(Level.DEFAULT));
 	private static final LoggingMethodInterceptor NONE = new LoggingMethodInterceptor(new StaticConfiguration(Level.NONE));
 
+	/**
+	 * Returned from interceptBefore when an invocation is not sampled, so that its return is not logged either
+	 */
+	private static final Object NOT_SAMPLED = new Object();
+
 	private Configuration configuration;
 
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	private Class<Throwable>[] exceptionClasses = new Class[0];
 
-	@SuppressWarnings("unchecked")
+	@SuppressWarnings({"unchecked", "rawtypes"})
 	private Class<Throwable>[] ignoredExceptionClasses = new Class[0];
 
 	private LoggingMethodInterceptor(LoggingMethodInterceptor.Configuration configuration) {
@@ -64,11 +75,13 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 	@Override
 	public Object interceptBefore(Object proxy, Method method, Object[] args, Object realTarget) {
 
-		boolean matchedMethod = configuration.isMatchedMethod(method);
-		if (matchedMethod) {
+		Descriptor descriptor = configuration.getDescriptor(method);
+		if (descriptor != null) {
+			if (!descriptor.getSampler().sample()) {
+				return NOT_SAMPLED;
+			}
 			Class<?> actualType = LoggingUtils.determineActualType(proxy);
-			String[] paramNames = determineParameterNames(method.getParameters());
-			logBefore(getLogger(actualType), actualType, method.getName(), paramNames, args, configuration.getLevelToUseBefore(method), configuration.isLogArgs(method), configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+			logBefore(getLogger(actualType), actualType, method.getName(), descriptor.getParameterNames(), args, descriptor.getLevelToUseBefore(), descriptor.isLogArgs(), descriptor.getToStringStrategy(), descriptor.isIncludeStartAndEndMarkers());
 		}
 		return null;
 	}
@@ -77,10 +90,10 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 	public void interceptAfter(Object proxy, Method method, Object[] args, Object realTarget, Object retObject,
 			Object interceptBefore) {
 
-		boolean matchedMethod = configuration.isMatchedMethod(method);
-		if (matchedMethod) {
+		Descriptor descriptor = configuration.getDescriptor(method);
+		if (descriptor != null && interceptBefore != NOT_SAMPLED) {
 			Class<?> actualType = LoggingUtils.determineActualType(proxy);
-			logAfter(getLogger(actualType), actualType, method.getName(), method.getReturnType(), configuration.getLevelToUseBefore(method), configuration.isLogReturning(method), configuration.isLogReturnValue(method), retObject, configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+			logAfter(getLogger(actualType), actualType, method.getName(), method.getReturnType(), descriptor.getLevelToUseBefore(), descriptor.isLogReturning(), descriptor.isLogReturnValue(), retObject, descriptor.getToStringStrategy(), descriptor.isIncludeStartAndEndMarkers());
 		}
 	}
 
@@ -88,14 +101,19 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 	public void interceptAfterThrowing(Object proxy, Method method, Object[] args, Object realTarget, Throwable cause,
 			Object interceptBeforeReturnObject) {
 
-		boolean matchedMethod = configuration.isMatchedMethod(method);
-		if (matchedMethod) {
+		// Exceptions are logged whether or not the invocation was sampled
+		Descriptor descriptor = configuration.getDescriptor(method);
+		if (descriptor != null) {
 			Class<?> actualType = LoggingUtils.determineActualType(proxy);
-			String[] paramNames = determineParameterNames(method.getParameters());
-			logAfterThrowing(getLogger(actualType), actualType, method.getName(), paramNames, args, configuration.getLevelToUseAfterThrowing(method), configuration.isLogExceptions(method), exceptionClasses, ignoredExceptionClasses, cause, configuration.isPrintStackTrace(method), configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+			logAfterThrowing(getLogger(actualType), actualType, method.getName(), descriptor.getParameterNames(), args, descriptor.getLevelToUseAfterThrowing(), descriptor.isLogExceptions(), exceptionClasses, ignoredExceptionClasses, cause, descriptor.isPrintStackTrace(), descriptor.getRateLimiter(), descriptor.getStackTraceRenderer(), descriptor.getToStringStrategy(), descriptor.isIncludeStartAndEndMarkers());
 		}
 	}
 
+	@Override
+	public boolean isMatchedMethod(Method method) {
+		return configuration.getDescriptor(method) != null;
+	}
+
 	public static LoggingMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers) {
 		return new LoggingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers));
 	}
@@ -104,6 +122,18 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 		return new LoggingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, matchMethods));
 	}
 
+	public static LoggingMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, int sampleRate, Sampling sampling, Method... matchMethods) {
+		return new LoggingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, sampleRate, sampling, matchMethods));
+	}
+
+	public static LoggingMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, int sampleRate, Sampling sampling, int maxExceptionsLoggedPerSecond, Method... matchMethods) {
+		return new LoggingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, sampleRate, sampling, maxExceptionsLoggedPerSecond, matchMethods));
+	}
+
+	public static LoggingMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, int sampleRate, Sampling sampling, int maxExceptionsLoggedPerSecond, StackTraceRenderer stackTraceRenderer, Method... matchMethods) {
+		return new LoggingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, sampleRate, sampling, maxExceptionsLoggedPerSecond, stackTraceRenderer, matchMethods));
+	}
+
 	public static LoggingMethodInterceptor of(Level level) {
 
 		switch(level) {
@@ -153,6 +183,19 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 		public boolean isPrintStackTrace(Method method);
 
 		public boolean isMatchedMethod(Method method);
+
+		public InvocationSampler getSampler(Method method);
+
+		public LogRateLimiter getRateLimiter(Method method);
+
+		public StackTraceRenderer getStackTraceRenderer(Method method);
+
+		/**
+		 * Resolves the complete configuration for the given method
+		 * @param method The method being intercepted
+		 * @return The resolved Descriptor, or null if the method is not matched
+		 */
+		public Descriptor getDescriptor(Method method);
 	}
 
 	private static class StaticConfiguration implements Configuration {
@@ -173,8 +216,27 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 
 		private boolean printStackTrace = false;
 
+		private int sampleRate = 1;
+
+		private Sampling sampling = Sampling.RANDOM;
+
+		private int maxExceptionsLoggedPerSecond = 0;
+
+		private StackTraceRenderer stackTraceRenderer = StackTraceRenderer.full();
+
 		private Method[] matchMethods = null;
 
+		/**
+		 * Descriptors for the methods of each declaring class, held in a ClassValue so that the shared
+		 * configurations do not keep the classes they have intercepted reachable
+		 */
+		private final ClassValue<ConcurrentMap<Method, Descriptor>> descriptors = new ClassValue<ConcurrentMap<Method, Descriptor>>() {
+			@Override
+			protected ConcurrentMap<Method, Descriptor> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
 		private StaticConfiguration(Level levelToUse) {
 			this.levelToUse = levelToUse;
 		}
@@ -201,6 +263,22 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 			this.matchMethods = matchMethods;
 		}
 
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, int sampleRate, Sampling sampling, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, matchMethods);
+			this.sampleRate = sampleRate;
+			this.sampling = sampling;
+		}
+
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, int sampleRate, Sampling sampling, int maxExceptionsLoggedPerSecond, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, sampleRate, sampling, matchMethods);
+			this.maxExceptionsLoggedPerSecond = maxExceptionsLoggedPerSecond;
+		}
+
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, int sampleRate, Sampling sampling, int maxExceptionsLoggedPerSecond, StackTraceRenderer stackTraceRenderer, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, sampleRate, sampling, maxExceptionsLoggedPerSecond, matchMethods);
+			this.stackTraceRenderer = stackTraceRenderer;
+		}
+
 		@Override
 		public Level getLevelToUseBefore(Method method) {
 			return levelToUse;
@@ -255,363 +333,362 @@ public class LoggingMethodInterceptor implements MethodInterceptor {
 		public boolean isMatchedMethod(Method method) {
 			return matchMethod(method, matchMethods);
 		}
+
+		@Override
+		public InvocationSampler getSampler(Method method) {
+			Descriptor descriptor = getDescriptor(method);
+			return descriptor == null ? InvocationSampler.always() : descriptor.getSampler();
+		}
+
+		@Override
+		public LogRateLimiter getRateLimiter(Method method) {
+			Descriptor descriptor = getDescriptor(method);
+			return descriptor == null ? LogRateLimiter.unlimited() : descriptor.getRateLimiter();
+		}
+
+		@Override
+		public StackTraceRenderer getStackTraceRenderer(Method method) {
+			return stackTraceRenderer;
+		}
+
+		@Override
+		public Descriptor getDescriptor(Method method) {
+
+			ConcurrentMap<Method, Descriptor> methodDescriptors = descriptors.get(method.getDeclaringClass());
+			Descriptor descriptor = methodDescriptors.get(method);
+			if (descriptor == null) {
+				if (!isMatchedMethod(method)) {
+					return null;
+				}
+				descriptor = new Descriptor(levelToUse, levelToUse, levelToUse, toStringStrategy, logArgs, logReturning, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace, InvocationSampler.of(sampleRate, sampling), LogRateLimiter.of(method.getDeclaringClass().getName() + "." + method.getName(), maxExceptionsLoggedPerSecond), stackTraceRenderer, determineParameterNames(method.getParameters()));
+				Descriptor existing = methodDescriptors.putIfAbsent(method, descriptor);
+				if (existing != null) {
+					descriptor = existing;
+				}
+			}
+			return descriptor;
+		}
+	}
+
+	/**
+	 * The resolved logging configuration for a single method. Descriptors are immutable and are built once per method
+	 * so that intercepted invocations do not need to repeat annotation lookups.
+	 */
+	public static final class Descriptor {
+
+		private final Level levelToUseBefore;
+		private final Level levelToUseAfter;
+		private final Level levelToUseAfterThrowing;
+		private final ToStringStrategy toStringStrategy;
+		private final boolean logArgs;
+		private final boolean logReturning;
+		private final boolean logReturnValue;
+		private final boolean logExceptions;
+		private final boolean includeStartAndEndMarkers;
+		private final boolean printStackTrace;
+		private final InvocationSampler sampler;
+		private final LogRateLimiter rateLimiter;
+		private final StackTraceRenderer stackTraceRenderer;
+		private final String[] parameterNames;
+
+		private Descriptor(Level levelToUseBefore, Level levelToUseAfter, Level levelToUseAfterThrowing, ToStringStrategy toStringStrategy, boolean logArgs, boolean logReturning, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace, InvocationSampler sampler, LogRateLimiter rateLimiter, StackTraceRenderer stackTraceRenderer, String[] parameterNames) {
+			this.levelToUseBefore = levelToUseBefore;
+			this.levelToUseAfter = levelToUseAfter;
+			this.levelToUseAfterThrowing = levelToUseAfterThrowing;
+			this.toStringStrategy = toStringStrategy;
+			this.logArgs = logArgs;
+			this.logReturning = logReturning;
+			this.logReturnValue = logReturnValue;
+			this.logExceptions = logExceptions;
+			this.includeStartAndEndMarkers = includeStartAndEndMarkers;
+			this.printStackTrace = printStackTrace;
+			this.sampler = sampler;
+			this.rateLimiter = rateLimiter;
+			this.stackTraceRenderer = stackTraceRenderer;
+			this.parameterNames = parameterNames;
+		}
+
+		public Level getLevelToUseBefore() {
+			return levelToUseBefore;
+		}
+
+		public Level getLevelToUseAfter() {
+			return levelToUseAfter;
+		}
+
+		public Level getLevelToUseAfterThrowing() {
+			return levelToUseAfterThrowing;
+		}
+
+		public ToStringStrategy getToStringStrategy() {
+			return toStringStrategy;
+		}
+
+		public boolean isLogArgs() {
+			return logArgs;
+		}
+
+		public boolean isLogReturning() {
+			return logReturning;
+		}
+
+		public boolean isLogReturnValue() {
+			return logReturnValue;
+		}
+
+		public boolean isLogExceptions() {
+			return logExceptions;
+		}
+
+		public boolean isIncludeStartAndEndMarkers() {
+			return includeStartAndEndMarkers;
+		}
+
+		public boolean isPrintStackTrace() {
+			return printStackTrace;
+		}
+
+		public InvocationSampler getSampler() {
+			return sampler;
+		}
+
+		public LogRateLimiter getRateLimiter() {
+			return rateLimiter;
+		}
+
+		public StackTraceRenderer getStackTraceRenderer() {
+			return stackTraceRenderer;
+		}
+
+		public String[] getParameterNames() {
+			return parameterNames;
+		}
 	}
 
 	private static class TargetAnnotationConfiguration implements Configuration {
 
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private static final Class<? extends Annotation>[] ANNOTATION_TYPES = new Class[] { Log.class, com.groupcdg.carbon.logging.annotation.Error.class, Warn.class, Info.class, Debug.class, Trace.class, None.class };
+
+		/**
+		 * Descriptors for each method of a target class, indexed by position in ANNOTATION_TYPES. An entry is
+		 * null where the method does not carry the corresponding annotation.
+		 */
+		private static final ClassValue<ConcurrentMap<Method, Descriptor[]>> DESCRIPTORS = new ClassValue<ConcurrentMap<Method, Descriptor[]>>() {
+			@Override
+			protected ConcurrentMap<Method, Descriptor[]> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
 		private Class<?> targetType;
-		private Annotation annotation;
+		private int annotationIndex;
 
 		private TargetAnnotationConfiguration(Class<?> targetType, Annotation annotation) {
 			this.targetType = targetType;
-			this.annotation = annotation;
+			this.annotationIndex = indexOf(annotation.annotationType());
 		}
 
-		private Log findLog(Class<?> targetType, Method method) {
-			Log annotation = method.getAnnotation(Log.class);
-			return annotation;
+		private static int indexOf(Class<? extends Annotation> annotationType) {
+			for (int i = 0; i < ANNOTATION_TYPES.length; i++) {
+				if (ANNOTATION_TYPES[i] == annotationType) {
+					return i;
+				}
+			}
+			return -1;
 		}
 
-		private com.groupcdg.carbon.logging.annotation.Error findError(Class<?> targetType, Method method) {
-			com.groupcdg.carbon.logging.annotation.Error annotation = method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class);
-			return annotation;
+		@Override
+		public Descriptor getDescriptor(Method method) {
+
+			if (annotationIndex < 0) {
+				return null;
+			}
+
+			ConcurrentMap<Method, Descriptor[]> methodDescriptors = DESCRIPTORS.get(targetType);
+			Descriptor[] descriptors = methodDescriptors.get(method);
+			if (descriptors == null) {
+				descriptors = resolveDescriptors(method);
+				Descriptor[] existing = methodDescriptors.putIfAbsent(method, descriptors);
+				if (existing != null) {
+					descriptors = existing;
+				}
+			}
+			return descriptors[annotationIndex];
 		}
 
-		private Warn findWarn(Class<?> targetType, Method method) {
-			Warn annotation = method.getAnnotation(Warn.class);
-			return annotation;
+		private static Descriptor[] resolveDescriptors(Method method) {
+
+			String[] paramNames = determineParameterNames(method.getParameters());
+
+			Descriptor[] result = new Descriptor[ANNOTATION_TYPES.length];
+			for (int i = 0; i < ANNOTATION_TYPES.length; i++) {
+				Annotation ann = method.getAnnotation(ANNOTATION_TYPES[i]);
+				if (ann != null) {
+					result[i] = resolveDescriptor(ann, method, paramNames);
+				}
+			}
+			return result;
+		}
+
+		private static Descriptor resolveDescriptor(Annotation annotation, Method method, String[] paramNames) {
+
+			String methodName = method.getDeclaringClass().getName() + "." + method.getName();
+			if (annotation instanceof Log) {
+				return resolveDescriptor((Log) annotation, methodName, paramNames);
+			} else if (annotation instanceof com.groupcdg.carbon.logging.annotation.Error) {
+				return resolveDescriptor((com.groupcdg.carbon.logging.annotation.Error) annotation, methodName, paramNames);
+			} else if (annotation instanceof Warn) {
+				return resolveDescriptor((Warn) annotation, methodName, paramNames);
+			} else if (annotation instanceof Info) {
+				return resolveDescriptor((Info) annotation, methodName, paramNames);
+			} else if (annotation instanceof Debug) {
+				return resolveDescriptor((Debug) annotation, methodName, paramNames);
+			} else if (annotation instanceof Trace) {
+				return resolveDescriptor((Trace) annotation, methodName, paramNames);
+			} else if (annotation instanceof None) {
+				return resolveDescriptor((None) annotation, methodName, paramNames);
+			} else {
+				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
+			}
 		}
 
-		private Info findInfo(Class<?> targetType, Method method) {
-			Info annotation = method.getAnnotation(Info.class);
-			return annotation;
+		private static Descriptor resolveDescriptor(Log log, String methodName, String[] paramNames) {
+			return resolveDescriptor(log, log.level(), log.beforeLevel(), log.afterLevel(), log.exceptionLevel(), log.toStringStrategy(), log.toStringStrategyStyleName(),
+					log.logArguments(), log.logAfter(), log.logReturnValue(), log.logExceptions(), log.includeStartAndEndMarkers(), log.printStackTrace(),
+					log.sampleRate(), log.sampling(), log.maxExceptionsLoggedPerSecond(), log.maxStackTraceFrames(), log.collapseFrameworkFrames(), methodName, paramNames);
 		}
 
-		private Debug findDebug(Class<?> targetType, Method method) {
-			Debug annotation = method.getAnnotation(Debug.class);
-			return annotation;
+		private static Descriptor resolveDescriptor(com.groupcdg.carbon.logging.annotation.Error error, String methodName, String[] paramNames) {
+			return resolveDescriptor(error, Level.ERROR, error.beforeLevel(), error.afterLevel(), error.exceptionLevel(), error.toStringStrategy(), error.toStringStrategyStyleName(),
+					error.logArguments(), error.logAfter(), error.logReturnValue(), error.logExceptions(), error.includeStartAndEndMarkers(), error.printStackTrace(),
+					error.sampleRate(), error.sampling(), error.maxExceptionsLoggedPerSecond(), error.maxStackTraceFrames(), error.collapseFrameworkFrames(), methodName, paramNames);
 		}
 
-		private Trace findTrace(Class<?> targetType, Method method) {
-			Trace annotation = method.getAnnotation(Trace.class);
-			return annotation;
+		private static Descriptor resolveDescriptor(Warn warn, String methodName, String[] paramNames) {
+			return resolveDescriptor(warn, Level.WARN, warn.beforeLevel(), warn.afterLevel(), warn.exceptionLevel(), warn.toStringStrategy(), warn.toStringStrategyStyleName(),
+					warn.logArguments(), warn.logAfter(), warn.logReturnValue(), warn.logExceptions(), warn.includeStartAndEndMarkers(), warn.printStackTrace(),
+					warn.sampleRate(), warn.sampling(), warn.maxExceptionsLoggedPerSecond(), warn.maxStackTraceFrames(), warn.collapseFrameworkFrames(), methodName, paramNames);
 		}
 
-		private None findNone(Class<?> targetType, Method method) {
-			None annotation = method.getAnnotation(None.class);
-			return annotation;
+		private static Descriptor resolveDescriptor(Info info, String methodName, String[] paramNames) {
+			return resolveDescriptor(info, Level.INFO, info.beforeLevel(), info.afterLevel(), info.exceptionLevel(), info.toStringStrategy(), info.toStringStrategyStyleName(),
+					info.logArguments(), info.logAfter(), info.logReturnValue(), info.logExceptions(), info.includeStartAndEndMarkers(), info.printStackTrace(),
+					info.sampleRate(), info.sampling(), info.maxExceptionsLoggedPerSecond(), info.maxStackTraceFrames(), info.collapseFrameworkFrames(), methodName, paramNames);
 		}
 
-		@Override
-		public ToStringStrategy getToStringStrategy(Method method) {
+		private static Descriptor resolveDescriptor(Debug debug, String methodName, String[] paramNames) {
+			return resolveDescriptor(debug, Level.DEBUG, debug.beforeLevel(), debug.afterLevel(), debug.exceptionLevel(), debug.toStringStrategy(), debug.toStringStrategyStyleName(),
+					debug.logArguments(), debug.logAfter(), debug.logReturnValue(), debug.logExceptions(), debug.includeStartAndEndMarkers(), debug.printStackTrace(),
+					debug.sampleRate(), debug.sampling(), debug.maxExceptionsLoggedPerSecond(), debug.maxStackTraceFrames(), debug.collapseFrameworkFrames(), methodName, paramNames);
+		}
 
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return obtainToStringStrategy(ann.toStringStrategy(), ann.toStringStrategyStyleName());
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
+		private static Descriptor resolveDescriptor(Trace trace, String methodName, String[] paramNames) {
+			return resolveDescriptor(trace, Level.TRACE, trace.beforeLevel(), trace.afterLevel(), trace.exceptionLevel(), trace.toStringStrategy(), trace.toStringStrategyStyleName(),
+					trace.logArguments(), trace.logAfter(), trace.logReturnValue(), trace.logExceptions(), trace.includeStartAndEndMarkers(), trace.printStackTrace(),
+					trace.sampleRate(), trace.sampling(), trace.maxExceptionsLoggedPerSecond(), trace.maxStackTraceFrames(), trace.collapseFrameworkFrames(), methodName, paramNames);
+		}
+
+		private static Descriptor resolveDescriptor(None none, String methodName, String[] paramNames) {
+			return resolveDescriptor(none, Level.NONE, none.beforeLevel(), none.afterLevel(), none.exceptionLevel(), none.toStringStrategy(), none.toStringStrategyStyleName(),
+					none.logArguments(), none.logAfter(), none.logReturnValue(), none.logExceptions(), none.includeStartAndEndMarkers(), none.printStackTrace(),
+					none.sampleRate(), none.sampling(), none.maxExceptionsLoggedPerSecond(), none.maxStackTraceFrames(), none.collapseFrameworkFrames(), methodName, paramNames);
+		}
+
+		/**
+		 * Builds the descriptor from the elements declared by each of the annotation types. The annotation
+		 * types share no interface, so each is read through its own accessors above and the values passed here.
+		 */
+		private static Descriptor resolveDescriptor(Annotation ann, Level baseLevel, Level beforeLevel, Level afterLevel, Level exceptionLevel, Class<? extends ToStringStrategy> toStringStrategy, String toStringStrategyStyleName,
+				boolean logArguments, boolean logAfter, boolean logReturnValue, boolean logExceptions, boolean includeStartAndEndMarkers, boolean printStackTrace,
+				int sampleRate, Sampling sampling, int maxExceptionsLoggedPerSecond, int maxStackTraceFrames, boolean collapseFrameworkFrames, String methodName, String[] paramNames) {
+
+			return new Descriptor(inferEffectiveLevel(ann, baseLevel, beforeLevel), inferEffectiveLevel(ann, baseLevel, afterLevel), inferEffectiveLevel(ann, baseLevel, exceptionLevel),
+					obtainToStringStrategy(toStringStrategy, toStringStrategyStyleName),
+					logArguments, logAfter, logReturnValue, logExceptions, includeStartAndEndMarkers, printStackTrace,
+					InvocationSampler.of(sampleRate, sampling),
+					LogRateLimiter.of(methodName, maxExceptionsLoggedPerSecond),
+					StackTraceRenderer.of(maxStackTraceFrames, collapseFrameworkFrames),
+					paramNames);
+		}
+
+		private Descriptor requireDescriptor(Method method) {
+
+			Descriptor descriptor = getDescriptor(method);
+			if (descriptor == null) {
+				throw new IllegalStateException("Method " + method + " is not annotated with: " + ANNOTATION_TYPES[annotationIndex]);
 			}
+			return descriptor;
 		}
 
 		@Override
-		public boolean isIncludeStartAndEndMarkers(Method method) {
+		public ToStringStrategy getToStringStrategy(Method method) {
+			return requireDescriptor(method).getToStringStrategy();
+		}
 
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return ann.includeStartAndEndMarkers();
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+		@Override
+		public boolean isIncludeStartAndEndMarkers(Method method) {
+			return requireDescriptor(method).isIncludeStartAndEndMarkers();
 		}
 
 		@Override
 		public boolean isLogArgs(Method method) {
-
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return ann.logArguments();
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return ann.logArguments();
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return ann.logArguments();
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return ann.logArguments();
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return ann.logArguments();
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return ann.logArguments();
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return ann.logArguments();
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+			return requireDescriptor(method).isLogArgs();
 		}
 
 		@Override
 		public boolean isLogReturning(Method method) {
-
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return ann.logAfter();
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return ann.logAfter();
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return ann.logAfter();
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return ann.logAfter();
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return ann.logAfter();
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return ann.logAfter();
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return ann.logAfter();
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+			return requireDescriptor(method).isLogReturning();
 		}
 
 		@Override
 		public boolean isLogReturnValue(Method method) {
-
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return ann.logReturnValue();
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return ann.logReturnValue();
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return ann.logReturnValue();
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return ann.logReturnValue();
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return ann.logReturnValue();
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return ann.logReturnValue();
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return ann.logReturnValue();
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+			return requireDescriptor(method).isLogReturnValue();
 		}
 
 		@Override
 		public boolean isLogExceptions(Method method) {
-
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return ann.logExceptions();
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return ann.logExceptions();
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return ann.logExceptions();
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return ann.logExceptions();
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return ann.logExceptions();
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return ann.logExceptions();
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return ann.logExceptions();
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+			return requireDescriptor(method).isLogExceptions();
 		}
 
 		@Override
 		public boolean isPrintStackTrace(Method method) {
-
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return ann.printStackTrace();
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return ann.printStackTrace();
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return ann.printStackTrace();
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return ann.printStackTrace();
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return ann.printStackTrace();
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return ann.printStackTrace();
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return ann.printStackTrace();
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+			return requireDescriptor(method).isPrintStackTrace();
 		}
 
 		@Override
 		public boolean isMatchedMethod(Method method) {
+			return getDescriptor(method) != null;
+		}
 
-			if ((annotation.annotationType() == Log.class) && (method.getAnnotation(Log.class) != null)) {
-				return true;
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				return true;
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				return true;
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				return true;
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				return true;
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				return true;
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				return true;
-			} else {
-				return false;
-			}
+		@Override
+		public InvocationSampler getSampler(Method method) {
+			return requireDescriptor(method).getSampler();
 		}
 
 		@Override
-		public Level getLevelToUseBefore(Method method) {
+		public LogRateLimiter getRateLimiter(Method method) {
+			return requireDescriptor(method).getRateLimiter();
+		}
 
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return inferEffectiveLevel(ann, ann.level(), ann.beforeLevel());
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return inferEffectiveLevel(ann, Level.ERROR, ann.beforeLevel());
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return inferEffectiveLevel(ann, Level.WARN, ann.beforeLevel());
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return inferEffectiveLevel(ann, Level.INFO, ann.beforeLevel());
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return inferEffectiveLevel(ann, Level.DEBUG, ann.beforeLevel());
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return inferEffectiveLevel(ann, Level.TRACE, ann.beforeLevel());
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return inferEffectiveLevel(ann, Level.NONE, ann.beforeLevel());
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+		@Override
+		public StackTraceRenderer getStackTraceRenderer(Method method) {
+			return requireDescriptor(method).getStackTraceRenderer();
 		}
 
 		@Override
-		public Level getLevelToUseAfter(Method method) {
+		public Level getLevelToUseBefore(Method method) {
+			return requireDescriptor(method).getLevelToUseBefore();
+		}
 
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return inferEffectiveLevel(ann, ann.level(), ann.afterLevel());
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return inferEffectiveLevel(ann, Level.ERROR, ann.afterLevel());
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return inferEffectiveLevel(ann, Level.WARN, ann.afterLevel());
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return inferEffectiveLevel(ann, Level.INFO, ann.afterLevel());
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return inferEffectiveLevel(ann, Level.DEBUG, ann.afterLevel());
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return inferEffectiveLevel(ann, Level.TRACE, ann.afterLevel());
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return inferEffectiveLevel(ann, Level.NONE, ann.afterLevel());
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+		@Override
+		public Level getLevelToUseAfter(Method method) {
+			return requireDescriptor(method).getLevelToUseAfter();
 		}
 
 		@Override
 		public Level getLevelToUseAfterThrowing(Method method) {
-
-			if ((annotation.annotationType() == Log.class)) {
-				Log ann = findLog(targetType, method);
-				return inferEffectiveLevel(ann, ann.level(), ann.exceptionLevel());
-			} else if ((annotation.annotationType() == com.groupcdg.carbon.logging.annotation.Error.class) && (method.getAnnotation(com.groupcdg.carbon.logging.annotation.Error.class) != null)) {
-				com.groupcdg.carbon.logging.annotation.Error ann = findError(targetType, method);
-				return inferEffectiveLevel(ann, Level.ERROR, ann.exceptionLevel());
-			} else if ((annotation.annotationType() == Warn.class) && (method.getAnnotation(Warn.class) != null)) {
-				Warn ann = findWarn(targetType, method);
-				return inferEffectiveLevel(ann, Level.WARN, ann.exceptionLevel());
-			} else if ((annotation.annotationType() == Info.class) && (method.getAnnotation(Info.class) != null)) {
-				Info ann = findInfo(targetType, method);
-				return inferEffectiveLevel(ann, Level.INFO, ann.exceptionLevel());
-			} else if ((annotation.annotationType() == Debug.class) && (method.getAnnotation(Debug.class) != null)) {
-				Debug ann = findDebug(targetType, method);
-				return inferEffectiveLevel(ann, Level.DEBUG, ann.exceptionLevel());
-			} else if ((annotation.annotationType() == Trace.class) && (method.getAnnotation(Trace.class) != null)) {
-				Trace ann = findTrace(targetType, method);
-				return inferEffectiveLevel(ann, Level.TRACE, ann.exceptionLevel());
-			} else if ((annotation.annotationType() == None.class) && (method.getAnnotation(None.class) != null)) {
-				None ann = findNone(targetType, method);
-				return inferEffectiveLevel(ann, Level.NONE, ann.exceptionLevel());
-			} else {
-				throw new IllegalStateException("Invalid annotation type matched: " + annotation.annotationType());
-			}
+			return requireDescriptor(method).getLevelToUseAfterThrowing();
 		}
 	}
 }
\ No newline at end of file
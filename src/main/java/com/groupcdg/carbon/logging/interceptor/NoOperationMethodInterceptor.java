@@ -18,8 +18,9 @@ package com.groupcdg.carbon.logging.interceptor;
 import java.lang.reflect.Method;
 
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
 
-public class NoOperationMethodInterceptor implements MethodInterceptor {
+public class NoOperationMethodInterceptor implements MethodInterceptor, MethodMatcher {
 
 	private static final NoOperationMethodInterceptor INSTANCE = new NoOperationMethodInterceptor();
 
@@ -39,6 +40,11 @@ public class NoOperationMethodInterceptor implements MethodInterceptor {
 			Object interceptBeforeReturnObject) {
 	}
 
+	@Override
+	public boolean isMatchedMethod(Method method) {
+		return false;
+	}
+
 	public NoOperationMethodInterceptor instance() {
 		return INSTANCE;
 	}
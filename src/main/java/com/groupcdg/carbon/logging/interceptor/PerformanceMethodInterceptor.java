@@ -18,19 +18,29 @@ package com.groupcdg.carbon.logging.interceptor;
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineParameterNames;
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.matchMethod;
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.obtainToStringStrategy;
-import static com.groupcdg.carbon.logging.helper.spi.PerformanceHelper.logAfter;
+import static com.groupcdg.carbon.logging.helper.spi.PerformanceHelper.logAfterNanos;
+import static java.util.concurrent.TimeUnit.MICROSECONDS;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.groupcdg.carbon.logging.annotation.LatencyReporting;
 import com.groupcdg.carbon.logging.annotation.Level;
 import com.groupcdg.carbon.logging.annotation.LogPerformance;
+import com.groupcdg.carbon.logging.annotation.Sampling;
+import com.groupcdg.carbon.logging.helper.spi.LatencyBuckets;
 import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
+import com.groupcdg.carbon.logging.metrics.InvocationMetricsRegistry;
+import com.groupcdg.carbon.logging.metrics.LatencyHistograms;
 import com.groupcdg.carbon.logging.tostring.ReflectionToStringStrategy;
 import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
 
-public class PerformanceMethodInterceptor implements MethodInterceptor {
+public class PerformanceMethodInterceptor implements MethodInterceptor, MethodMatcher {
 
 	private static final PerformanceMethodInterceptor ERROR = new PerformanceMethodInterceptor(new StaticConfiguration(Level.ERROR));
 	private static final PerformanceMethodInterceptor WARN = new PerformanceMethodInterceptor(new StaticConfiguration(Level.WARN));
@@ -40,6 +50,8 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 	private static final PerformanceMethodInterceptor DEFAULT = new PerformanceMethodInterceptor(new StaticConfiguration(Level.DEFAULT));
 	private static final PerformanceMethodInterceptor NONE = new PerformanceMethodInterceptor(new StaticConfiguration(Level.NONE));
 
+	private static final InvocationMetricsRegistry METRICS = new InvocationMetricsRegistry("Performance");
+
 	private Configuration configuration;
 
 	private PerformanceMethodInterceptor(PerformanceMethodInterceptor.Configuration configuration) {
@@ -47,10 +59,11 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 	}
 
 	@Override
-	public Long interceptBefore(Object proxy, Method method, Object[] args, Object realTarget) {
+	public Object interceptBefore(Object proxy, Method method, Object[] args, Object realTarget) {
 
-		if (configuration.isMatchedMethod(method)) {
-			return Long.valueOf(System.currentTimeMillis());
+		if (configuration.getDescriptor(method) != null) {
+			METRICS.forMethod(LoggingUtils.determineActualType(proxy), method).enter();
+			return InvocationTimer.start();
 		}
 		return null;
 	}
@@ -59,12 +72,9 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 	public void interceptAfter(Object proxy, Method method, Object[] args, Object realTarget, Object retObject,
 			Object interceptBefore) {
 
-		if (configuration.isMatchedMethod(method)) {
-			long finish = System.currentTimeMillis();
-			Class<?> proxiedInterface = LoggingUtils.determineActualType(proxy);
-			String[] paramNames = determineParameterNames(method.getParameters());
-
-			logAfter(proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.isLogArgs(method), ((Long)interceptBefore).longValue(), finish, configuration.getThresholdMillis(method), configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+		Descriptor descriptor = configuration.getDescriptor(method);
+		if (descriptor != null) {
+			after(proxy, method, args, interceptBefore, descriptor, false);
 		}
 	}
 
@@ -72,15 +82,34 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 	public void interceptAfterThrowing(Object proxy, Method method, Object[] args, Object realTarget, Throwable cause,
 			Object interceptBefore) {
 
-		if (configuration.isMatchedMethod(method)) {
-			long finish = System.currentTimeMillis();
-			Class<?> proxiedInterface = LoggingUtils.determineActualType(proxy);
-			String[] paramNames = determineParameterNames(method.getParameters());
+		Descriptor descriptor = configuration.getDescriptor(method);
+		if (descriptor != null) {
+			after(proxy, method, args, interceptBefore, descriptor, true);
+		}
+	}
+
+	private void after(Object proxy, Method method, Object[] args, Object interceptBefore, Descriptor descriptor, boolean failed) {
+
+		long durationNanos = InvocationTimer.stop(interceptBefore);
+		Class<?> proxiedInterface = LoggingUtils.determineActualType(proxy);
+		METRICS.forMethod(proxiedInterface, method).exit(durationNanos, failed);
+		LatencyReporting latencyReporting = descriptor.getLatencyReporting();
+
+		if (latencyReporting != LatencyReporting.PER_CALL) {
+			LatencyHistograms.forMethod(proxiedInterface, method).record(durationNanos);
+		}
 
-			logAfter(proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.isLogArgs(method), ((Long)interceptBefore).longValue(), finish, configuration.getThresholdMillis(method), configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+		// Calls that throw are always logged, those that return only when sampled
+		if (latencyReporting != LatencyReporting.SUMMARY && (failed || descriptor.getSampler().sample())) {
+			logAfterNanos(proxiedInterface, method.getName(), descriptor.getParameterNames(), args, descriptor.getLevelToUse(), descriptor.isLogArgs(), durationNanos, MICROSECONDS.toNanos(descriptor.getThresholdMicros()), descriptor.getLatencyBuckets(), descriptor.getToStringStrategy(), descriptor.isIncludeStartAndEndMarkers());
 		}
 	}
 
+	@Override
+	public boolean isMatchedMethod(Method method) {
+		return configuration.getDescriptor(method) != null;
+	}
+
 	public static PerformanceMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis) {
 		return new PerformanceMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis));
 	}
@@ -89,6 +118,18 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 		return new PerformanceMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, matchMethods));
 	}
 
+	public static PerformanceMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, LatencyReporting latencyReporting, Method... matchMethods) {
+		return new PerformanceMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, latencyReporting, matchMethods));
+	}
+
+	public static PerformanceMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, LatencyReporting latencyReporting, LatencyBuckets latencyBuckets, Method... matchMethods) {
+		return new PerformanceMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, latencyReporting, latencyBuckets, matchMethods));
+	}
+
+	public static PerformanceMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, LatencyReporting latencyReporting, LatencyBuckets latencyBuckets, int sampleRate, Sampling sampling, Method... matchMethods) {
+		return new PerformanceMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, latencyReporting, latencyBuckets, sampleRate, sampling, matchMethods));
+	}
+
 	public static PerformanceMethodInterceptor of(Level level) {
 
 		switch(level) {
@@ -127,7 +168,23 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 
 		public long getThresholdMillis(Method method);
 
+		public long getThresholdMicros(Method method);
+
+		public LatencyReporting getLatencyReporting(Method method);
+
+		public LatencyBuckets getLatencyBuckets(Method method);
+
+		public InvocationSampler getSampler(Method method);
+
 		public boolean isMatchedMethod(Method method);
+
+		/**
+		 * Resolves the complete configuration for a method. Implementations build the descriptor once and
+		 * return the same instance for later invocations.
+		 * @param method The intercepted method
+		 * @return The resolved Descriptor, or null if the method is not matched
+		 */
+		public Descriptor getDescriptor(Method method);
 	}
 
 	private static class StaticConfiguration implements Configuration {
@@ -142,8 +199,27 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 
 		private long thresholdMillis;
 
+		private LatencyReporting latencyReporting = LatencyReporting.PER_CALL;
+
+		private LatencyBuckets latencyBuckets;
+
+		private int sampleRate = 1;
+
+		private Sampling sampling = Sampling.RANDOM;
+
 		private Method[] matchMethods = null;
 
+		/**
+		 * Descriptors for the methods of each declaring class, held in a ClassValue so that the shared
+		 * configurations do not keep the classes they have intercepted reachable
+		 */
+		private final ClassValue<ConcurrentMap<Method, Descriptor>> descriptors = new ClassValue<ConcurrentMap<Method, Descriptor>>() {
+			@Override
+			protected ConcurrentMap<Method, Descriptor> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
 		private StaticConfiguration(Level levelToUse) {
 			this.levelToUse = levelToUse;
 		}
@@ -165,6 +241,22 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 			this.matchMethods = matchMethods;
 		}
 
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, LatencyReporting latencyReporting, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, matchMethods);
+			this.latencyReporting = latencyReporting;
+		}
+
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, LatencyReporting latencyReporting, LatencyBuckets latencyBuckets, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, latencyReporting, matchMethods);
+			this.latencyBuckets = latencyBuckets;
+		}
+
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, LatencyReporting latencyReporting, LatencyBuckets latencyBuckets, int sampleRate, Sampling sampling, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, latencyReporting, latencyBuckets, matchMethods);
+			this.sampleRate = sampleRate;
+			this.sampling = sampling;
+		}
+
 		@Override
 		public Level getLevelToUse(Method method) {
 			return levelToUse;
@@ -185,25 +277,155 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 			return includeStartAndEndMarkers;
 		}
 
+		@Override
 		public long getThresholdMillis(Method method) {
 			return thresholdMillis;
 		}
 
+		@Override
+		public long getThresholdMicros(Method method) {
+			return MILLISECONDS.toMicros(thresholdMillis);
+		}
+
+		@Override
+		public LatencyReporting getLatencyReporting(Method method) {
+			return latencyReporting;
+		}
+
+		@Override
+		public LatencyBuckets getLatencyBuckets(Method method) {
+			return latencyBuckets == null ? LatencyBuckets.getDefault() : latencyBuckets;
+		}
+
+		@Override
+		public InvocationSampler getSampler(Method method) {
+			Descriptor descriptor = getDescriptor(method);
+			return descriptor == null ? InvocationSampler.always() : descriptor.getSampler();
+		}
+
 		@Override
 		public boolean isMatchedMethod(Method method) {
 			return matchMethod(method, matchMethods);
 		}
+
+		@Override
+		public Descriptor getDescriptor(Method method) {
+
+			ConcurrentMap<Method, Descriptor> methodDescriptors = descriptors.get(method.getDeclaringClass());
+			Descriptor descriptor = methodDescriptors.get(method);
+			if (descriptor == null) {
+				if (!isMatchedMethod(method)) {
+					return null;
+				}
+				descriptor = new Descriptor(levelToUse, toStringStrategy, logArgs, includeStartAndEndMarkers, thresholdMillis, MILLISECONDS.toMicros(thresholdMillis), latencyReporting, latencyBuckets, InvocationSampler.of(sampleRate, sampling), determineParameterNames(method.getParameters()));
+				Descriptor existing = methodDescriptors.putIfAbsent(method, descriptor);
+				if (existing != null) {
+					descriptor = existing;
+				}
+			}
+			return descriptor;
+		}
+	}
+
+	/**
+	 * The resolved performance logging configuration for a single method. Descriptors are immutable and are built
+	 * once per method so that intercepted invocations do not need to repeat annotation lookups.
+	 */
+	public static final class Descriptor {
+
+		private final Level levelToUse;
+		private final ToStringStrategy toStringStrategy;
+		private final boolean logArgs;
+		private final boolean includeStartAndEndMarkers;
+		private final long thresholdMillis;
+		private final long thresholdMicros;
+		private final LatencyReporting latencyReporting;
+		private final LatencyBuckets latencyBuckets;
+		private final InvocationSampler sampler;
+		private final String[] parameterNames;
+
+		private Descriptor(Level levelToUse, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, long thresholdMillis, long thresholdMicros, LatencyReporting latencyReporting, LatencyBuckets latencyBuckets, InvocationSampler sampler, String[] parameterNames) {
+			this.levelToUse = levelToUse;
+			this.toStringStrategy = toStringStrategy;
+			this.logArgs = logArgs;
+			this.includeStartAndEndMarkers = includeStartAndEndMarkers;
+			this.thresholdMillis = thresholdMillis;
+			this.thresholdMicros = thresholdMicros;
+			this.latencyReporting = latencyReporting;
+			this.latencyBuckets = latencyBuckets;
+			this.sampler = sampler;
+			this.parameterNames = parameterNames;
+		}
+
+		public Level getLevelToUse() {
+			return levelToUse;
+		}
+
+		public ToStringStrategy getToStringStrategy() {
+			return toStringStrategy;
+		}
+
+		public boolean isLogArgs() {
+			return logArgs;
+		}
+
+		public boolean isIncludeStartAndEndMarkers() {
+			return includeStartAndEndMarkers;
+		}
+
+		public long getThresholdMillis() {
+			return thresholdMillis;
+		}
+
+		public long getThresholdMicros() {
+			return thresholdMicros;
+		}
+
+		public LatencyReporting getLatencyReporting() {
+			return latencyReporting;
+		}
+
+		/**
+		 * @return The buckets configured for the method, or the current default buckets when none were configured
+		 */
+		public LatencyBuckets getLatencyBuckets() {
+			return latencyBuckets == null ? LatencyBuckets.getDefault() : latencyBuckets;
+		}
+
+		public InvocationSampler getSampler() {
+			return sampler;
+		}
+
+		public String[] getParameterNames() {
+			return parameterNames;
+		}
 	}
 
 	private static class TargetAnnotationConfiguration implements Configuration {
 
+		/**
+		 * Stands in for methods that carry no @LogPerformance, since a ConcurrentMap cannot hold null
+		 */
+		private static final Descriptor NOT_MATCHED = new Descriptor(Level.NONE, null, false, false, 0, 0, LatencyReporting.PER_CALL, null, InvocationSampler.always(), new String[0]);
+
+		/**
+		 * Descriptors for each method of a target class, held in a ClassValue so that they are released
+		 * with the class
+		 */
+		private static final ClassValue<ConcurrentMap<Method, Descriptor>> DESCRIPTORS = new ClassValue<ConcurrentMap<Method, Descriptor>>() {
+			@Override
+			protected ConcurrentMap<Method, Descriptor> computeValue(Class<?> type) {
+				return new ConcurrentHashMap<>();
+			}
+		};
+
 		private Class<?> targetType;
 
 		private TargetAnnotationConfiguration(Class<?> targetType) {
 			this.targetType = targetType;
 		}
 
-		private LogPerformance findLogPerformance(Class<?> targetType, Method method) {
+		private static LogPerformance findLogPerformance(Class<?> targetType, Method method) {
 			LogPerformance performance = method.getAnnotation(LogPerformance.class);
 			if (performance == null) {
 				performance = targetType.getAnnotation(LogPerformance.class);
@@ -212,43 +434,93 @@ public class PerformanceMethodInterceptor implements MethodInterceptor {
 		}
 
 		@Override
-		public Level getLevelToUse(Method method) {
+		public Descriptor getDescriptor(Method method) {
+
+			ConcurrentMap<Method, Descriptor> methodDescriptors = DESCRIPTORS.get(targetType);
+			Descriptor descriptor = methodDescriptors.get(method);
+			if (descriptor == null) {
+				descriptor = resolveDescriptor(targetType, method);
+				Descriptor existing = methodDescriptors.putIfAbsent(method, descriptor);
+				if (existing != null) {
+					descriptor = existing;
+				}
+			}
+			return descriptor == NOT_MATCHED ? null : descriptor;
+		}
+
+		private static Descriptor resolveDescriptor(Class<?> targetType, Method method) {
+
 			LogPerformance performance = findLogPerformance(targetType, method);
-			return performance.level();
+			if (performance == null) {
+				return NOT_MATCHED;
+			}
+
+			long thresholdMicros = performance.thresholdMicros() >= 0 ? performance.thresholdMicros() : MILLISECONDS.toMicros(performance.thresholdMilliseconds());
+			LatencyBuckets buckets = performance.bucketLoggerNames().length == 0 ? null : LatencyBuckets.of(performance.bucketMilliseconds(), performance.bucketLoggerNames());
+
+			return new Descriptor(performance.level(), obtainToStringStrategy(performance.toStringStrategy(), performance.toStringStrategyStyleName()), performance.logArguments(), performance.includeStartAndEndMarkers(),
+					performance.thresholdMilliseconds(), thresholdMicros, performance.latencyReporting(), buckets,
+					InvocationSampler.of(performance.sampleRate(), performance.sampling()), determineParameterNames(method.getParameters()));
+		}
+
+		private Descriptor requireDescriptor(Method method) {
+
+			Descriptor descriptor = getDescriptor(method);
+			if (descriptor == null) {
+				throw new IllegalStateException("Method " + method + " is not annotated with: " + LogPerformance.class);
+			}
+			return descriptor;
+		}
+
+		@Override
+		public Level getLevelToUse(Method method) {
+			return requireDescriptor(method).getLevelToUse();
 		}
 
 		@Override
 		public boolean isLogArgs(Method method) {
-			LogPerformance performance = findLogPerformance(targetType, method);
-			return performance.logArguments();		}
+			return requireDescriptor(method).isLogArgs();
+		}
 
 		@Override
 		public ToStringStrategy getToStringStrategy(Method method) {
-			LogPerformance performance = findLogPerformance(targetType, method);
-			return obtainToStringStrategy(performance.toStringStrategy(), performance.toStringStrategyStyleName());
+			return requireDescriptor(method).getToStringStrategy();
 		}
 
 		@Override
 		public boolean isIncludeStartAndEndMarkers(Method method) {
-			LogPerformance performance = findLogPerformance(targetType, method);
-			return performance.includeStartAndEndMarkers();
+			return requireDescriptor(method).isIncludeStartAndEndMarkers();
 		}
 
+		@Override
 		public long getThresholdMillis(Method method) {
-			LogPerformance performance = findLogPerformance(targetType, method);
-			return performance.thresholdMilliseconds();
+			return requireDescriptor(method).getThresholdMillis();
+		}
+
+		@Override
+		public long getThresholdMicros(Method method) {
+			return requireDescriptor(method).getThresholdMicros();
+		}
+
+		@Override
+		public LatencyReporting getLatencyReporting(Method method) {
+			return requireDescriptor(method).getLatencyReporting();
+		}
+
+		@Override
+		public LatencyBuckets getLatencyBuckets(Method method) {
+			return requireDescriptor(method).getLatencyBuckets();
+		}
+
+		@Override
+		public InvocationSampler getSampler(Method method) {
+			return requireDescriptor(method).getSampler();
 		}
 
 		@Override
 		public boolean isMatchedMethod(Method method) {
-			if (method.getAnnotation(LogPerformance.class) != null) {
-				return true;
-			} if (targetType.getAnnotation(LogPerformance.class) != null) {
-				return true;
-			} else {
-				return false;
-			}
+			return getDescriptor(method) != null;
 		}
 	}
 
-}
\ No newline at end of file
+}
@@ -19,19 +19,24 @@ import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.determineParam
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.matchMethod;
 import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.obtainToStringStrategy;
 import static com.groupcdg.carbon.logging.helper.spi.RecordingHelper.getLogger;
-import static com.groupcdg.carbon.logging.helper.spi.RecordingHelper.logAfter;
+import static com.groupcdg.carbon.logging.helper.spi.RecordingHelper.logAfterNanos;
 
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import com.groupcdg.carbon.logging.annotation.Level;
 import com.groupcdg.carbon.logging.annotation.Record;
+import com.groupcdg.carbon.logging.annotation.Sampling;
 import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
+import com.groupcdg.carbon.logging.metrics.InvocationMetricsRegistry;
 import com.groupcdg.carbon.logging.tostring.ReflectionToStringStrategy;
 import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
 
-public class RecordingMethodInterceptor implements MethodInterceptor {
+public class RecordingMethodInterceptor implements MethodInterceptor, MethodMatcher {
 
 	private static final RecordingMethodInterceptor ERROR = new RecordingMethodInterceptor(new StaticConfiguration(Level.ERROR));
 	private static final RecordingMethodInterceptor WARN = new RecordingMethodInterceptor(new StaticConfiguration(Level.WARN));
@@ -41,6 +46,8 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 	private static final RecordingMethodInterceptor DEFAULT = new RecordingMethodInterceptor(new StaticConfiguration(Level.DEFAULT));
 	private static final RecordingMethodInterceptor NONE = new RecordingMethodInterceptor(new StaticConfiguration(Level.NONE));
 
+	private static final InvocationMetricsRegistry METRICS = new InvocationMetricsRegistry("Recording");
+
 	private Configuration configuration;
 
 	private RecordingMethodInterceptor(RecordingMethodInterceptor.Configuration configuration) {
@@ -48,10 +55,11 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 	}
 
 	@Override
-	public Long interceptBefore(Object proxy, Method method, Object[] args, Object realTarget) {
+	public Object interceptBefore(Object proxy, Method method, Object[] args, Object realTarget) {
 
 		if (configuration.isMatchedMethod(method)) {
-			return Long.valueOf(System.currentTimeMillis());
+			METRICS.forMethod(LoggingUtils.determineActualType(proxy), method).enter();
+			return InvocationTimer.start();
 		}
 		return null;
 	}
@@ -61,11 +69,15 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 			Object interceptBefore) {
 
 		if (configuration.isMatchedMethod(method)) {
-			long finish = System.currentTimeMillis();
+			long durationNanos = InvocationTimer.stop(interceptBefore);
 			Class<?> proxiedInterface = LoggingUtils.determineActualType(proxy);
+			METRICS.forMethod(proxiedInterface, method).exit(durationNanos, false);
+			if (!configuration.getSampler(method).sample()) {
+				return;
+			}
 			String[] paramNames = determineParameterNames(method.getParameters());
 
-			logAfter(getLogger(), proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.isLogArgs(method), ((Long)interceptBefore).longValue(), finish, configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+			logAfterNanos(getLogger(), proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.isLogArgs(method), durationNanos, configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
 		}
 	}
 
@@ -75,14 +87,21 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 
 		boolean matchedMethod = configuration.isMatchedMethod(method);
 		if (matchedMethod) {
-			long finish = System.currentTimeMillis();
+			long durationNanos = InvocationTimer.stop(interceptBefore);
 			Class<?> proxiedInterface = LoggingUtils.determineActualType(proxy);
+			METRICS.forMethod(proxiedInterface, method).exit(durationNanos, true);
+			// Invocations that throw are recorded whether or not they are sampled
 			String[] paramNames = determineParameterNames(method.getParameters());
 
-			logAfter(getLogger(), proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.isLogArgs(method), ((Long)interceptBefore).longValue(), finish, configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
+			logAfterNanos(getLogger(), proxiedInterface, method.getName(), paramNames, args, configuration.getLevelToUse(method), configuration.isLogArgs(method), durationNanos, configuration.getToStringStrategy(method), configuration.isIncludeStartAndEndMarkers(method));
 		}
 	}
 
+	@Override
+	public boolean isMatchedMethod(Method method) {
+		return configuration.isMatchedMethod(method);
+	}
+
 	public static RecordingMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers) {
 		return new RecordingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers));
 	}
@@ -91,6 +110,10 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 		return new RecordingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, matchMethods));
 	}
 
+	public static RecordingMethodInterceptor of(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, int sampleRate, Sampling sampling, Method... matchMethods) {
+		return new RecordingMethodInterceptor(new StaticConfiguration(level, toStringStrategy, logArgs, includeStartAndEndMarkers, sampleRate, sampling, matchMethods));
+	}
+
 	public static RecordingMethodInterceptor of(Level level) {
 
 		switch(level) {
@@ -127,6 +150,8 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 
 		public boolean isIncludeStartAndEndMarkers(Method method);
 
+		public InvocationSampler getSampler(Method method);
+
 		public boolean isMatchedMethod(Method method);
 	}
 
@@ -140,8 +165,14 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 
 		private boolean includeStartAndEndMarkers = true;
 
+		private int sampleRate = 1;
+
+		private Sampling sampling = Sampling.RANDOM;
+
 		private Method[] matchMethods = null;
 
+		private final ConcurrentMap<Method, InvocationSampler> samplers = new ConcurrentHashMap<>();
+
 		private StaticConfiguration(Level levelToUse) {
 			this.levelToUse = levelToUse;
 		}
@@ -161,6 +192,12 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 			this.matchMethods = matchMethods;
 		}
 
+		private StaticConfiguration(Level level, ToStringStrategy toStringStrategy, boolean logArgs, boolean includeStartAndEndMarkers, int sampleRate, Sampling sampling, Method... matchMethods) {
+			this(level, toStringStrategy, logArgs, includeStartAndEndMarkers, matchMethods);
+			this.sampleRate = sampleRate;
+			this.sampling = sampling;
+		}
+
 		@Override
 		public Level getLevelToUse(Method method) {
 			return levelToUse;
@@ -181,6 +218,23 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 			return includeStartAndEndMarkers;
 		}
 
+		@Override
+		public InvocationSampler getSampler(Method method) {
+
+			if (sampleRate == 1) {
+				return InvocationSampler.always();
+			}
+			InvocationSampler sampler = samplers.get(method);
+			if (sampler == null) {
+				sampler = InvocationSampler.of(sampleRate, sampling);
+				InvocationSampler existing = samplers.putIfAbsent(method, sampler);
+				if (existing != null) {
+					sampler = existing;
+				}
+			}
+			return sampler;
+		}
+
 		@Override
 		public boolean isMatchedMethod(Method method) {
 			return matchMethod(method, matchMethods);
@@ -191,6 +245,8 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 
 		private Class<?> targetType;
 
+		private final ConcurrentMap<Method, InvocationSampler> samplers = new ConcurrentHashMap<>();
+
 		private TargetAnnotationConfiguration(Class<?> targetType) {
 			this.targetType = targetType;
 		}
@@ -226,6 +282,21 @@ public class RecordingMethodInterceptor implements MethodInterceptor {
 			return record.includeStartAndEndMarkers();
 		}
 
+		@Override
+		public InvocationSampler getSampler(Method method) {
+
+			InvocationSampler sampler = samplers.get(method);
+			if (sampler == null) {
+				Record record = findRecord(targetType, method);
+				sampler = InvocationSampler.of(record.sampleRate(), record.sampling());
+				InvocationSampler existing = samplers.putIfAbsent(method, sampler);
+				if (existing != null) {
+					sampler = existing;
+				}
+			}
+			return sampler;
+		}
+
 		@Override
 		public boolean isMatchedMethod(Method method) {
 			if (method.getAnnotation(Record.class) != null) {
@@ -0,0 +1,33 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import java.util.Map;
+
+/**
+ * The management interface exposing the invocation statistics of the intercepted methods of a
+ * target class
+ */
+public interface InvocationMetricsMXBean {
+
+	String getTargetClass();
+
+	/**
+	 * @return The statistics of each intercepted method, keyed by method signature with fully
+	 * qualified parameter types
+	 */
+	Map<String, InvocationStatistics> getMethods();
+}
@@ -0,0 +1,211 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.InstanceNotFoundException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the invocation metrics of each intercepted method, grouped by target class. The metrics of
+ * each target class are registered with the platform MBean server when its first method is
+ * intercepted, under the name
+ * {@code com.groupcdg.carbon.logging:type=<category>Metrics,name=<target class>}.
+ * <p>
+ * Registered beans hold their methods' metrics by signature and their target class only weakly,
+ * so that they do not keep the class or its loader reachable. When a class of the same name is
+ * registered from another loader, such as after a redeployment, its bean replaces the previous
+ * one, and beans whose class has been collected are unregistered when the next class is
+ * registered.
+ */
+public final class InvocationMetricsRegistry {
+
+	private static final Logger LOGGER = LoggerFactory.getLogger(InvocationMetricsRegistry.class);
+
+	private static final String DOMAIN = "com.groupcdg.carbon.logging";
+
+	private final String category;
+
+	/**
+	 * The metrics of each target class, with the metrics of each method resolved from the class
+	 * held alongside so that calls do not rebuild its signature
+	 */
+	private final ClassValue<ClassBinding> classBindings = new ClassValue<ClassBinding>() {
+		@Override
+		protected ClassBinding computeValue(Class<?> type) {
+			return new ClassBinding(new ClassMetrics(type));
+		}
+	};
+
+	private final ConcurrentMap<ObjectName, ClassMetrics> registered = new ConcurrentHashMap<>();
+
+	/**
+	 * @param category Distinguishes registries, such as those of different interceptors, whose
+	 * metrics would otherwise be registered under the same name
+	 */
+	public InvocationMetricsRegistry(String category) {
+		this.category = category;
+	}
+
+	/**
+	 * Returns the metrics for a method, creating them if necessary
+	 * @param targetClass The class or interface through which the method was called
+	 * @param method The method
+	 * @return The metrics
+	 */
+	public MethodInvocationMetrics forMethod(Class<?> targetClass, Method method) {
+
+		ClassBinding binding = classBindings.get(targetClass);
+		MethodInvocationMetrics metrics = binding.methods.get(method);
+		if (metrics == null) {
+			// Registered here rather than in computeValue, which may create instances it discards
+			if (binding.metrics.registered.compareAndSet(false, true)) {
+				register(binding.metrics);
+			}
+			metrics = binding.metrics.forSignature(signatureOf(method));
+			MethodInvocationMetrics existing = binding.methods.putIfAbsent(method, metrics);
+			if (existing != null) {
+				metrics = existing;
+			}
+		}
+		return metrics;
+	}
+
+	private void register(ClassMetrics metrics) {
+
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try {
+			unregisterCollected(server);
+
+			ObjectName name = new ObjectName(DOMAIN + ":type=" + category + "Metrics,name=" + ObjectName.quote(metrics.getTargetClass()));
+			ClassMetrics previous = registered.put(name, metrics);
+			if (previous != null || server.isRegistered(name)) {
+				unregister(server, name);
+			}
+			server.registerMBean(metrics, name);
+		} catch (JMException | SecurityException e) {
+			LOGGER.debug("Could not register invocation metrics for {}", metrics.getTargetClass(), e);
+		}
+	}
+
+	private void unregisterCollected(MBeanServer server) throws JMException {
+
+		for (Iterator<Map.Entry<ObjectName, ClassMetrics>> i = registered.entrySet().iterator(); i.hasNext();) {
+			Map.Entry<ObjectName, ClassMetrics> next = i.next();
+			if (next.getValue().targetClass.get() == null) {
+				i.remove();
+				unregister(server, next.getKey());
+			}
+		}
+	}
+
+	private static void unregister(MBeanServer server, ObjectName name) throws JMException {
+		try {
+			server.unregisterMBean(name);
+		} catch (InstanceNotFoundException e) {
+			// Already unregistered
+		}
+	}
+
+	private static String signatureOf(Method method) {
+
+		StringBuilder signature = new StringBuilder(method.getName()).append('(');
+		Class<?>[] parameterTypes = method.getParameterTypes();
+		for (int i = 0; i < parameterTypes.length; i++) {
+			if (i > 0) {
+				signature.append(',');
+			}
+			signature.append(parameterTypes[i].getTypeName());
+		}
+		return signature.append(')').toString();
+	}
+
+	/**
+	 * The metrics of a class and the metrics of each of its methods, held in a ClassValue of the class
+	 */
+	private static final class ClassBinding {
+
+		private final ClassMetrics metrics;
+
+		private final ConcurrentMap<Method, MethodInvocationMetrics> methods = new ConcurrentHashMap<>();
+
+		private ClassBinding(ClassMetrics metrics) {
+			this.metrics = metrics;
+		}
+	}
+
+	private static final class ClassMetrics implements InvocationMetricsMXBean {
+
+		private final String targetClassName;
+
+		private final WeakReference<Class<?>> targetClass;
+
+		private final AtomicBoolean registered = new AtomicBoolean();
+
+		/**
+		 * Keyed by signature, which different Method objects, such as those of an interface and of
+		 * the class implementing it, may share
+		 */
+		private final ConcurrentMap<String, MethodInvocationMetrics> signatures = new ConcurrentHashMap<>();
+
+		private ClassMetrics(Class<?> targetClass) {
+			this.targetClassName = targetClass.getName();
+			this.targetClass = new WeakReference<Class<?>>(targetClass);
+		}
+
+		private MethodInvocationMetrics forSignature(String signature) {
+
+			MethodInvocationMetrics metrics = signatures.get(signature);
+			if (metrics == null) {
+				metrics = new MethodInvocationMetrics(signature);
+				MethodInvocationMetrics existing = signatures.putIfAbsent(signature, metrics);
+				if (existing != null) {
+					metrics = existing;
+				}
+			}
+			return metrics;
+		}
+
+		@Override
+		public String getTargetClass() {
+			return targetClassName;
+		}
+
+		@Override
+		public Map<String, InvocationStatistics> getMethods() {
+
+			Map<String, InvocationStatistics> result = new TreeMap<>();
+			for (MethodInvocationMetrics next : signatures.values()) {
+				result.put(next.getSignature(), next.snapshot());
+			}
+			return result;
+		}
+	}
+}
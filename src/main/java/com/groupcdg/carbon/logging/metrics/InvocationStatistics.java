@@ -0,0 +1,63 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import java.beans.ConstructorProperties;
+
+/**
+ * The invocation statistics of a method at a point in time
+ */
+public final class InvocationStatistics {
+
+	private final long invocationCount;
+	private final long errorCount;
+	private final long inFlightCount;
+	private final long totalDurationNanos;
+	private final long maxDurationNanos;
+
+	@ConstructorProperties({"invocationCount", "errorCount", "inFlightCount", "totalDurationNanos", "maxDurationNanos"})
+	public InvocationStatistics(long invocationCount, long errorCount, long inFlightCount, long totalDurationNanos, long maxDurationNanos) {
+		this.invocationCount = invocationCount;
+		this.errorCount = errorCount;
+		this.inFlightCount = inFlightCount;
+		this.totalDurationNanos = totalDurationNanos;
+		this.maxDurationNanos = maxDurationNanos;
+	}
+
+	public long getInvocationCount() {
+		return invocationCount;
+	}
+
+	public long getErrorCount() {
+		return errorCount;
+	}
+
+	public long getInFlightCount() {
+		return inFlightCount;
+	}
+
+	public long getTotalDurationNanos() {
+		return totalDurationNanos;
+	}
+
+	public long getMaxDurationNanos() {
+		return maxDurationNanos;
+	}
+
+	public long getMeanDurationNanos() {
+		return invocationCount == 0 ? 0 : totalDurationNanos / invocationCount;
+	}
+}
@@ -0,0 +1,195 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A latency histogram for a single method with lock-free recording. Values are counted in
+ * log-linear buckets, exact below 64 nanoseconds and otherwise with 32 buckets per power of two,
+ * giving a relative error of about 3% across the full range.
+ * <p>
+ * Counts are never reset. Each call to {@link #interval()} reports the values recorded since the
+ * previous call, so recording threads never coordinate with the reporter.
+ */
+public final class LatencyHistogram {
+
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT_BITS = SUB_BUCKET_BITS + 1;
+	private static final long LINEAR_LIMIT = 1L << LINEAR_LIMIT_BITS;
+
+	/**
+	 * Values above 2^42 nanoseconds (about 73 minutes) are counted in the highest bucket
+	 */
+	private static final int MAX_BITS = 42;
+	private static final long MAX_TRACKABLE = (1L << MAX_BITS) - 1;
+	private static final int BUCKET_COUNT = (int) LINEAR_LIMIT + (MAX_BITS - LINEAR_LIMIT_BITS) * SUB_BUCKET_COUNT;
+
+	private final String name;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKET_COUNT);
+
+	private final AtomicLong intervalMax = new AtomicLong();
+
+	/**
+	 * The counts at the previous interval, guarded by this
+	 */
+	private final long[] reported = new long[BUCKET_COUNT];
+
+	LatencyHistogram(String name) {
+		this.name = name;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Records a call duration
+	 * @param nanos The duration in nanoseconds
+	 */
+	public void record(long nanos) {
+
+		long value = nanos < 0 ? 0 : nanos;
+		counts.incrementAndGet(indexFor(value));
+
+		long max = intervalMax.get();
+		while (value > max && !intervalMax.compareAndSet(max, value)) {
+			max = intervalMax.get();
+		}
+	}
+
+	/**
+	 * Returns the durations recorded since the previous call and starts a new interval
+	 * @return The interval's summary
+	 */
+	public synchronized Summary interval() {
+
+		long max = intervalMax.getAndSet(0);
+
+		long[] intervalCounts = new long[BUCKET_COUNT];
+		long total = 0;
+		for (int i = 0; i < BUCKET_COUNT; i++) {
+			long current = counts.get(i);
+			intervalCounts[i] = current - reported[i];
+			reported[i] = current;
+			total += intervalCounts[i];
+		}
+
+		return new Summary(name, total,
+				valueAtPercentile(intervalCounts, total, 0.5d, max),
+				valueAtPercentile(intervalCounts, total, 0.9d, max),
+				valueAtPercentile(intervalCounts, total, 0.99d, max),
+				valueAtPercentile(intervalCounts, total, 0.999d, max),
+				max);
+	}
+
+	static int indexFor(long value) {
+
+		if (value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		long clamped = value > MAX_TRACKABLE ? MAX_TRACKABLE : value;
+		int exponent = 63 - Long.numberOfLeadingZeros(clamped);
+		int subBucket = (int) (clamped >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+		return (int) LINEAR_LIMIT + (exponent - LINEAR_LIMIT_BITS) * SUB_BUCKET_COUNT + subBucket;
+	}
+
+	/**
+	 * The highest value counted in the given bucket
+	 */
+	static long highestValueFor(int index) {
+
+		if (index < LINEAR_LIMIT) {
+			return index;
+		}
+		int offset = index - (int) LINEAR_LIMIT;
+		int exponent = LINEAR_LIMIT_BITS + offset / SUB_BUCKET_COUNT;
+		long subBucket = offset % SUB_BUCKET_COUNT;
+		long width = 1L << (exponent - SUB_BUCKET_BITS);
+		return (1L << exponent) + subBucket * width + width - 1;
+	}
+
+	private static long valueAtPercentile(long[] intervalCounts, long total, double percentile, long max) {
+
+		if (total == 0) {
+			return 0;
+		}
+		long target = (long) Math.ceil(percentile * total);
+		long cumulative = 0;
+		for (int i = 0; i < intervalCounts.length; i++) {
+			cumulative += intervalCounts[i];
+			if (cumulative >= target) {
+				return Math.min(highestValueFor(i), max);
+			}
+		}
+		return max;
+	}
+
+	/**
+	 * The durations recorded for a method over an interval, in nanoseconds
+	 */
+	public static final class Summary {
+
+		private final String name;
+		private final long count;
+		private final long p50;
+		private final long p90;
+		private final long p99;
+		private final long p999;
+		private final long max;
+
+		private Summary(String name, long count, long p50, long p90, long p99, long p999, long max) {
+			this.name = name;
+			this.count = count;
+			this.p50 = p50;
+			this.p90 = p90;
+			this.p99 = p99;
+			this.p999 = p999;
+			this.max = max;
+		}
+
+		public String getName() {
+			return name;
+		}
+
+		public long getCount() {
+			return count;
+		}
+
+		public long getP50() {
+			return p50;
+		}
+
+		public long getP90() {
+			return p90;
+		}
+
+		public long getP99() {
+			return p99;
+		}
+
+		public long getP999() {
+			return p999;
+		}
+
+		public long getMax() {
+			return max;
+		}
+	}
+}
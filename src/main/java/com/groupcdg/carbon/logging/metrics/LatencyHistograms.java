@@ -0,0 +1,144 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import static com.groupcdg.carbon.logging.helper.spi.LoggingUtils.formatNanosAsMillis;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Holds the latency histogram for each method and periodically logs a percentile summary of each
+ * histogram that recorded calls in the interval. Summaries are logged at INFO to the logger named
+ * PerfSummaryLogger. The reporter runs on a daemon thread started when the first histogram is
+ * created; its interval defaults to 60 seconds and may be set with the system property
+ * {@value #REPORT_INTERVAL_PROPERTY}, where a value of zero or less disables periodic reporting.
+ * Histograms are only weakly reachable from the reporter, so those of unloaded classes can be
+ * collected.
+ */
+public final class LatencyHistograms {
+
+	public static final String REPORT_INTERVAL_PROPERTY = "com.groupcdg.carbon.logging.latencyReportIntervalSeconds";
+
+	private static final long REPORT_INTERVAL_SECONDS = Long.getLong(REPORT_INTERVAL_PROPERTY, 60L).longValue();
+
+	private static final Logger SUMMARY_LOGGER = LoggerFactory.getLogger("PerfSummaryLogger");
+
+	private static final ClassValue<ConcurrentMap<Method, LatencyHistogram>> HISTOGRAMS = new ClassValue<ConcurrentMap<Method, LatencyHistogram>>() {
+		@Override
+		protected ConcurrentMap<Method, LatencyHistogram> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<>();
+		}
+	};
+
+	private static final Set<LatencyHistogram> ALL_HISTOGRAMS = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<LatencyHistogram, Boolean>()));
+
+	private static final AtomicBoolean REPORTER_STARTED = new AtomicBoolean();
+
+	private LatencyHistograms() {
+	}
+
+	/**
+	 * Returns the histogram for a method, creating it if necessary
+	 * @param targetClass The class or interface through which the method was called
+	 * @param method The method
+	 * @return The histogram
+	 */
+	public static LatencyHistogram forMethod(Class<?> targetClass, Method method) {
+
+		ConcurrentMap<Method, LatencyHistogram> histograms = HISTOGRAMS.get(targetClass);
+		LatencyHistogram histogram = histograms.get(method);
+		if (histogram == null) {
+			histogram = new LatencyHistogram(targetClass.getName() + "." + method.getName());
+			LatencyHistogram existing = histograms.putIfAbsent(method, histogram);
+			if (existing != null) {
+				histogram = existing;
+			} else {
+				ALL_HISTOGRAMS.add(histogram);
+				startReporter();
+			}
+		}
+		return histogram;
+	}
+
+	/**
+	 * Logs a summary of each histogram that recorded calls since the previous report
+	 * @return The summaries logged
+	 */
+	public static List<LatencyHistogram.Summary> report() {
+
+		// Copied so that the set is not locked while logging
+		List<LatencyHistogram> histograms;
+		synchronized (ALL_HISTOGRAMS) {
+			histograms = new ArrayList<>(ALL_HISTOGRAMS);
+		}
+
+		List<LatencyHistogram.Summary> summaries = new ArrayList<>();
+		for (LatencyHistogram histogram : histograms) {
+			LatencyHistogram.Summary summary = histogram.interval();
+			if (summary.getCount() > 0) {
+				summaries.add(summary);
+				if (SUMMARY_LOGGER.isInfoEnabled()) {
+					SUMMARY_LOGGER.info("Latency of {} over {} calls: p50={} p90={} p99={} p999={} max={} milliseconds",
+							summary.getName(), summary.getCount(),
+							formatNanosAsMillis(summary.getP50()), formatNanosAsMillis(summary.getP90()), formatNanosAsMillis(summary.getP99()),
+							formatNanosAsMillis(summary.getP999()), formatNanosAsMillis(summary.getMax()));
+				}
+			}
+		}
+		return summaries;
+	}
+
+	private static void startReporter() {
+
+		if (REPORT_INTERVAL_SECONDS <= 0 || !REPORTER_STARTED.compareAndSet(false, true)) {
+			return;
+		}
+
+		ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "carbon-logging-latency-reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleAtFixedRate(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					report();
+				} catch (RuntimeException e) {
+					SUMMARY_LOGGER.warn("Could not report latency summaries", e);
+				}
+			}
+		}, REPORT_INTERVAL_SECONDS, REPORT_INTERVAL_SECONDS, TimeUnit.SECONDS);
+	}
+}
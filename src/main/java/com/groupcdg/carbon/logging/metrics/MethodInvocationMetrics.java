@@ -0,0 +1,85 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongBinaryOperator;
+
+/**
+ * Invocation counters for a single method. Counters are striped so that threads calling a heavily
+ * contended method do not serialise on a single cache line.
+ */
+public final class MethodInvocationMetrics {
+
+	private static final LongBinaryOperator MAX = new LongBinaryOperator() {
+		@Override
+		public long applyAsLong(long left, long right) {
+			return Math.max(left, right);
+		}
+	};
+
+	private final String signature;
+
+	private final LongAdder invocations = new LongAdder();
+
+	private final LongAdder errors = new LongAdder();
+
+	private final LongAdder inFlight = new LongAdder();
+
+	private final LongAdder totalDurationNanos = new LongAdder();
+
+	private final LongAccumulator maxDurationNanos = new LongAccumulator(MAX, 0L);
+
+	MethodInvocationMetrics(String signature) {
+		this.signature = signature;
+	}
+
+	public String getSignature() {
+		return signature;
+	}
+
+	/**
+	 * Records the start of a call
+	 */
+	public void enter() {
+		inFlight.increment();
+	}
+
+	/**
+	 * Records the end of a call started with {@link #enter()}
+	 * @param durationNanos The duration of the call in nanoseconds
+	 * @param failed True if the call threw an exception
+	 */
+	public void exit(long durationNanos, boolean failed) {
+		inFlight.decrement();
+		invocations.increment();
+		if (failed) {
+			errors.increment();
+		}
+		totalDurationNanos.add(durationNanos);
+		maxDurationNanos.accumulate(durationNanos);
+	}
+
+	/**
+	 * Returns a point in time copy of the counters. Counters are read individually, so a copy taken
+	 * while calls are completing may be inconsistent by those calls.
+	 * @return The statistics
+	 */
+	public InvocationStatistics snapshot() {
+		return new InvocationStatistics(invocations.sum(), errors.sum(), inFlight.sum(), totalDurationNanos.sum(), maxDurationNanos.get());
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Collections;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.TypeElement;
+import javax.tools.Diagnostic;
+import javax.tools.JavaFileObject;
+
+import com.groupcdg.carbon.logging.annotation.GenerateDecorator;
+
+/**
+ * Generates a logging decorator for each type annotated with {@link GenerateDecorator}. Decorators
+ * delegate to the instance passed to their constructor and call LoggingHelper, PerformanceHelper,
+ * RecordingHelper and ExceptionHelper directly for the methods carrying @Log (or @Error, @Warn,
+ * @Info, @Debug, @Trace, @None), @LogPerformance, @Record and @LogExceptions, with the annotation
+ * values compiled in as constants. Unannotated methods only delegate.
+ * <p>
+ * The processor is not registered as a service, so that it is never run unexpectedly. Enable it
+ * by naming it in the compiler's processor configuration, for example
+ * {@code -processor com.groupcdg.carbon.logging.processor.DecoratorProcessor}.
+ */
+public class DecoratorProcessor extends AbstractProcessor {
+
+	@Override
+	public Set<String> getSupportedAnnotationTypes() {
+		return Collections.singleton(GenerateDecorator.class.getName());
+	}
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+
+		for (Element element : roundEnv.getElementsAnnotatedWith(GenerateDecorator.class)) {
+			if (element.getKind() != ElementKind.INTERFACE && element.getKind() != ElementKind.CLASS) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@GenerateDecorator may only be applied to interfaces and classes", element);
+				continue;
+			}
+
+			TypeElement type = (TypeElement) element;
+			DecoratorWriter writer = new DecoratorWriter(processingEnv, type);
+			if (type.getKind() == ElementKind.CLASS && writer.getInterfaces().isEmpty()) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "@GenerateDecorator classes must implement at least one interface", element);
+				continue;
+			}
+
+			try {
+				JavaFileObject file = processingEnv.getFiler().createSourceFile(writer.getQualifiedName(), type);
+				try (Writer out = file.openWriter()) {
+					out.write(writer.write());
+				}
+			} catch (IOException e) {
+				processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, "Could not write decorator " + writer.getQualifiedName() + ": " + e.getMessage(), element);
+			}
+		}
+		return true;
+	}
+}
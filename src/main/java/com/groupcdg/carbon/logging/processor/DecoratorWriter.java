@@ -0,0 +1,761 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.processor;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.processing.ProcessingEnvironment;
+import javax.lang.model.element.AnnotationMirror;
+import javax.lang.model.element.AnnotationValue;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.TypeParameterElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.ExecutableType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Elements;
+import javax.lang.model.util.Types;
+
+/**
+ * Writes the source of the logging decorator for a single type. Each advised method resolves its
+ * configuration into static final fields named after the method's index, so that the generated
+ * methods only reference constants. The advice applied mirrors that of the corresponding
+ * interceptors, except that decorators do not publish JMX invocation metrics.
+ */
+final class DecoratorWriter {
+
+	private static final String ANNOTATION_PACKAGE = "com.groupcdg.carbon.logging.annotation.";
+	private static final String HELPER_PACKAGE = "com.groupcdg.carbon.logging.helper.spi.";
+
+	private static final String LEVEL = ANNOTATION_PACKAGE + "Level.";
+	private static final String SAMPLING = ANNOTATION_PACKAGE + "Sampling.";
+	private static final String LOGGING_HELPER = HELPER_PACKAGE + "LoggingHelper";
+	private static final String LOGGING_UTILS = HELPER_PACKAGE + "LoggingUtils";
+	private static final String PERFORMANCE_HELPER = HELPER_PACKAGE + "PerformanceHelper";
+	private static final String RECORDING_HELPER = HELPER_PACKAGE + "RecordingHelper";
+	private static final String EXCEPTION_HELPER = HELPER_PACKAGE + "ExceptionHelper";
+	private static final String LATENCY_BUCKETS = HELPER_PACKAGE + "LatencyBuckets";
+	private static final String LOG_RATE_LIMITER = HELPER_PACKAGE + "LogRateLimiter";
+	private static final String STACK_TRACE_RENDERER = HELPER_PACKAGE + "StackTraceRenderer";
+	private static final String INVOCATION_SAMPLER = "com.groupcdg.carbon.logging.interceptor.InvocationSampler";
+	private static final String TO_STRING_STRATEGY = "com.groupcdg.carbon.logging.tostring.api.ToStringStrategy";
+	private static final String LATENCY_HISTOGRAM = "com.groupcdg.carbon.logging.metrics.LatencyHistogram";
+	private static final String LATENCY_HISTOGRAMS = "com.groupcdg.carbon.logging.metrics.LatencyHistograms";
+	private static final String EXCEPTION_TYPES = "Class<? extends Throwable>[]";
+
+	/**
+	 * Precedes fields of EXCEPTION_TYPES, which can only be initialised with an array of raw Class
+	 */
+	private static final String SUPPRESS_EXCEPTION_TYPES_WARNINGS = "\t@java.lang.SuppressWarnings({\"unchecked\", \"rawtypes\"})\n";
+
+	/**
+	 * The annotations applied by LoggingMethodInterceptor, with the level each logs at by default
+	 */
+	private static final String[][] LOG_ANNOTATIONS = new String[][] {
+		{ "Log", "TRACE" }, { "Error", "ERROR" }, { "Warn", "WARN" }, { "Info", "INFO" }, { "Debug", "DEBUG" }, { "Trace", "TRACE" }, { "None", "NONE" }
+	};
+
+	private final Elements elements;
+
+	private final Types types;
+
+	private final TypeElement type;
+
+	private final String packageName;
+
+	private final String simpleName;
+
+	private final List<DeclaredType> interfaces = new ArrayList<>();
+
+	private final List<ProxiedMethod> methods = new ArrayList<>();
+
+	DecoratorWriter(ProcessingEnvironment processingEnv, TypeElement type) {
+
+		this.elements = processingEnv.getElementUtils();
+		this.types = processingEnv.getTypeUtils();
+		this.type = type;
+		this.packageName = elements.getPackageOf(type).getQualifiedName().toString();
+
+		StringBuilder name = new StringBuilder(type.getSimpleName());
+		for (Element next = type.getEnclosingElement(); next.getKind() != ElementKind.PACKAGE; next = next.getEnclosingElement()) {
+			name.insert(0, next.getSimpleName() + "_");
+		}
+		this.simpleName = name.append("LoggingDecorator").toString();
+
+		if (type.getKind() == ElementKind.INTERFACE) {
+			interfaces.add((DeclaredType) type.asType());
+		} else {
+			for (TypeMirror next : type.getInterfaces()) {
+				interfaces.add((DeclaredType) next);
+			}
+		}
+		collectMethods();
+	}
+
+	List<DeclaredType> getInterfaces() {
+		return interfaces;
+	}
+
+	String getQualifiedName() {
+		return packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+	}
+
+	private void collectMethods() {
+
+		DeclaredType decoratedType = (DeclaredType) type.asType();
+		Set<String> signatures = new HashSet<>();
+		for (DeclaredType next : interfaces) {
+			for (ExecutableElement method : ElementFilter.methodsIn(elements.getAllMembers((TypeElement) next.asElement()))) {
+				if (method.getEnclosingElement().getKind() != ElementKind.INTERFACE
+						|| method.getModifiers().contains(Modifier.STATIC) || method.getModifiers().contains(Modifier.PRIVATE)) {
+					continue;
+				}
+				ExecutableType methodType = (ExecutableType) types.asMemberOf(decoratedType, method);
+				StringBuilder signature = new StringBuilder(method.getSimpleName()).append('(');
+				for (TypeMirror parameterType : methodType.getParameterTypes()) {
+					signature.append(types.erasure(parameterType)).append(',');
+				}
+				if (signatures.add(signature.append(')').toString())) {
+					methods.add(new ProxiedMethod(methods.size(), method, methodType, findImplementation(method)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the element whose annotations configure a method: the implementing method of a
+	 * decorated class, or the interface method itself
+	 */
+	private ExecutableElement findImplementation(ExecutableElement method) {
+
+		if (type.getKind() == ElementKind.CLASS) {
+			for (ExecutableElement candidate : ElementFilter.methodsIn(elements.getAllMembers(type))) {
+				if (candidate.getSimpleName().equals(method.getSimpleName()) && candidate.getEnclosingElement().getKind() == ElementKind.CLASS
+						&& elements.overrides(candidate, method, type)) {
+					return candidate;
+				}
+			}
+		}
+		return method;
+	}
+
+	String write() {
+
+		List<Advice> allAdvice = new ArrayList<>();
+		for (ProxiedMethod method : methods) {
+			method.resolveAdvice();
+			allAdvice.addAll(method.advice);
+		}
+
+		StringBuilder out = new StringBuilder();
+		if (!packageName.isEmpty()) {
+			out.append("package ").append(packageName).append(";\n\n");
+		}
+		out.append("/**\n * Logging decorator for {@link ").append(erasure(type.asType())).append("}, generated by ")
+			.append(DecoratorProcessor.class.getName()).append("\n */\n");
+		if (type.getModifiers().contains(Modifier.PUBLIC)) {
+			out.append("public ");
+		}
+		out.append("final class ").append(simpleName).append(typeParameters(type.getTypeParameters())).append(" implements ");
+		for (int i = 0; i < interfaces.size(); i++) {
+			out.append(i == 0 ? "" : ", ").append(interfaces.get(i));
+		}
+		out.append(" {\n\n");
+
+		writeConstants(out, allAdvice);
+
+		out.append("\tprivate final ").append(type.asType()).append(" delegate;\n\n");
+		out.append("\tpublic ").append(simpleName).append("(").append(type.asType()).append(" delegate) {\n");
+		out.append("\t\tthis.delegate = delegate;\n");
+		out.append("\t}\n");
+
+		for (ProxiedMethod method : methods) {
+			method.write(out);
+		}
+		writeObjectMethods(out);
+
+		if (needsMethodLookup(allAdvice)) {
+			out.append("\n\tprivate static java.lang.reflect.Method method(String name, Class<?>... parameterTypes) {\n");
+			out.append("\t\ttry {\n");
+			out.append("\t\t\treturn TYPE.getMethod(name, parameterTypes);\n");
+			out.append("\t\t} catch (NoSuchMethodException e) {\n");
+			out.append("\t\t\tthrow new IllegalStateException(e);\n");
+			out.append("\t\t}\n");
+			out.append("\t}\n");
+		}
+		out.append("}\n");
+		return out.toString();
+	}
+
+	private void writeConstants(StringBuilder out, List<Advice> allAdvice) {
+
+		out.append("\tprivate static final Class<?> TYPE = ").append(erasure(type.asType())).append(".class;\n");
+		for (Advice advice : allAdvice) {
+			if (advice instanceof LoggingAdvice) {
+				out.append("\tprivate static final org.slf4j.Logger LOGGER = ").append(LOGGING_UTILS).append(".getLogger(TYPE);\n");
+				out.append(SUPPRESS_EXCEPTION_TYPES_WARNINGS);
+				out.append("\tprivate static final ").append(EXCEPTION_TYPES).append(" NO_EXCEPTION_TYPES = new Class[0];\n");
+				break;
+			}
+		}
+		out.append('\n');
+
+		for (ProxiedMethod method : methods) {
+			if (method.advice.isEmpty()) {
+				continue;
+			}
+			out.append("\tprivate static final String[] ").append(method.prefix).append("_PARAMS = new String[] {");
+			List<? extends VariableElement> parameters = method.element.getParameters();
+			for (int i = 0; i < parameters.size(); i++) {
+				out.append(i == 0 ? "" : ", ").append(elements.getConstantExpression(parameters.get(i).getSimpleName().toString()));
+			}
+			out.append("};\n");
+			for (Advice advice : method.advice) {
+				advice.writeConstants(out);
+			}
+			out.append('\n');
+		}
+	}
+
+	private void writeObjectMethods(StringBuilder out) {
+
+		out.append("\n\t@java.lang.Override\n\tpublic int hashCode() {\n\t\treturn delegate.hashCode();\n\t}\n");
+		out.append("\n\t@java.lang.Override\n\tpublic boolean equals(Object obj) {\n\t\treturn delegate.equals(obj);\n\t}\n");
+		out.append("\n\t@java.lang.Override\n\tpublic String toString() {\n\t\treturn delegate.toString();\n\t}\n");
+	}
+
+	private static boolean needsMethodLookup(List<Advice> allAdvice) {
+		for (Advice advice : allAdvice) {
+			if (advice instanceof PerformanceAdvice && ((PerformanceAdvice) advice).recordsSummary()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private String typeParameters(List<? extends TypeParameterElement> typeParameters) {
+
+		if (typeParameters.isEmpty()) {
+			return "";
+		}
+		StringBuilder result = new StringBuilder("<");
+		for (int i = 0; i < typeParameters.size(); i++) {
+			TypeParameterElement typeParameter = typeParameters.get(i);
+			result.append(i == 0 ? "" : ", ").append(typeParameter.getSimpleName());
+			List<? extends TypeMirror> bounds = typeParameter.getBounds();
+			if (!(bounds.size() == 1 && "java.lang.Object".equals(bounds.get(0).toString()))) {
+				for (int j = 0; j < bounds.size(); j++) {
+					result.append(j == 0 ? " extends " : " & ").append(bounds.get(j));
+				}
+			}
+		}
+		return result.append("> ").toString().trim();
+	}
+
+	private String erasure(TypeMirror typeMirror) {
+		return types.erasure(typeMirror).toString();
+	}
+
+	private static AnnotationMirror findAnnotation(Element element, String annotationName) {
+
+		for (AnnotationMirror mirror : element.getAnnotationMirrors()) {
+			if (((TypeElement) mirror.getAnnotationType().asElement()).getQualifiedName().contentEquals(annotationName)) {
+				return mirror;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * An interface method implemented by the decorator, and the advice applied to it
+	 */
+	private final class ProxiedMethod {
+
+		private final ExecutableElement element;
+
+		private final ExecutableType methodType;
+
+		private final ExecutableElement annotated;
+
+		private final String prefix;
+
+		private final List<Advice> advice = new ArrayList<>();
+
+		private ProxiedMethod(int index, ExecutableElement element, ExecutableType methodType, ExecutableElement annotated) {
+			this.element = element;
+			this.methodType = methodType;
+			this.annotated = annotated;
+			this.prefix = "M" + index;
+		}
+
+		private String name() {
+			return element.getSimpleName().toString();
+		}
+
+		/**
+		 * The name of the method as used to name rate limiters by the interceptors
+		 */
+		private String qualifiedName() {
+			return elements.getBinaryName((TypeElement) annotated.getEnclosingElement()) + "." + name();
+		}
+
+		private void resolveAdvice() {
+
+			for (String[] logAnnotation : LOG_ANNOTATIONS) {
+				AnnotationMirror mirror = findAnnotation(annotated, ANNOTATION_PACKAGE + logAnnotation[0]);
+				if (mirror != null) {
+					advice.add(new LoggingAdvice(this, prefix + "_" + logAnnotation[0].toUpperCase(), logAnnotation[0], logAnnotation[1], values(mirror)));
+				}
+			}
+			AnnotationMirror performance = findMethodOrTypeAnnotation(ANNOTATION_PACKAGE + "LogPerformance");
+			if (performance != null) {
+				advice.add(new PerformanceAdvice(this, prefix + "_PERF", values(performance)));
+			}
+			AnnotationMirror record = findMethodOrTypeAnnotation(ANNOTATION_PACKAGE + "Record");
+			if (record != null) {
+				advice.add(new RecordingAdvice(this, prefix + "_REC", values(record)));
+			}
+			AnnotationMirror exceptions = findMethodOrTypeAnnotation(ANNOTATION_PACKAGE + "LogExceptions");
+			if (exceptions != null) {
+				advice.add(new ExceptionAdvice(this, prefix + "_EXC", values(exceptions)));
+			}
+		}
+
+		private AnnotationMirror findMethodOrTypeAnnotation(String annotationName) {
+			AnnotationMirror mirror = findAnnotation(annotated, annotationName);
+			return mirror != null ? mirror : findAnnotation(type, annotationName);
+		}
+
+		private Values values(AnnotationMirror mirror) {
+			Map<String, AnnotationValue> result = new HashMap<>();
+			for (Map.Entry<? extends ExecutableElement, ? extends AnnotationValue> entry : elements.getElementValuesWithDefaults(mirror).entrySet()) {
+				result.put(entry.getKey().getSimpleName().toString(), entry.getValue());
+			}
+			return new Values(result);
+		}
+
+		private void write(StringBuilder out) {
+
+			boolean returnsValue = methodType.getReturnType().getKind() != TypeKind.VOID;
+			List<? extends VariableElement> parameters = element.getParameters();
+			List<? extends TypeMirror> parameterTypes = methodType.getParameterTypes();
+
+			out.append("\n\t@java.lang.Override\n\tpublic ");
+			String methodTypeParameters = typeParameters(element.getTypeParameters());
+			if (!methodTypeParameters.isEmpty()) {
+				out.append(methodTypeParameters).append(' ');
+			}
+			out.append(methodType.getReturnType()).append(' ').append(name()).append('(');
+			for (int i = 0; i < parameters.size(); i++) {
+				String parameterType = parameterTypes.get(i).toString();
+				if (element.isVarArgs() && i == parameters.size() - 1 && parameterType.endsWith("[]")) {
+					parameterType = parameterType.substring(0, parameterType.length() - 2) + "...";
+				}
+				out.append(i == 0 ? "" : ", ").append(parameterType).append(' ').append(parameters.get(i).getSimpleName());
+			}
+			out.append(')');
+			List<? extends TypeMirror> thrownTypes = methodType.getThrownTypes();
+			for (int i = 0; i < thrownTypes.size(); i++) {
+				out.append(i == 0 ? " throws " : ", ").append(thrownTypes.get(i));
+			}
+			out.append(" {\n");
+
+			StringBuilder call = new StringBuilder("this.delegate.").append(name()).append('(');
+			for (int i = 0; i < parameters.size(); i++) {
+				call.append(i == 0 ? "" : ", ").append(parameters.get(i).getSimpleName());
+			}
+			call.append(')');
+
+			if (advice.isEmpty()) {
+				out.append("\t\t").append(returnsValue ? "return " : "").append(call).append(";\n\t}\n");
+				return;
+			}
+
+			out.append("\t\tObject[] carbon$args = new Object[] {");
+			for (int i = 0; i < parameters.size(); i++) {
+				out.append(i == 0 ? "" : ", ").append(parameters.get(i).getSimpleName());
+			}
+			out.append("};\n");
+
+			boolean timed = false;
+			for (Advice next : advice) {
+				next.writeBefore(out);
+				timed |= next.isTimed();
+			}
+			if (timed) {
+				out.append("\t\tlong carbon$start = System.nanoTime();\n");
+			}
+			if (returnsValue) {
+				out.append("\t\t").append(methodType.getReturnType()).append(" carbon$result;\n");
+			}
+			out.append("\t\ttry {\n");
+			out.append("\t\t\t").append(returnsValue ? "carbon$result = " : "").append(call).append(";\n");
+			out.append("\t\t} catch (Throwable carbon$e) {\n");
+			if (timed) {
+				out.append("\t\t\tlong carbon$duration = System.nanoTime() - carbon$start;\n");
+			}
+			for (Advice next : advice) {
+				next.writeAfterThrowing(out);
+			}
+			out.append("\t\t\tthrow carbon$e;\n");
+			out.append("\t\t}\n");
+			if (timed) {
+				out.append("\t\tlong carbon$duration = System.nanoTime() - carbon$start;\n");
+			}
+			for (Advice next : advice) {
+				next.writeAfterReturning(out, returnsValue ? "carbon$result" : "null");
+			}
+			if (returnsValue) {
+				out.append("\t\treturn carbon$result;\n");
+			}
+			out.append("\t}\n");
+		}
+	}
+
+	/**
+	 * The values of an annotation, including defaults, rendered as Java source
+	 */
+	private final class Values {
+
+		private final Map<String, AnnotationValue> values;
+
+		private Values(Map<String, AnnotationValue> values) {
+			this.values = values;
+		}
+
+		private Object get(String name) {
+			return values.get(name).getValue();
+		}
+
+		private boolean bool(String name) {
+			return (Boolean) get(name);
+		}
+
+		private String literal(String name) {
+			Object value = get(name);
+			return value instanceof Long ? value + "L" : String.valueOf(value);
+		}
+
+		private String string(String name) {
+			return elements.getConstantExpression(get(name));
+		}
+
+		private String enumName(String name) {
+			return ((VariableElement) get(name)).getSimpleName().toString();
+		}
+
+		private String classLiteral(String name) {
+			return erasure((TypeMirror) get(name)) + ".class";
+		}
+
+		private List<String> list(String name, String suffix) {
+			List<String> result = new ArrayList<>();
+			for (Object next : (List<?>) get(name)) {
+				Object value = ((AnnotationValue) next).getValue();
+				if (value instanceof TypeMirror) {
+					result.add(erasure((TypeMirror) value) + suffix);
+				} else {
+					result.add(elements.getConstantExpression(value) + suffix);
+				}
+			}
+			return result;
+		}
+
+		private String array(String componentType, List<String> values) {
+			StringBuilder result = new StringBuilder("new ").append(componentType).append("[] {");
+			for (int i = 0; i < values.size(); i++) {
+				result.append(i == 0 ? "" : ", ").append(values.get(i));
+			}
+			return result.append('}').toString();
+		}
+
+		private String toStringStrategy() {
+			return LOGGING_UTILS + ".obtainToStringStrategy(" + classLiteral("toStringStrategy") + ", " + string("toStringStrategyStyleName") + ")";
+		}
+	}
+
+	/**
+	 * The code generated for one annotation on a method
+	 */
+	private abstract class Advice {
+
+		protected final ProxiedMethod method;
+
+		protected final String prefix;
+
+		protected final Values values;
+
+		private Advice(ProxiedMethod method, String prefix, Values values) {
+			this.method = method;
+			this.prefix = prefix;
+			this.values = values;
+		}
+
+		abstract void writeConstants(StringBuilder out);
+
+		void writeBefore(StringBuilder out) {
+		}
+
+		abstract void writeAfterReturning(StringBuilder out, String result);
+
+		abstract void writeAfterThrowing(StringBuilder out);
+
+		boolean isTimed() {
+			return false;
+		}
+
+		protected String constant(String suffix) {
+			return prefix + "_" + suffix;
+		}
+
+		protected void field(StringBuilder out, String fieldType, String suffix, String initializer) {
+			out.append("\tprivate static final ").append(fieldType).append(' ').append(constant(suffix)).append(" = ").append(initializer).append(";\n");
+		}
+
+		protected String methodName() {
+			return elements.getConstantExpression(method.name());
+		}
+
+		protected String params() {
+			return method.prefix + "_PARAMS";
+		}
+	}
+
+	/**
+	 * Applies @Log and its level specific variants, as LoggingMethodInterceptor does
+	 */
+	private final class LoggingAdvice extends Advice {
+
+		private final String sampledVariable;
+
+		private final String beforeLevel;
+
+		private final String afterLevel;
+
+		private final String exceptionLevel;
+
+		private LoggingAdvice(ProxiedMethod method, String prefix, String annotationName, String defaultLevel, Values values) {
+			super(method, prefix, values);
+			this.sampledVariable = "carbon$" + annotationName.toLowerCase() + "Sampled";
+
+			String baseLevel = "Log".equals(annotationName) ? values.enumName("level") : defaultLevel;
+			if ("DEFAULT".equals(baseLevel)) {
+				baseLevel = defaultLevel;
+			}
+			this.beforeLevel = effectiveLevel(baseLevel, values.enumName("beforeLevel"));
+			this.afterLevel = effectiveLevel(baseLevel, values.enumName("afterLevel"));
+			this.exceptionLevel = effectiveLevel(baseLevel, values.enumName("exceptionLevel"));
+		}
+
+		private String effectiveLevel(String baseLevel, String contextLevel) {
+			return LEVEL + ("DEFAULT".equals(contextLevel) ? baseLevel : contextLevel);
+		}
+
+		@Override
+		void writeConstants(StringBuilder out) {
+			field(out, TO_STRING_STRATEGY, "STRATEGY", values.toStringStrategy());
+			field(out, INVOCATION_SAMPLER, "SAMPLER", INVOCATION_SAMPLER + ".of(" + values.literal("sampleRate") + ", " + SAMPLING + values.enumName("sampling") + ")");
+			field(out, LOG_RATE_LIMITER, "RATE_LIMITER", LOG_RATE_LIMITER + ".of(" + elements.getConstantExpression(method.qualifiedName()) + ", " + values.literal("maxExceptionsLoggedPerSecond") + ")");
+			field(out, STACK_TRACE_RENDERER, "RENDERER", STACK_TRACE_RENDERER + ".of(" + values.literal("maxStackTraceFrames") + ", " + values.literal("collapseFrameworkFrames") + ")");
+		}
+
+		@Override
+		void writeBefore(StringBuilder out) {
+			out.append("\t\tboolean ").append(sampledVariable).append(" = ").append(constant("SAMPLER")).append(".sample();\n");
+			if (values.bool("logBefore")) {
+				out.append("\t\tif (").append(sampledVariable).append(") {\n");
+				out.append("\t\t\t").append(LOGGING_HELPER).append(".logBefore(LOGGER, TYPE, ").append(methodName()).append(", ").append(params()).append(", carbon$args, ")
+					.append(beforeLevel).append(", ").append(values.literal("logArguments")).append(", ").append(constant("STRATEGY")).append(", ").append(values.literal("includeStartAndEndMarkers")).append(");\n");
+				out.append("\t\t}\n");
+			}
+		}
+
+		@Override
+		void writeAfterReturning(StringBuilder out, String result) {
+			out.append("\t\tif (").append(sampledVariable).append(") {\n");
+			out.append("\t\t\t").append(LOGGING_HELPER).append(".logAfter(LOGGER, TYPE, ").append(methodName()).append(", ").append(erasure(method.element.getReturnType())).append(".class, ")
+				.append(afterLevel).append(", ").append(values.literal("logAfter")).append(", ").append(values.literal("logReturnValue")).append(", ").append(result).append(", ")
+				.append(constant("STRATEGY")).append(", ").append(values.literal("includeStartAndEndMarkers")).append(");\n");
+			out.append("\t\t}\n");
+		}
+
+		@Override
+		void writeAfterThrowing(StringBuilder out) {
+			out.append("\t\t\t").append(LOGGING_HELPER).append(".logAfterThrowing(LOGGER, TYPE, ").append(methodName()).append(", ").append(params()).append(", carbon$args, ")
+				.append(exceptionLevel).append(", ").append(values.literal("logExceptions")).append(", NO_EXCEPTION_TYPES, NO_EXCEPTION_TYPES, carbon$e, ").append(values.literal("printStackTrace")).append(", ")
+				.append(constant("RATE_LIMITER")).append(", ").append(constant("RENDERER")).append(", ").append(constant("STRATEGY")).append(", ").append(values.literal("includeStartAndEndMarkers")).append(");\n");
+		}
+	}
+
+	/**
+	 * Applies @LogPerformance, as PerformanceMethodInterceptor does
+	 */
+	private final class PerformanceAdvice extends Advice {
+
+		private final String latencyReporting;
+
+		private PerformanceAdvice(ProxiedMethod method, String prefix, Values values) {
+			super(method, prefix, values);
+			this.latencyReporting = values.enumName("latencyReporting");
+		}
+
+		private boolean recordsSummary() {
+			return !"PER_CALL".equals(latencyReporting);
+		}
+
+		private boolean logsPerCall() {
+			return !"SUMMARY".equals(latencyReporting);
+		}
+
+		@Override
+		boolean isTimed() {
+			return true;
+		}
+
+		@Override
+		void writeConstants(StringBuilder out) {
+			field(out, TO_STRING_STRATEGY, "STRATEGY", values.toStringStrategy());
+			field(out, INVOCATION_SAMPLER, "SAMPLER", INVOCATION_SAMPLER + ".of(" + values.literal("sampleRate") + ", " + SAMPLING + values.enumName("sampling") + ")");
+
+			long thresholdMicros = (Long) values.get("thresholdMicros");
+			long thresholdNanos = thresholdMicros >= 0 ? thresholdMicros * 1000L : (Long) values.get("thresholdMilliseconds") * 1000000L;
+			field(out, "long", "THRESHOLD_NANOS", thresholdNanos + "L");
+
+			List<String> loggerNames = values.list("bucketLoggerNames", "");
+			if (!loggerNames.isEmpty()) {
+				field(out, LATENCY_BUCKETS, "BUCKETS", LATENCY_BUCKETS + ".of(" + values.array("long", values.list("bucketMilliseconds", "L")) + ", " + values.array("String", loggerNames) + ")");
+			}
+			if (recordsSummary()) {
+				StringBuilder lookup = new StringBuilder(LATENCY_HISTOGRAMS).append(".forMethod(TYPE, method(").append(methodName());
+				for (TypeMirror parameterType : method.methodType.getParameterTypes()) {
+					lookup.append(", ").append(erasure(parameterType)).append(".class");
+				}
+				field(out, LATENCY_HISTOGRAM, "HISTOGRAM", lookup.append("))").toString());
+			}
+		}
+
+		private void writeLog(StringBuilder out, String indent) {
+			String buckets = values.list("bucketLoggerNames", "").isEmpty() ? LATENCY_BUCKETS + ".getDefault()" : constant("BUCKETS");
+			out.append(indent).append(PERFORMANCE_HELPER).append(".logAfterNanos(TYPE, ").append(methodName()).append(", ").append(params()).append(", carbon$args, ")
+				.append(LEVEL).append(values.enumName("level")).append(", ").append(values.literal("logArguments")).append(", carbon$duration, ").append(constant("THRESHOLD_NANOS")).append(", ")
+				.append(buckets).append(", ").append(constant("STRATEGY")).append(", ").append(values.literal("includeStartAndEndMarkers")).append(");\n");
+		}
+
+		@Override
+		void writeAfterReturning(StringBuilder out, String result) {
+			if (recordsSummary()) {
+				out.append("\t\t").append(constant("HISTOGRAM")).append(".record(carbon$duration);\n");
+			}
+			if (logsPerCall()) {
+				out.append("\t\tif (").append(constant("SAMPLER")).append(".sample()) {\n");
+				writeLog(out, "\t\t\t");
+				out.append("\t\t}\n");
+			}
+		}
+
+		@Override
+		void writeAfterThrowing(StringBuilder out) {
+			if (recordsSummary()) {
+				out.append("\t\t\t").append(constant("HISTOGRAM")).append(".record(carbon$duration);\n");
+			}
+			if (logsPerCall()) {
+				writeLog(out, "\t\t\t");
+			}
+		}
+	}
+
+	/**
+	 * Applies @Record, as RecordingMethodInterceptor does
+	 */
+	private final class RecordingAdvice extends Advice {
+
+		private RecordingAdvice(ProxiedMethod method, String prefix, Values values) {
+			super(method, prefix, values);
+		}
+
+		@Override
+		boolean isTimed() {
+			return true;
+		}
+
+		@Override
+		void writeConstants(StringBuilder out) {
+			field(out, TO_STRING_STRATEGY, "STRATEGY", values.toStringStrategy());
+			field(out, INVOCATION_SAMPLER, "SAMPLER", INVOCATION_SAMPLER + ".of(" + values.literal("sampleRate") + ", " + SAMPLING + values.enumName("sampling") + ")");
+		}
+
+		private void writeLog(StringBuilder out, String indent) {
+			out.append(indent).append(RECORDING_HELPER).append(".logAfterNanos(").append(RECORDING_HELPER).append(".getLogger(), TYPE, ").append(methodName()).append(", ").append(params()).append(", carbon$args, ")
+				.append(LEVEL).append(values.enumName("level")).append(", ").append(values.literal("logArguments")).append(", carbon$duration, ")
+				.append(constant("STRATEGY")).append(", ").append(values.literal("includeStartAndEndMarkers")).append(");\n");
+		}
+
+		@Override
+		void writeAfterReturning(StringBuilder out, String result) {
+			out.append("\t\tif (").append(constant("SAMPLER")).append(".sample()) {\n");
+			writeLog(out, "\t\t\t");
+			out.append("\t\t}\n");
+		}
+
+		@Override
+		void writeAfterThrowing(StringBuilder out) {
+			writeLog(out, "\t\t\t");
+		}
+	}
+
+	/**
+	 * Applies @LogExceptions, as ExceptionMethodInterceptor does
+	 */
+	private final class ExceptionAdvice extends Advice {
+
+		private ExceptionAdvice(ProxiedMethod method, String prefix, Values values) {
+			super(method, prefix, values);
+		}
+
+		@Override
+		void writeConstants(StringBuilder out) {
+			field(out, TO_STRING_STRATEGY, "STRATEGY", values.toStringStrategy());
+			field(out, LOG_RATE_LIMITER, "RATE_LIMITER", LOG_RATE_LIMITER + ".of(" + elements.getConstantExpression(method.qualifiedName()) + ", " + values.literal("maxLoggedPerSecond") + ")");
+			field(out, STACK_TRACE_RENDERER, "RENDERER", STACK_TRACE_RENDERER + ".of(" + values.literal("maxStackTraceFrames") + ", " + values.literal("collapseFrameworkFrames") + ")");
+			out.append(SUPPRESS_EXCEPTION_TYPES_WARNINGS);
+			field(out, EXCEPTION_TYPES, "LOG_TYPES", values.array("Class", values.list("logExceptionTypes", ".class")));
+			out.append(SUPPRESS_EXCEPTION_TYPES_WARNINGS);
+			field(out, EXCEPTION_TYPES, "IGNORED_TYPES", values.array("Class", values.list("ignoredExceptionTypes", ".class")));
+		}
+
+		@Override
+		void writeAfterReturning(StringBuilder out, String result) {
+		}
+
+		@Override
+		void writeAfterThrowing(StringBuilder out) {
+			out.append("\t\t\t").append(EXCEPTION_HELPER).append(".logAfterThrowing(").append(EXCEPTION_HELPER).append(".getExceptionLogger(), TYPE, ").append(methodName()).append(", ").append(params()).append(", carbon$args, ")
+				.append(LEVEL).append(values.enumName("level")).append(", ").append(constant("LOG_TYPES")).append(", ").append(constant("IGNORED_TYPES")).append(", carbon$e, ").append(values.literal("printStackTrace")).append(", ")
+				.append(constant("RATE_LIMITER")).append(", ").append(constant("RENDERER")).append(", ").append(constant("STRATEGY")).append(", ").append(values.literal("includeStartAndEndMarkers")).append(");\n");
+		}
+	}
+}
@@ -15,51 +15,179 @@
  */
 package com.groupcdg.carbon.logging.proxy.spi;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
 import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
 
+/**
+ * Applies any number of interceptors around calls to a target through a single dynamic proxy.
+ * Interceptors are applied as if each wrapped the previous one: the last interceptor's before
+ * advice runs first, and the first interceptor's after advice runs first. Interceptors that
+ * implement {@link MethodMatcher} are skipped entirely for methods they do not match; the
+ * interceptors applying to each method are resolved once.
+ * <p>
+ * Interceptors are given the real target's implementation of each method rather than the
+ * interface method called through the proxy, so that they see the annotations of the
+ * implementation, as they do when the target is proxied by subclassing.
+ * <p>
+ * The target is invoked through a MethodHandle bound to it for each method, so exceptions it
+ * throws are not wrapped. Methods matched by no interceptor call the handle directly.
+ */
 public class GenericInvocationHandler implements java.lang.reflect.InvocationHandler {
 
+	private static final MethodInterceptor[] NO_INTERCEPTORS = new MethodInterceptor[0];
+
+	private static final MethodType INVOKER_TYPE = MethodType.methodType(Object.class, Object[].class);
+
 	private Object target = null;
 
 	public void setTarget(Object target) {
 		this.target = target;
+		this.bindings.clear();
 	}
 
 	private Object realtarget = null;
 
 	public void setRealTarget(Object realtarget) {
 		this.realtarget = realtarget;
+		this.bindings.clear();
 	}
 
-	MethodInterceptor methodInterceptor = null;
+	private MethodInterceptor[] methodInterceptors = NO_INTERCEPTORS;
+
+	private final ConcurrentMap<Method, MethodBinding> bindings = new ConcurrentHashMap<>();
 
 	public void setMethodInterceptor(MethodInterceptor methodInterceptor) {
-		this.methodInterceptor = methodInterceptor;
+		setMethodInterceptors(methodInterceptor);
+	}
+
+	public void setMethodInterceptors(MethodInterceptor... methodInterceptors) {
+
+		List<MethodInterceptor> interceptors = new ArrayList<>();
+		if (methodInterceptors != null) {
+			for (MethodInterceptor next : methodInterceptors) {
+				if (next != null) {
+					interceptors.add(next);
+				}
+			}
+		}
+		this.methodInterceptors = interceptors.toArray(new MethodInterceptor[interceptors.size()]);
+		this.bindings.clear();
 	}
 
 	public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
 
-		Object interceptBeforeReturnObject = null;
+		MethodBinding binding = getBinding(method);
+		MethodInterceptor[] interceptors = binding.interceptors;
+		if (interceptors.length == 0) {
+			return binding.invoke(method, target, args);
+		}
+		Method targetMethod = binding.targetMethod;
+
+		Object[] interceptBeforeReturnObjects = new Object[interceptors.length];
+		for (int i = interceptors.length - 1; i >= 0; i--) {
+			interceptBeforeReturnObjects[i] = interceptors[i].interceptBefore(proxy, targetMethod, args, realtarget);
+		}
+
+		Object retObject;
 		try {
-			if (methodInterceptor != null) {
-				interceptBeforeReturnObject = methodInterceptor.interceptBefore(proxy, method, args, realtarget);
+			retObject = binding.invoke(method, target, args);
+		} catch (Throwable cause) {
+			for (int i = 0; i < interceptors.length; i++) {
+				interceptors[i].interceptAfterThrowing(proxy, targetMethod, args, realtarget, cause, interceptBeforeReturnObjects[i]);
+			}
+			throw cause;
+		}
+
+		for (int i = 0; i < interceptors.length; i++) {
+			interceptors[i].interceptAfter(proxy, targetMethod, args, realtarget, retObject, interceptBeforeReturnObjects[i]);
+		}
+		return retObject;
+	}
+
+	private MethodBinding getBinding(Method method) {
+
+		MethodBinding binding = bindings.get(method);
+		if (binding == null) {
+			Method targetMethod = LoggingUtils.determineTargetMethod(method, realtarget == null ? null : realtarget.getClass());
+			List<MethodInterceptor> matched = new ArrayList<>();
+			for (MethodInterceptor next : methodInterceptors) {
+				if (!(next instanceof MethodMatcher) || ((MethodMatcher) next).isMatchedMethod(targetMethod)) {
+					matched.add(next);
+				}
 			}
-			Object retObject = method.invoke(target, args);
-			if (methodInterceptor != null) {
-				methodInterceptor.interceptAfter(proxy, method, args, realtarget, retObject, interceptBeforeReturnObject);
+			MethodInterceptor[] interceptors = matched.isEmpty() ? NO_INTERCEPTORS : matched.toArray(new MethodInterceptor[matched.size()]);
+			binding = new MethodBinding(targetMethod, interceptors, bindInvoker(method, target));
+			MethodBinding existing = bindings.putIfAbsent(method, binding);
+			if (existing != null) {
+				binding = existing;
 			}
-			return retObject;
-		} catch (InvocationTargetException e) {
-			Throwable cause = e.getTargetException();
-			methodInterceptor.interceptAfterThrowing(proxy, method, args, realtarget, cause, interceptBeforeReturnObject);
-			throw e.getTargetException();
 		}
+		return binding;
+	}
+
+	/**
+	 * Binds a handle invoking the method on the target, taking the arguments as an array and returning
+	 * an Object, or returns null where the method cannot be accessed through a handle
+	 */
+	private static MethodHandle bindInvoker(Method method, Object target) {
+
+		try {
+			MethodHandle handle;
+			try {
+				handle = MethodHandles.lookup().unreflect(method);
+			} catch (IllegalAccessException e) {
+				// For example a public method of a non-public interface
+				method.setAccessible(true);
+				handle = MethodHandles.lookup().unreflect(method);
+			}
+			return handle
+					.bindTo(target)
+					.asSpreader(Object[].class, method.getParameterTypes().length)
+					.asType(INVOKER_TYPE);
+		} catch (IllegalAccessException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * The interceptors matching a method, the implementation passed to them and the handle through
+	 * which the method is invoked on the target
+	 */
+	private static final class MethodBinding {
+
+		private final Method targetMethod;
+
+		private final MethodInterceptor[] interceptors;
+
+		private final MethodHandle invoker;
+
+		private MethodBinding(Method targetMethod, MethodInterceptor[] interceptors, MethodHandle invoker) {
+			this.targetMethod = targetMethod;
+			this.interceptors = interceptors;
+			this.invoker = invoker;
+		}
+
+		private Object invoke(Method method, Object target, Object[] args) throws Throwable {
 
-		catch (Exception e) {
-			throw e;
+			if (invoker != null) {
+				return invoker.invokeExact(args);
+			}
+			try {
+				return method.invoke(target, args);
+			} catch (InvocationTargetException e) {
+				throw e.getTargetException();
+			}
 		}
 	}
-}
+}
\ No newline at end of file
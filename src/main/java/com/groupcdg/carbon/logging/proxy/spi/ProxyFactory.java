@@ -24,36 +24,23 @@ public class ProxyFactory {
 	private ProxyFactory() {
 	}
 
+	/**
+	 * Creates a single proxy applying all of the given interceptors, in the order in which they
+	 * would apply had the object been wrapped once for each interceptor in turn
+	 */
+	@SuppressWarnings("unchecked")
 	public static <V, W extends V> V getProxy(W inputObject, MethodInterceptor... interceptors) {
 
-		if (interceptors != null && interceptors.length > 0) {
-
-			V inputProxiedObject = inputObject;
-			for (int i = 0; i < interceptors.length; i++) {
-				try {
-					inputProxiedObject = getProxy(inputObject, interceptors[i], inputProxiedObject);
-				} catch (Throwable e) {
-					throw new RuntimeException(e); // TODO Refactor
-				}
-			}
-			return inputProxiedObject;
-		} else {
+		if (interceptors == null || interceptors.length == 0) {
 			return inputObject;
 		}
-	}
-
-	@SuppressWarnings("unchecked")
-	private static <V, W extends V> V  getProxy(W inObject, MethodInterceptor interceptor, V inProxiedObject) throws Throwable {
 
 		GenericInvocationHandler invocationHandler = new GenericInvocationHandler();
-		if (interceptor == null) {
-			return inProxiedObject;
-		}
-		invocationHandler.setTarget(inProxiedObject);
-		invocationHandler.setRealTarget(inObject);
-		invocationHandler.setMethodInterceptor(interceptor);
+		invocationHandler.setTarget(inputObject);
+		invocationHandler.setRealTarget(inputObject);
+		invocationHandler.setMethodInterceptors(interceptors);
 
-		return (V) Proxy.newProxyInstance(inObject.getClass().getClassLoader(), inObject.getClass().getInterfaces(),
+		return (V) Proxy.newProxyInstance(inputObject.getClass().getClassLoader(), inputObject.getClass().getInterfaces(),
 				invocationHandler);
 	}
 }
\ No newline at end of file
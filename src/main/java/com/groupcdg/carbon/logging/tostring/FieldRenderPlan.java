@@ -0,0 +1,192 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.tostring;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+/**
+ * A per-class plan for rendering an object that does not override toString(). It produces the
+ * same output as {@link ReflectionToStringBuilder#reflectionToString(Object, ToStringStyle, boolean)}
+ * with transients included, but discovers the fields and builds their accessors once per class.
+ * <p>
+ * Primitive fields are rendered without boxing when the style does not customise how values are
+ * appended, since the primitive and boxed paths of ToStringStyle then produce identical output.
+ */
+final class FieldRenderPlan {
+
+	private static final ClassValue<FieldRenderPlan> PLANS = new ClassValue<FieldRenderPlan>() {
+		@Override
+		protected FieldRenderPlan computeValue(Class<?> type) {
+			return create(type);
+		}
+	};
+
+	/**
+	 * The types whose ToStringStyle append overloads must not be overridden for unboxed rendering
+	 */
+	private static final Class<?>[] PRIMITIVE_TYPES = new Class<?>[] {
+		boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class, double.class
+	};
+
+	private final FieldRenderer[] fields;
+
+	private FieldRenderPlan(FieldRenderer[] fields) {
+		this.fields = fields;
+	}
+
+	/**
+	 * Returns the plan for the given class, or null if its fields cannot be accessed or it is an
+	 * array, in which case the caller should fall back to ReflectionToStringBuilder
+	 */
+	static FieldRenderPlan of(Class<?> type) {
+		return PLANS.get(type);
+	}
+
+	void render(ToStringStyle style, boolean unboxedPrimitives, StringBuffer buffer, Object obj) {
+
+		// An empty object could leave appendEnd() to trim a separator that precedes it in the buffer
+		StringBuffer target = fields.length == 0 ? new StringBuffer() : buffer;
+
+		style.appendStart(target, obj);
+		try {
+			for (FieldRenderer field : fields) {
+				field.render(style, unboxedPrimitives, target, obj);
+			}
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not render object of " + obj.getClass(), e);
+		}
+		style.appendEnd(target, obj);
+
+		if (target != buffer) {
+			buffer.append(target);
+		}
+	}
+
+	/**
+	 * Determines whether primitive fields can be rendered through ToStringStyle's primitive
+	 * overloads without changing the output of the given style
+	 */
+	static boolean supportsUnboxedPrimitives(ToStringStyle style) {
+
+		Class<?> styleClass = style.getClass();
+		if (!isInheritedFromToStringStyle(styleClass, "append", StringBuffer.class, String.class, Object.class, Boolean.class)
+				|| !isInheritedFromToStringStyle(styleClass, "appendInternal", StringBuffer.class, String.class, Object.class, boolean.class)
+				|| !isInheritedFromToStringStyle(styleClass, "appendDetail", StringBuffer.class, String.class, Object.class)) {
+			return false;
+		}
+		for (Class<?> primitiveType : PRIMITIVE_TYPES) {
+			if (!isInheritedFromToStringStyle(styleClass, "append", StringBuffer.class, String.class, primitiveType)
+					|| !isInheritedFromToStringStyle(styleClass, "appendDetail", StringBuffer.class, String.class, primitiveType)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isInheritedFromToStringStyle(Class<?> styleClass, String name, Class<?>... parameterTypes) {
+
+		for (Class<?> next = styleClass; next != ToStringStyle.class; next = next.getSuperclass()) {
+			try {
+				next.getDeclaredMethod(name, parameterTypes);
+				return false;
+			} catch (NoSuchMethodException e) {
+				// Not overridden at this level
+			}
+		}
+		return true;
+	}
+
+	private static FieldRenderPlan create(Class<?> type) {
+
+		if (type.isArray()) {
+			return null;
+		}
+
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		List<FieldRenderer> renderers = new ArrayList<>();
+		try {
+			for (Class<?> next = type; next != null; next = next.getSuperclass()) {
+				for (Field field : next.getDeclaredFields()) {
+					if (accept(field)) {
+						field.setAccessible(true);
+						renderers.add(new FieldRenderer(field.getName(), field.getType(), lookup.unreflectGetter(field)));
+					}
+				}
+			}
+		} catch (IllegalAccessException | RuntimeException e) {
+			return null;
+		}
+		return new FieldRenderPlan(renderers.toArray(new FieldRenderer[renderers.size()]));
+	}
+
+	/**
+	 * Matches the fields accepted by ReflectionToStringBuilder when transients are output
+	 */
+	private static boolean accept(Field field) {
+		return field.getName().indexOf('$') == -1 && !Modifier.isStatic(field.getModifiers());
+	}
+
+	private static final class FieldRenderer {
+
+		private final String name;
+
+		private final Class<?> type;
+
+		private final MethodHandle getter;
+
+		private FieldRenderer(String name, Class<?> type, MethodHandle getter) {
+			this.name = name;
+			this.type = type;
+			this.getter = getter.asType(MethodType.methodType(type.isPrimitive() ? type : Object.class, Object.class));
+		}
+
+		private void render(ToStringStyle style, boolean unboxedPrimitives, StringBuffer buffer, Object obj) throws Throwable {
+
+			if (!type.isPrimitive()) {
+				style.append(buffer, name, (Object) getter.invokeExact(obj), null);
+			} else if (!unboxedPrimitives) {
+				style.append(buffer, name, getter.invoke(obj), null);
+			} else if (type == int.class) {
+				style.append(buffer, name, (int) getter.invokeExact(obj));
+			} else if (type == long.class) {
+				style.append(buffer, name, (long) getter.invokeExact(obj));
+			} else if (type == boolean.class) {
+				style.append(buffer, name, (boolean) getter.invokeExact(obj));
+			} else if (type == double.class) {
+				style.append(buffer, name, (double) getter.invokeExact(obj));
+			} else if (type == float.class) {
+				style.append(buffer, name, (float) getter.invokeExact(obj));
+			} else if (type == short.class) {
+				style.append(buffer, name, (short) getter.invokeExact(obj));
+			} else if (type == byte.class) {
+				style.append(buffer, name, (byte) getter.invokeExact(obj));
+			} else {
+				style.append(buffer, name, (char) getter.invokeExact(obj));
+			}
+		}
+	}
+}
\ No newline at end of file
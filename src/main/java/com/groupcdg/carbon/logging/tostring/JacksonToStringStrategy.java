@@ -16,20 +16,51 @@
 package com.groupcdg.carbon.logging.tostring;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.CharBuffer;
 
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
 
+/**
+ * Renders parameters and values as JSON. Rendering into Strings reuses a generator and buffer
+ * confined to the calling thread, and values are written with an ObjectWriter cached per type.
+ * The append and write methods render directly into a caller supplied Appendable or OutputStream.
+ */
 public class JacksonToStringStrategy implements ToStringStrategy {
 
 	private static final JsonFactory JSON_FACTORY = new JsonFactory();
 
 	private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper();
 
+	private static final ClassValue<ObjectWriter> WRITERS = new ClassValue<ObjectWriter>() {
+		@Override
+		protected ObjectWriter computeValue(Class<?> type) {
+			return OBJECT_MAPPER.writerFor(type).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+		}
+	};
+
+	private static final ThreadLocal<RenderContext> RENDER_CONTEXTS = new ThreadLocal<RenderContext>() {
+		@Override
+		protected RenderContext initialValue() {
+			return new RenderContext();
+		}
+	};
+
+	private static final String[] ARG_NAMES = new String[16];
+	static {
+		for (int i = 0; i < ARG_NAMES.length; i++) {
+			ARG_NAMES[i] = "arg" + i;
+		}
+	}
+
 	private static boolean PARAM_NAMES_AVAILABLE;
 	static {
 		try {
@@ -43,44 +74,26 @@ public class JacksonToStringStrategy implements ToStringStrategy {
     @Override
 	public final String fieldsToString(boolean includeStartAndEndMarkers, String[] paramNames, Object[] obj) {
 
-    	StringWriter writer = new StringWriter();
-
-    	JsonGenerator generator = null;
+    	RenderContext context = RENDER_CONTEXTS.get();
+    	if (context.inUse) {
+    		// A nested render on this thread, for example from a getter being serialised
+    		StringWriter writer = new StringWriter();
+    		appendFields(writer, includeStartAndEndMarkers, paramNames, obj);
+    		return writer.toString();
+    	}
 
+    	context.inUse = true;
         try {
-        	generator = JSON_FACTORY.createGenerator(writer);
-        	generator.setCodec(OBJECT_MAPPER);
-
-	        if (includeStartAndEndMarkers) {
-	        	generator.writeStartObject();
-	        }
-
-	        for (int i=0; i < obj.length; i++) {
-	        	if (paramNames != null && PARAM_NAMES_AVAILABLE) {
-	        		generator.writeObjectField(paramNames[i], obj[i]);
-	        	} else {
-	        		generator.writeObjectField("arg" + i, obj[i]);
-	        	}
-	        }
-
-	        if (includeStartAndEndMarkers) {
-	        	generator.writeEndObject();
-	        }
-
-	    	return writer.toString();
+        	writeFields(context.generator(), includeStartAndEndMarkers, paramNames, obj);
+        	return context.flushToString();
         } catch (IOException e) {
+        	context.discard();
 			throw new IllegalStateException("Could not generate JSON for Params: " + e.getMessage(), e);
+        } catch (RuntimeException | Error e) {
+        	context.discard();
+        	throw e;
         } finally {
-        	try {
-        		if (generator != null) {
-        			generator.close();
-        		}
-			} catch (IOException e) {
-			}
-        	try {
-				writer.close();
-			} catch (IOException e) {
-			}
+        	context.inUse = false;
         }
     }
 
@@ -91,10 +104,213 @@ public class JacksonToStringStrategy implements ToStringStrategy {
             return null;
         }
 
+    	RenderContext context = RENDER_CONTEXTS.get();
+    	if (context.inUse) {
+    		StringWriter writer = new StringWriter();
+    		appendObject(writer, obj);
+    		return writer.toString();
+    	}
+
+    	context.inUse = true;
         try {
-			return OBJECT_MAPPER.writeValueAsString(obj);
-		} catch (JsonProcessingException e) {
+        	writeValue(context.generator(), obj);
+        	return context.flushToString();
+        } catch (IOException e) {
+        	context.discard();
 			throw new IllegalStateException("Could not generate JSON for Object", e);
-		}
+        } catch (RuntimeException | Error e) {
+        	context.discard();
+        	throw e;
+        } finally {
+        	context.inUse = false;
+        }
     }
+
+    /**
+     * Renders the parameters as for {@link #fieldsToString(boolean, String[], Object[])}, appending
+     * them to the given Appendable
+     */
+	public final void appendFields(Appendable appendable, boolean includeStartAndEndMarkers, String[] paramNames, Object[] obj) {
+
+		try (JsonGenerator generator = createGenerator(asWriter(appendable))) {
+			writeFields(generator, includeStartAndEndMarkers, paramNames, obj);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not generate JSON for Params: " + e.getMessage(), e);
+		}
+	}
+
+    /**
+     * Renders the value as for {@link #objectToString(Object)}, appending it to the given Appendable
+     */
+	public final void appendObject(Appendable appendable, Object obj) {
+
+		try (JsonGenerator generator = createGenerator(asWriter(appendable))) {
+			writeValue(generator, obj);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not generate JSON for Object", e);
+		}
+	}
+
+    /**
+     * Renders the parameters as for {@link #fieldsToString(boolean, String[], Object[])}, writing
+     * them to the given stream as UTF-8. The stream is not closed.
+     */
+	public final void writeFields(OutputStream out, boolean includeStartAndEndMarkers, String[] paramNames, Object[] obj) {
+
+		try (JsonGenerator generator = createGenerator(out)) {
+			writeFields(generator, includeStartAndEndMarkers, paramNames, obj);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not generate JSON for Params: " + e.getMessage(), e);
+		}
+	}
+
+    /**
+     * Renders the value as for {@link #objectToString(Object)}, writing it to the given stream as
+     * UTF-8. The stream is not closed.
+     */
+	public final void writeObject(OutputStream out, Object obj) {
+
+		try (JsonGenerator generator = createGenerator(out)) {
+			writeValue(generator, obj);
+		} catch (IOException e) {
+			throw new IllegalStateException("Could not generate JSON for Object", e);
+		}
+	}
+
+	private static void writeFields(JsonGenerator generator, boolean includeStartAndEndMarkers, String[] paramNames, Object[] obj) throws IOException {
+
+        if (includeStartAndEndMarkers) {
+        	generator.writeStartObject();
+        }
+
+        for (int i=0; i < obj.length; i++) {
+        	if (paramNames != null && PARAM_NAMES_AVAILABLE) {
+        		generator.writeFieldName(paramNames[i]);
+        	} else {
+        		generator.writeFieldName(i < ARG_NAMES.length ? ARG_NAMES[i] : "arg" + i);
+        	}
+        	writeValue(generator, obj[i]);
+        }
+
+        if (includeStartAndEndMarkers) {
+        	generator.writeEndObject();
+        }
+	}
+
+	private static void writeValue(JsonGenerator generator, Object value) throws IOException {
+
+		if (value == null) {
+			generator.writeNull();
+		} else {
+			WRITERS.get(value.getClass()).writeValue(generator, value);
+		}
+	}
+
+	private static JsonGenerator createGenerator(Writer writer) throws IOException {
+
+		JsonGenerator generator = JSON_FACTORY.createGenerator(writer);
+		generator.setCodec(OBJECT_MAPPER);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return generator;
+	}
+
+	private static JsonGenerator createGenerator(OutputStream out) throws IOException {
+
+		JsonGenerator generator = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8);
+		generator.setCodec(OBJECT_MAPPER);
+		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return generator;
+	}
+
+	private static Writer asWriter(Appendable appendable) {
+		return appendable instanceof Writer ? (Writer) appendable : new AppendableWriter(appendable);
+	}
+
+	/**
+	 * A generator and buffer reused by renders on a single thread
+	 */
+	private static final class RenderContext {
+
+		private static final int MAX_RETAINED_CAPACITY = 8192;
+
+		private final AppendableWriter writer = new AppendableWriter(new StringBuilder(256));
+
+		private JsonGenerator generator;
+
+		private boolean inUse;
+
+		private JsonGenerator generator() throws IOException {
+			if (generator == null) {
+				generator = createGenerator(writer);
+				// Successive renders are separate root values and must not be space separated
+				generator.setRootValueSeparator(null);
+			}
+			return generator;
+		}
+
+		private String flushToString() throws IOException {
+			generator.flush();
+			StringBuilder builder = (StringBuilder) writer.appendable;
+			String result = builder.toString();
+			if (builder.capacity() > MAX_RETAINED_CAPACITY) {
+				writer.appendable = new StringBuilder(256);
+			} else {
+				builder.setLength(0);
+			}
+			return result;
+		}
+
+		/**
+		 * Drops a generator left part way through a value by a failed render
+		 */
+		private void discard() {
+			generator = null;
+			writer.appendable = new StringBuilder(256);
+		}
+	}
+
+	/**
+	 * Adapts an Appendable to the Writer that the generator requires
+	 */
+	private static final class AppendableWriter extends Writer {
+
+		private Appendable appendable;
+
+		private AppendableWriter(Appendable appendable) {
+			this.appendable = appendable;
+		}
+
+		@Override
+		public void write(int c) throws IOException {
+			appendable.append((char) c);
+		}
+
+		@Override
+		public void write(char[] cbuf, int off, int len) throws IOException {
+			if (appendable instanceof StringBuilder) {
+				((StringBuilder) appendable).append(cbuf, off, len);
+			} else {
+				appendable.append(CharBuffer.wrap(cbuf), off, off + len);
+			}
+		}
+
+		@Override
+		public void write(String str, int off, int len) throws IOException {
+			appendable.append(str, off, off + len);
+		}
+
+		@Override
+		public Writer append(CharSequence csq) throws IOException {
+			appendable.append(csq);
+			return this;
+		}
+
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() {
+		}
+	}
 }
@@ -15,12 +15,16 @@
  */
 package com.groupcdg.carbon.logging.tostring;
 
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.builder.ReflectionToStringBuilder;
 import org.apache.commons.lang3.builder.ToStringStyle;
@@ -47,24 +51,24 @@ public class ReflectionToStringStrategy implements ToStringStrategy {
 		}
 	}
 
-	private ToStringStyle style = ToStringStyle.SHORT_PREFIX_STYLE;
+	private StyleBinding binding = bindingFor(ToStringStyle.SHORT_PREFIX_STYLE);
 
 	public void setStyle(ToStringStyle style) {
-		this.style = style;
+		this.binding = bindingFor(style);
 	}
 
 	public void setStyleName(String stringStyle) {
 
     	if ("SHORT_PREFIX_STYLE".equals(stringStyle)) {
-    		this.style = ToStringStyle.SHORT_PREFIX_STYLE;
+    		setStyle(ToStringStyle.SHORT_PREFIX_STYLE);
     	} else if ("DEFAULT_STYLE".equals(stringStyle)) {
-    		this.style = ToStringStyle.DEFAULT_STYLE;
+    		setStyle(ToStringStyle.DEFAULT_STYLE);
     	} else if ("MULTI_LINE_STYLE".equals(stringStyle)) {
-    		this.style = ToStringStyle.MULTI_LINE_STYLE;
+    		setStyle(ToStringStyle.MULTI_LINE_STYLE);
     	} else if ("NO_FIELD_NAMES_STYLE".equals(stringStyle)) {
-    		this.style = ToStringStyle.NO_FIELD_NAMES_STYLE;
+    		setStyle(ToStringStyle.NO_FIELD_NAMES_STYLE);
     	} else if ("SIMPLE_STYLE".equals(stringStyle)) {
-    		this.style = ToStringStyle.SIMPLE_STYLE;
+    		setStyle(ToStringStyle.SIMPLE_STYLE);
     	} else {
 
 			ToStringStyle style = STYLES.get(stringStyle);
@@ -82,86 +86,189 @@ public class ReflectionToStringStrategy implements ToStringStrategy {
     @Override
 	public final String fieldsToString(boolean includeStartAndEndMarkers, String[] paramNames, Object[] obj) {
 
-		String fieldSeparator;
-		try {
-			fieldSeparator = (String)(FIELDSEPARATORMETHOD.invoke(style));
-		} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-			throw new IllegalStateException("Could not determine separator", e);
-		}
+        if (obj == null) {
+            return null;
+        }
+
+        StyleBinding binding = this.binding;
+        RenderBuffer renderBuffer = RENDER_BUFFERS.get();
+        StringBuffer buffer = renderBuffer.acquire();
+        try {
+	        if (includeStartAndEndMarkers) {
+		        buffer.append(binding.contentStart);
+	        }
+
+	        for (int i=0; i < obj.length; i++) {
+	        	if (paramNames != null && PARAM_NAMES_AVAILABLE) {
+	        		appendFieldStart(binding, buffer, paramNames[i]);
+	        	}
+	        	appendObject(binding, buffer, obj[i]);
+	        	if (i < (obj.length - 1)) {
+	        		buffer.append(binding.fieldSeparator);
+	        	}
+	        }
+
+	        if (includeStartAndEndMarkers) {
+			    buffer.append(binding.contentEnd);
+	        }
+
+	        return buffer.toString();
+        } finally {
+        	renderBuffer.release(buffer);
+        }
+    }
+
+    @Override
+	public final String objectToString(Object obj) {
 
         if (obj == null) {
             return null;
         }
 
-        StringBuilder nextResult = new StringBuilder();
+        RenderBuffer renderBuffer = RENDER_BUFFERS.get();
+        StringBuffer buffer = renderBuffer.acquire();
+        try {
+        	appendObject(binding, buffer, obj);
+        	return buffer.toString();
+        } finally {
+        	renderBuffer.release(buffer);
+        }
+    }
 
-        if (includeStartAndEndMarkers) {
-	        String startContent;
-			try {
-				startContent = (String)(STARTCONTENTMETHOD.invoke(style));
-			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-				throw new IllegalStateException("Could not determine start content", e);
+	private static void appendFieldStart(StyleBinding binding, StringBuffer buffer, String paramName) {
+
+		try {
+			binding.appendFieldStart.invokeExact(buffer, paramName);
+		} catch (RuntimeException | Error e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not determine output param name: " + paramName, e);
+		}
+	}
+
+	private static void appendObject(StyleBinding binding, StringBuffer buffer, Object obj) {
+
+		if (obj == null) {
+			buffer.append((String) null);
+			return;
+		}
+
+		if (!OVERRIDES_TO_STRING.get(obj.getClass()).booleanValue()) {
+            // Doesn't override toString, lets construct our own
+			FieldRenderPlan plan = FieldRenderPlan.of(obj.getClass());
+			if (plan != null) {
+				plan.render(binding.style, binding.unboxedPrimitives, buffer, obj);
+			} else {
+				buffer.append(ReflectionToStringBuilder.reflectionToString(obj, binding.style, true));
 			}
-	        nextResult.append(startContent);
-        }
+			return;
+		}
 
-        for (int i=0; i < obj.length; i++) {
-        	if (paramNames != null && PARAM_NAMES_AVAILABLE) {
-        		StringBuffer fieldStartBuffer = new StringBuffer();
+		int mark = buffer.length();
+		try {
+			binding.appendDetail.invokeExact(buffer, (String) null, obj);
+		} catch (Error e) {
+			throw e;
+		} catch (Throwable e) {
+        	// Use generic toString() method instead
+			buffer.setLength(mark);
+			buffer.append(obj.toString());
+		}
+	}
 
-        		try {
-        			APPENDFIELDSTARTMETHOD.invoke(style, fieldStartBuffer, paramNames[i]);
-					nextResult.append(fieldStartBuffer.toString());
-				} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-					throw new IllegalStateException("Could not determine output param name: " + paramNames[i], e);
-				}
-        	}
-        	nextResult.append(objectToString(obj[i]));
-        	if (i < (obj.length - 1)) {
-        		nextResult.append(fieldSeparator);
-        	}
-        }
+	private static StyleBinding bindingFor(ToStringStyle style) {
+
+		StyleBinding binding = BINDINGS.get(style);
+		if (binding == null) {
+			binding = new StyleBinding(style);
+			StyleBinding existing = BINDINGS.putIfAbsent(style, binding);
+			if (existing != null) {
+				binding = existing;
+			}
+		}
+		return binding;
+	}
 
-        if (includeStartAndEndMarkers) {
-		    String endContent;
+	/**
+	 * The markers and separators of a ToStringStyle, resolved once, and its protected append methods
+	 * bound to the style instance
+	 */
+	private static final class StyleBinding {
+
+		private final ToStringStyle style;
+		private final String fieldSeparator;
+		private final String contentStart;
+		private final String contentEnd;
+		private final MethodHandle appendFieldStart;
+		private final MethodHandle appendDetail;
+		private final boolean unboxedPrimitives;
+
+		private StyleBinding(ToStringStyle style) {
+			this.style = style;
 			try {
-				endContent = (String)(ENDCONTENTMETHOD.invoke(style));
+				this.fieldSeparator = (String)(FIELDSEPARATORMETHOD.invoke(style));
+				this.contentStart = (String)(STARTCONTENTMETHOD.invoke(style));
+				this.contentEnd = (String)(ENDCONTENTMETHOD.invoke(style));
+				this.appendFieldStart = MethodHandles.lookup().unreflect(APPENDFIELDSTARTMETHOD).bindTo(style);
+				this.appendDetail = MethodHandles.lookup().unreflect(APPENDDETAILMETHOD).bindTo(style);
+				this.unboxedPrimitives = FieldRenderPlan.supportsUnboxedPrimitives(style);
 			} catch (IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-				throw new IllegalStateException("Could not determine e", e);
+				throw new IllegalStateException("Could not resolve ToStringStyle: " + style, e);
 			}
-		    nextResult.append(endContent);
-        }
+		}
+	}
 
-        return nextResult.toString();
-    }
+	/**
+	 * A per-thread buffer reused between renders. A nested render on the same thread, for example
+	 * from an argument's own toString(), is given a fresh buffer.
+	 */
+	private static final class RenderBuffer {
 
-    @Override
-	public final String objectToString(Object obj) {
+		private static final int MAX_RETAINED_CAPACITY = 8192;
 
-        if (obj == null) {
-            return null;
-        }
+		private StringBuffer buffer = new StringBuffer(256);
 
-        try {
-            Class<?> cls = obj.getClass().getMethod("toString").getDeclaringClass();
-
-            StringBuffer buf = new StringBuffer();
-            if (cls.equals(Object.class)) {
-                // Doesn't override toString, lets construct our own
-                buf.append(ReflectionToStringBuilder.reflectionToString(obj, style, true));
-            } else {
-            	APPENDDETAILMETHOD.invoke(style, buf, null, obj);
-            }
-
-            return buf.toString();
-        } catch (SecurityException | NoSuchMethodException | IllegalAccessException | IllegalArgumentException | InvocationTargetException e) {
-        	// Use generic toString() method instead
-        	StringBuffer buf = new StringBuffer();
-            buf.append(obj.toString());
+		private boolean inUse;
 
-            return buf.toString();
-        }
-    }
+		private StringBuffer acquire() {
+			if (inUse) {
+				return new StringBuffer(256);
+			}
+			inUse = true;
+			return buffer;
+		}
+
+		private void release(StringBuffer released) {
+			if (released == buffer) {
+				if (released.capacity() > MAX_RETAINED_CAPACITY) {
+					buffer = new StringBuffer(256);
+				} else {
+					released.setLength(0);
+				}
+				inUse = false;
+			}
+		}
+	}
+
+	private static final ConcurrentMap<ToStringStyle, StyleBinding> BINDINGS = new ConcurrentHashMap<>();
+
+	private static final ThreadLocal<RenderBuffer> RENDER_BUFFERS = new ThreadLocal<RenderBuffer>() {
+		@Override
+		protected RenderBuffer initialValue() {
+			return new RenderBuffer();
+		}
+	};
+
+	private static final ClassValue<Boolean> OVERRIDES_TO_STRING = new ClassValue<Boolean>() {
+		@Override
+		protected Boolean computeValue(Class<?> type) {
+			try {
+				return Boolean.valueOf(!type.getMethod("toString").getDeclaringClass().equals(Object.class));
+			} catch (NoSuchMethodException | SecurityException e) {
+				return Boolean.TRUE;
+			}
+		}
+	};
 
 	private static boolean PARAM_NAMES_AVAILABLE;
 	static {
@@ -0,0 +1,105 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging;
+
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.helpers.NOPLogger;
+
+import com.groupcdg.carbon.logging.annotation.Level;
+import com.groupcdg.carbon.logging.helper.spi.ExceptionHelper;
+import com.groupcdg.carbon.logging.helper.spi.LoggingHelper;
+import com.groupcdg.carbon.logging.helper.spi.PerformanceHelper;
+import com.groupcdg.carbon.logging.helper.spi.RecordingHelper;
+import com.groupcdg.carbon.logging.tostring.api.ToStringStrategy;
+
+/**
+ * Verifies that the helpers do no rendering work when the requested level is disabled. Any attempt
+ * to render arguments, return values or exceptions fails the test.
+ */
+public class DisabledLoggingTest {
+
+    private static final Logger DISABLED_LOGGER = NOPLogger.NOP_LOGGER;
+
+    private static final String[] PARAM_NAMES = new String[] {"a", "b"};
+
+    private static final Object[] PARAMS = new Object[] {Integer.valueOf(1), new ExampleObjectForLogging()};
+
+    @SuppressWarnings("unchecked")
+    private static final Class<? extends Throwable>[] NO_EXCEPTION_TYPES = new Class[0];
+
+    private static final ToStringStrategy FAILING_STRATEGY = new ToStringStrategy() {
+
+        @Override
+        public String fieldsToString(boolean includeStartAndEndMarkers, String[] paramNames, Object[] obj) {
+            throw new AssertionError("ToStringStrategy invoked while logging was disabled");
+        }
+
+        @Override
+        public String objectToString(Object obj) {
+            throw new AssertionError("ToStringStrategy invoked while logging was disabled");
+        }
+    };
+
+    @Test
+    public void testLoggingHelperDoesNotRenderWhenDisabled() {
+        LoggingHelper.logBefore(DISABLED_LOGGER, ExampleService.class, "serviceMethod", PARAM_NAMES, PARAMS, Level.TRACE, true, FAILING_STRATEGY, true);
+        LoggingHelper.logAfter(DISABLED_LOGGER, ExampleService.class, "serviceMethod", String.class, Level.TRACE, true, true, "result", FAILING_STRATEGY, true);
+        LoggingHelper.logAfterThrowing(DISABLED_LOGGER, ExampleService.class, "serviceMethod", PARAM_NAMES, PARAMS, Level.ERROR, true, NO_EXCEPTION_TYPES, NO_EXCEPTION_TYPES, new UnrenderableException(), true, FAILING_STRATEGY, true);
+    }
+
+    @Test
+    public void testExceptionHelperDoesNotRenderWhenDisabled() {
+        ExceptionHelper.logAfterThrowing(DISABLED_LOGGER, ExampleService.class, "serviceMethod", PARAM_NAMES, PARAMS, Level.ERROR, NO_EXCEPTION_TYPES, NO_EXCEPTION_TYPES, new UnrenderableException(), true, FAILING_STRATEGY, true);
+    }
+
+    @Test
+    public void testRecordingHelperDoesNotRenderWhenDisabled() {
+        RecordingHelper.logAfter(DISABLED_LOGGER, ExampleService.class, "serviceMethod", PARAM_NAMES, PARAMS, Level.INFO, true, 0L, 10L, FAILING_STRATEGY, true);
+    }
+
+    @Test
+    public void testPerformanceHelperDoesNotRenderWhenDisabled() {
+        // The performance loggers are configured at WARN in log4j2-test.xml
+        PerformanceHelper.logAfter(ExampleService.class, "serviceMethod", PARAM_NAMES, PARAMS, Level.DEBUG, true, 0L, 10L, 1000L, FAILING_STRATEGY, true);
+    }
+
+    /**
+     * An exception that fails if its message or stack trace is rendered
+     */
+    private static class UnrenderableException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public String getMessage() {
+            throw new AssertionError("Exception message rendered while logging was disabled");
+        }
+
+        @Override
+        public void printStackTrace(PrintStream s) {
+            throw new AssertionError("Stack trace rendered while logging was disabled");
+        }
+
+        @Override
+        public void printStackTrace(PrintWriter s) {
+            throw new AssertionError("Stack trace rendered while logging was disabled");
+        }
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.logging.log4j.core.Filter;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.LogEvent;
+import org.apache.logging.log4j.core.appender.AbstractAppender;
+import org.apache.logging.log4j.core.config.plugins.Plugin;
+import org.apache.logging.log4j.core.config.plugins.PluginAttribute;
+import org.apache.logging.log4j.core.config.plugins.PluginFactory;
+
+/**
+ * Keeps the events logged during a test so that their logger names, messages and context can be
+ * asserted. Configured in log4j2-test.xml.
+ */
+@Plugin(name = "Recording", category = "Core", elementType = "appender", printObject = true)
+public final class RecordingAppender extends AbstractAppender {
+
+    private static final long serialVersionUID = 1L;
+
+    private static final List<Entry> ENTRIES = new ArrayList<>();
+
+    private RecordingAppender(String name) {
+        super(name, (Filter) null, (Layout<? extends Serializable>) null);
+    }
+
+    @PluginFactory
+    public static RecordingAppender createAppender(@PluginAttribute("name") String name) {
+        return new RecordingAppender(name);
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        Entry entry = new Entry(event.getLoggerName(), event.getLevel().name(), event.getMessage().getFormattedMessage(), event.getThreadName(), event.getContextMap());
+        synchronized (ENTRIES) {
+            ENTRIES.add(entry);
+        }
+    }
+
+    public static void clear() {
+        synchronized (ENTRIES) {
+            ENTRIES.clear();
+        }
+    }
+
+    /**
+     * Returns the events recorded since the last {@link #clear()}
+     */
+    public static List<Entry> entries() {
+        synchronized (ENTRIES) {
+            return new ArrayList<>(ENTRIES);
+        }
+    }
+
+    /**
+     * Returns the events recorded for the given logger since the last {@link #clear()}
+     */
+    public static List<Entry> entries(String loggerName) {
+        List<Entry> result = new ArrayList<>();
+        for (Entry next : entries()) {
+            if (next.getLoggerName().equals(loggerName)) {
+                result.add(next);
+            }
+        }
+        return result;
+    }
+
+    public static final class Entry {
+
+        private final String loggerName;
+        private final String level;
+        private final String message;
+        private final String threadName;
+        private final Map<String, String> context;
+
+        private Entry(String loggerName, String level, String message, String threadName, Map<String, String> context) {
+            this.loggerName = loggerName;
+            this.level = level;
+            this.message = message;
+            this.threadName = threadName;
+            this.context = context;
+        }
+
+        public String getLoggerName() {
+            return loggerName;
+        }
+
+        public String getLevel() {
+            return level;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public String getThreadName() {
+            return threadName;
+        }
+
+        public Map<String, String> getContext() {
+            return context;
+        }
+
+        @Override
+        public String toString() {
+            return level + " " + loggerName + " - " + message;
+        }
+    }
+}
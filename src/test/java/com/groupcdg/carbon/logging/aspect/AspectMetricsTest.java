@@ -0,0 +1,104 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.aspect;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+import java.lang.management.ManagementFactory;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.annotation.LogPerformance;
+import com.groupcdg.carbon.logging.annotation.Record;
+import com.groupcdg.carbon.logging.metrics.InvocationMetricsMXBean;
+import com.groupcdg.carbon.logging.metrics.InvocationStatistics;
+
+public class AspectMetricsTest {
+
+    @Test
+    public void testRecordingMetricsAreKeyedOnTheWovenClass() throws Exception {
+
+        RecordedService service = new RecordedService();
+        service.record("first");
+        try {
+            service.fail();
+            fail("Expected an IllegalStateException");
+        } catch (IllegalStateException expected) {
+        }
+
+        InvocationMetricsMXBean metrics = metricsOf("Recording", RecordedService.class);
+        assertEquals(RecordedService.class.getName(), metrics.getTargetClass());
+        assertStatistics(metrics.getMethods().get("record(java.lang.String)"), 1L, 0L);
+        assertStatistics(metrics.getMethods().get("fail()"), 1L, 1L);
+        assertFalse(isRegistered("Recording", Class.class));
+    }
+
+    @Test
+    public void testPerformanceMetricsAreKeyedOnTheWovenClass() throws Exception {
+
+        new MeasuredService().measure(42);
+
+        InvocationMetricsMXBean metrics = metricsOf("Performance", MeasuredService.class);
+        assertEquals(MeasuredService.class.getName(), metrics.getTargetClass());
+        assertStatistics(metrics.getMethods().get("measure(int)"), 1L, 0L);
+        assertFalse(isRegistered("Performance", Class.class));
+    }
+
+    private static void assertStatistics(InvocationStatistics statistics, long invocations, long errors) {
+
+        assertEquals(invocations, statistics.getInvocationCount());
+        assertEquals(errors, statistics.getErrorCount());
+        assertEquals(0L, statistics.getInFlightCount());
+    }
+
+    private static InvocationMetricsMXBean metricsOf(String category, Class<?> type) throws Exception {
+        return JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), nameOf(category, type), InvocationMetricsMXBean.class);
+    }
+
+    private static boolean isRegistered(String category, Class<?> type) throws Exception {
+        return ManagementFactory.getPlatformMBeanServer().isRegistered(nameOf(category, type));
+    }
+
+    private static ObjectName nameOf(String category, Class<?> type) throws Exception {
+        return new ObjectName("com.groupcdg.carbon.logging:type=" + category + "Metrics,name=" + ObjectName.quote(type.getName()));
+    }
+
+    public static class RecordedService {
+
+        @Record
+        public String record(String value) {
+            return value;
+        }
+
+        @Record
+        public void fail() {
+            throw new IllegalStateException("Failed");
+        }
+    }
+
+    public static class MeasuredService {
+
+        @LogPerformance
+        public int measure(int value) {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.bytecode.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.Level;
+import com.groupcdg.carbon.logging.helper.spi.LoggingUtils;
+import com.groupcdg.carbon.logging.interceptor.LoggingMethodInterceptor;
+import com.groupcdg.carbon.logging.proxy.spi.ProxyFactory;
+
+public class BytecodeFactoryTest {
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testGeneratedProxyStandsForItsFirstInterface() {
+
+        Calculator proxy = BytecodeFactory.getProxy(new SimpleCalculator(), LoggingMethodInterceptor.of(Level.WARN));
+
+        assertFalse("The generated backend should be used for a public interface", Proxy.isProxyClass(proxy.getClass()));
+        assertSame(Calculator.class, LoggingUtils.determineActualType(proxy));
+    }
+
+    @Test
+    public void testLogsTheSameAsDynamicProxies() {
+
+        Calculator jdkProxy = ProxyFactory.getProxy(new SimpleCalculator(), LoggingMethodInterceptor.of(Level.WARN));
+        exercise(jdkProxy);
+        List<String> jdkEntries = recorded();
+
+        RecordingAppender.clear();
+        Calculator bytecodeProxy = BytecodeFactory.getProxy(new SimpleCalculator(), LoggingMethodInterceptor.of(Level.WARN));
+        exercise(bytecodeProxy);
+        List<String> bytecodeEntries = recorded();
+
+        assertFalse(jdkEntries.isEmpty());
+        assertTrue(jdkEntries.get(0), jdkEntries.get(0).startsWith("WARN " + Calculator.class.getName() + " - "));
+        assertEquals(jdkEntries, bytecodeEntries);
+    }
+
+    @Test
+    public void testDelegatesPrimitivesVoidAndObjectMethods() {
+
+        SimpleCalculator target = new SimpleCalculator();
+        Calculator proxy = BytecodeFactory.getProxy(target, LoggingMethodInterceptor.of(Level.WARN));
+
+        assertEquals(5, proxy.add(2, 3));
+        assertEquals(2.5d, proxy.half(5L), 0d);
+        proxy.reset();
+        assertEquals(1, target.resets);
+        assertEquals(target.toString(), proxy.toString());
+        assertEquals(target.hashCode(), proxy.hashCode());
+    }
+
+    @Test
+    public void testCheckedExceptionsPropagateUnwrapped() {
+
+        Calculator proxy = BytecodeFactory.getProxy(new SimpleCalculator(), LoggingMethodInterceptor.of(Level.WARN));
+        try {
+            proxy.divide(1, 0);
+            fail("Expected an exception");
+        } catch (CalculationException e) {
+            assertEquals("Division by zero", e.getMessage());
+        }
+    }
+
+    private static void exercise(Calculator calculator) {
+        calculator.add(1, 2);
+        try {
+            calculator.divide(1, 0);
+        } catch (CalculationException e) {
+            // Logged by the interceptor
+        }
+    }
+
+    private static List<String> recorded() {
+        List<String> result = new ArrayList<>();
+        for (RecordingAppender.Entry next : RecordingAppender.entries()) {
+            result.add(next.toString());
+        }
+        return result;
+    }
+
+    public interface Calculator {
+
+        int add(int a, int b);
+
+        double half(long value);
+
+        int divide(int a, int b) throws CalculationException;
+
+        void reset();
+    }
+
+    public static class SimpleCalculator implements Calculator {
+
+        private int resets;
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public double half(long value) {
+            return value / 2d;
+        }
+
+        @Override
+        public int divide(int a, int b) throws CalculationException {
+            if (b == 0) {
+                throw new CalculationException("Division by zero");
+            }
+            return a / b;
+        }
+
+        @Override
+        public void reset() {
+            resets++;
+        }
+
+        @Override
+        public String toString() {
+            return "SimpleCalculator";
+        }
+    }
+
+    public static class CalculationException extends Exception {
+
+        private static final long serialVersionUID = 1L;
+
+        public CalculationException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.cglib.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
+
+public class CglibFactoryTest {
+
+    @Test
+    public void testRoutingIsResolvedOncePerInterceptorSet() {
+
+        CountingMatcher interceptor = new CountingMatcher("greet");
+        Greeter first = CglibFactory.getProxy(new Greeter(), interceptor);
+        int matches = interceptor.matches.get();
+
+        Greeter second = CglibFactory.getProxy(new Greeter(), interceptor);
+
+        assertSame(first.getClass(), second.getClass());
+        assertEquals(matches, interceptor.matches.get());
+        assertEquals("Hello", second.greet());
+        assertEquals(1, interceptor.intercepted.get());
+    }
+
+    @Test
+    public void testDiscardedInterceptorsAreNotRetained() throws InterruptedException {
+
+        WeakReference<MethodInterceptor> reference = createAndDiscardProxy();
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertNull(reference.get());
+
+        // A further interceptor set is still routed once the discarded one is removed
+        assertEquals("Hello", CglibFactory.<Greeter, Greeter> getProxy(new Greeter(), new CountingMatcher("greet")).greet());
+    }
+
+    private static WeakReference<MethodInterceptor> createAndDiscardProxy() {
+        MethodInterceptor interceptor = new CountingMatcher("greet");
+        CglibFactory.getProxy(new Greeter(), interceptor);
+        return new WeakReference<>(interceptor);
+    }
+
+    private static final class CountingMatcher implements MethodInterceptor, MethodMatcher {
+
+        private final String methodName;
+
+        private final AtomicInteger matches = new AtomicInteger();
+
+        private final AtomicInteger intercepted = new AtomicInteger();
+
+        private CountingMatcher(String methodName) {
+            this.methodName = methodName;
+        }
+
+        @Override
+        public boolean isMatchedMethod(Method method) {
+            matches.incrementAndGet();
+            return methodName.equals(method.getName());
+        }
+
+        @Override
+        public Object interceptBefore(Object proxy, Method method, Object[] args, Object realtarget) {
+            intercepted.incrementAndGet();
+            return null;
+        }
+
+        @Override
+        public void interceptAfter(Object proxy, Method method, Object[] args, Object realtarget, Object retObject, Object interceptBeforeReturnObject) {
+        }
+
+        @Override
+        public void interceptAfterThrowing(Object proxy, Method method, Object[] args, Object realtarget, Throwable cause, Object interceptBeforeReturnObject) {
+        }
+    }
+
+    public static class Greeter {
+
+        public String greet() {
+            return "Hello";
+        }
+
+        public String ignore() {
+            return "Ignored";
+        }
+    }
+}
@@ -0,0 +1,249 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.slf4j.MDC;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.Level;
+
+public class AsyncLogDispatcherTest {
+
+    private static final String LOGGER_NAME = "com.groupcdg.carbon.logging.helper.spi.AsyncLogDispatcherTest.events";
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LOGGER_NAME);
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @After
+    public void stopDispatcher() {
+        AsyncLogDispatcher.stop();
+        MDC.clear();
+    }
+
+    @Test
+    public void testEventsAreLoggedInOrderOffTheCallingThreadWithItsContext() {
+
+        AsyncLogDispatcher.start(1024, AsyncWaitPolicy.PARK, AsyncOverflowPolicy.DROP);
+        MDC.put("requestId", "r-42");
+        for (int i = 0; i < 100; i++) {
+            assertTrue(AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "event {}", new Object[] {i}));
+        }
+        MDC.clear();
+        AsyncLogDispatcher.stop();
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries(LOGGER_NAME);
+        assertEquals(100, entries.size());
+        for (int i = 0; i < 100; i++) {
+            RecordingAppender.Entry entry = entries.get(i);
+            assertEquals("event " + i, entry.getMessage());
+            assertEquals("carbon-logging-async", entry.getThreadName());
+            assertEquals("r-42", entry.getContext().get("requestId"));
+            assertEquals(Thread.currentThread().getName(), entry.getContext().get(AsyncLogDispatcher.CALLER_THREAD_KEY));
+        }
+    }
+
+    @Test
+    public void testContextIsNotCarriedToLaterEvents() {
+
+        AsyncLogDispatcher.start(16, AsyncWaitPolicy.PARK, AsyncOverflowPolicy.DROP);
+        MDC.put("requestId", "r-1");
+        AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "with context", new Object[0]);
+        MDC.clear();
+        AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "without context", new Object[0]);
+        AsyncLogDispatcher.stop();
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries(LOGGER_NAME);
+        assertEquals("r-1", entries.get(0).getContext().get("requestId"));
+        assertNull(entries.get(1).getContext().get("requestId"));
+    }
+
+    @Test
+    public void testDropDiscardsEventsWhenFull() {
+
+        Gate gate = new Gate();
+        AsyncLogDispatcher.start(4, AsyncWaitPolicy.PARK, AsyncOverflowPolicy.DROP);
+        fillWhileConsumerIsHeld(gate, 5);
+
+        assertEquals(2L, AsyncLogDispatcher.getDroppedCount());
+        gate.open();
+        AsyncLogDispatcher.stop();
+
+        assertEquals(4, RecordingAppender.entries(LOGGER_NAME).size());
+        assertTrue(RecordingAppender.entries(AsyncLogDispatcher.class.getName()).isEmpty());
+    }
+
+    @Test
+    public void testSummarizeReportsDiscardedEvents() {
+
+        Gate gate = new Gate();
+        AsyncLogDispatcher.start(4, AsyncWaitPolicy.PARK, AsyncOverflowPolicy.SUMMARIZE);
+        fillWhileConsumerIsHeld(gate, 6);
+
+        assertEquals(3L, AsyncLogDispatcher.getDroppedCount());
+        gate.open();
+        AsyncLogDispatcher.stop();
+
+        assertEquals(4, RecordingAppender.entries(LOGGER_NAME).size());
+        List<RecordingAppender.Entry> summaries = RecordingAppender.entries(AsyncLogDispatcher.class.getName());
+        assertEquals(1, summaries.size());
+        assertEquals("3 log events were discarded because the asynchronous buffer was full", summaries.get(0).getMessage());
+    }
+
+    @Test
+    public void testBlockWaitsForAFreeSlot() throws InterruptedException {
+
+        Gate gate = new Gate();
+        AsyncLogDispatcher.start(4, AsyncWaitPolicy.PARK, AsyncOverflowPolicy.BLOCK);
+        fillWhileConsumerIsHeld(gate, 3);
+
+        final CountDownLatch offered = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "event {}", new Object[] {"blocked"});
+                offered.countDown();
+            }
+        });
+        producer.start();
+
+        assertFalse("The producer should wait while the buffer is full", offered.await(200, TimeUnit.MILLISECONDS));
+        gate.open();
+        assertTrue(offered.await(5, TimeUnit.SECONDS));
+        producer.join();
+        AsyncLogDispatcher.stop();
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries(LOGGER_NAME);
+        assertEquals(5, entries.size());
+        assertEquals("event gate", entries.get(0).getMessage());
+        assertEquals("event blocked", entries.get(4).getMessage());
+        assertEquals(0L, AsyncLogDispatcher.getDroppedCount());
+    }
+
+    @Test
+    public void testStopLogsBufferedEventsBeforeReturning() {
+
+        AsyncLogDispatcher.start(1024, AsyncWaitPolicy.PARK, AsyncOverflowPolicy.BLOCK);
+        for (int i = 0; i < 1000; i++) {
+            AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "event {}", new Object[] {i});
+        }
+        AsyncLogDispatcher.stop();
+
+        assertEquals(1000, RecordingAppender.entries(LOGGER_NAME).size());
+        assertFalse(AsyncLogDispatcher.isRunning());
+        assertFalse("Events after stopping are logged on the calling thread", AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "late", new Object[0]));
+    }
+
+    @Test
+    public void testNoAcceptedEventIsLostWhenStoppingConcurrently() throws InterruptedException {
+
+        for (int round = 0; round < 20; round++) {
+            RecordingAppender.clear();
+            AsyncLogDispatcher.start(256, AsyncWaitPolicy.SPIN, AsyncOverflowPolicy.BLOCK);
+
+            final AtomicInteger accepted = new AtomicInteger();
+            final AtomicBoolean done = new AtomicBoolean();
+            Thread[] producers = new Thread[4];
+            for (int p = 0; p < producers.length; p++) {
+                producers[p] = new Thread(new Runnable() {
+                    @Override
+                    public void run() {
+                        while (!done.get()) {
+                            if (!AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "event", new Object[0])) {
+                                return;
+                            }
+                            accepted.incrementAndGet();
+                        }
+                    }
+                });
+                producers[p].start();
+            }
+            Thread.sleep(5);
+            AsyncLogDispatcher.stop();
+            done.set(true);
+            for (Thread producer : producers) {
+                producer.join();
+            }
+
+            assertEquals(accepted.get(), RecordingAppender.entries(LOGGER_NAME).size());
+        }
+    }
+
+    /**
+     * Dispatches an event that holds the consumer, and so its slot, until the gate opens, then the
+     * given number of further events
+     */
+    private static void fillWhileConsumerIsHeld(Gate gate, int events) {
+
+        AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "event {}", new Object[] {gate});
+        gate.awaitConsumer();
+        for (int i = 0; i < events; i++) {
+            AsyncLogDispatcher.dispatch(LOGGER, Level.WARN, "event {}", new Object[] {i});
+        }
+    }
+
+    /**
+     * An argument whose rendering blocks the consumer thread until it is opened
+     */
+    private static final class Gate {
+
+        private final CountDownLatch entered = new CountDownLatch(1);
+
+        private final CountDownLatch opened = new CountDownLatch(1);
+
+        void awaitConsumer() {
+            try {
+                assertTrue(entered.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        }
+
+        void open() {
+            opened.countDown();
+        }
+
+        @Override
+        public String toString() {
+            entered.countDown();
+            try {
+                opened.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "gate";
+        }
+    }
+}
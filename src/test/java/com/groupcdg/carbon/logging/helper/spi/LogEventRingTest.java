@@ -0,0 +1,135 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+import org.slf4j.helpers.NOPLogger;
+
+import com.groupcdg.carbon.logging.annotation.Level;
+
+public class LogEventRingTest {
+
+    @Test
+    public void testEventsAreConsumedInOrderAcrossLaps() {
+
+        LogEventRing ring = new LogEventRing(4);
+        for (int i = 0; i < 10; i++) {
+            assertTrue(offer(ring, "event " + i));
+            LogEventRing.Event event = ring.peek();
+            assertEquals("event " + i, event.getPattern());
+            ring.release();
+            assertNull(ring.peek());
+        }
+    }
+
+    @Test
+    public void testOfferFailsWhenFullUntilReleased() {
+
+        LogEventRing ring = new LogEventRing(4);
+        for (int i = 0; i < 4; i++) {
+            assertTrue(offer(ring, "event " + i));
+        }
+        assertFalse(offer(ring, "overflow"));
+
+        assertEquals("event 0", ring.peek().getPattern());
+        ring.release();
+        assertTrue(offer(ring, "event 4"));
+
+        for (int i = 1; i <= 4; i++) {
+            assertEquals("event " + i, ring.peek().getPattern());
+            ring.release();
+        }
+        assertNull(ring.peek());
+    }
+
+    @Test
+    public void testEventCarriesCallerContext() {
+
+        LogEventRing ring = new LogEventRing(2);
+        ring.offer(NOPLogger.NOP_LOGGER, Level.WARN, "pattern", new Object[] {"arg"}, Collections.singletonMap("requestId", "42"), "caller", 1234L);
+
+        LogEventRing.Event event = ring.peek();
+        assertEquals(Level.WARN, event.getLevel());
+        assertEquals("arg", event.getArgs()[0]);
+        assertEquals("42", event.getContext().get("requestId"));
+        assertEquals("caller", event.getCallerThread());
+        assertEquals(1234L, event.getTimeMillis());
+
+        ring.release();
+        assertNull(ring.peek());
+    }
+
+    @Test
+    public void testEachProducersEventsStayInOrder() throws InterruptedException {
+
+        final int producers = 4;
+        final int eventsPerProducer = 20000;
+        final LogEventRing ring = new LogEventRing(64);
+        final CountDownLatch start = new CountDownLatch(1);
+
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            final int producer = p;
+            threads[p] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        start.await();
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    for (int i = 0; i < eventsPerProducer; i++) {
+                        while (!ring.offer(NOPLogger.NOP_LOGGER, Level.INFO, "event", new Object[] {producer, i}, null, "producer", 0L)) {
+                            Thread.yield();
+                        }
+                    }
+                }
+            });
+            threads[p].start();
+        }
+        start.countDown();
+
+        int[] next = new int[producers];
+        for (int consumed = 0; consumed < producers * eventsPerProducer; ) {
+            LogEventRing.Event event = ring.peek();
+            if (event == null) {
+                Thread.yield();
+                continue;
+            }
+            int producer = (Integer) event.getArgs()[0];
+            assertEquals(next[producer], ((Integer) event.getArgs()[1]).intValue());
+            next[producer]++;
+            ring.release();
+            consumed++;
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertNull(ring.peek());
+    }
+
+    private static boolean offer(LogEventRing ring, String pattern) {
+        return ring.offer(NOPLogger.NOP_LOGGER, Level.INFO, pattern, new Object[0], null, "caller", 0L);
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.ref.WeakReference;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.Level;
+
+public class LogRateLimiterTest {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(LogRateLimiterTest.class);
+
+    @Before
+    public void clearRecordedEvents() {
+        LogRateLimiter.report();
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testNoLimitPermitsEveryEvent() {
+
+        LogRateLimiter limiter = LogRateLimiter.of("unlimited", 0);
+
+        assertSame(LogRateLimiter.unlimited(), limiter);
+        for (int i = 0; i < 10000; i++) {
+            assertTrue(limiter.tryAcquire(LOGGER, Level.WARN));
+        }
+    }
+
+    @Test
+    public void testBurstIsOneSecondOfEvents() {
+
+        LogRateLimiter limiter = LogRateLimiter.of("burst", 10);
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue("Event " + i, limiter.tryAcquire(LOGGER, Level.WARN));
+        }
+        assertFalse(limiter.tryAcquire(LOGGER, Level.WARN));
+    }
+
+    @Test
+    public void testBucketRefillsOverTime() throws InterruptedException {
+
+        LogRateLimiter limiter = LogRateLimiter.of("refill", 100);
+        while (limiter.tryAcquire(LOGGER, Level.WARN)) {
+            // Drain the bucket
+        }
+
+        Thread.sleep(50L);
+        assertTrue(limiter.tryAcquire(LOGGER, Level.WARN));
+    }
+
+    @Test
+    public void testSuppressedEventsAreReportedOnce() {
+
+        LogRateLimiter limiter = LogRateLimiter.of("reported", 1);
+        assertTrue(limiter.tryAcquire(LOGGER, Level.WARN));
+        assertFalse(limiter.tryAcquire(LOGGER, Level.WARN));
+        assertFalse(limiter.tryAcquire(LOGGER, Level.WARN));
+
+        LogRateLimiter.report();
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries(LOGGER.getName());
+        assertEquals(1, entries.size());
+        assertEquals("WARN", entries.get(0).getLevel());
+        assertEquals("2 similar events suppressed for reported", entries.get(0).getMessage());
+
+        RecordingAppender.clear();
+        LogRateLimiter.report();
+        assertEquals(0, RecordingAppender.entries(LOGGER.getName()).size());
+    }
+
+    @Test
+    public void testDiscardedLimitersCanBeCollected() throws InterruptedException {
+
+        WeakReference<LogRateLimiter> reference = new WeakReference<>(LogRateLimiter.of("discarded", 10));
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertNull(reference.get());
+    }
+}
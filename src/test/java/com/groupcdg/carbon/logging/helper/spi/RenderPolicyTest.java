@@ -0,0 +1,62 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+
+public class RenderPolicyTest {
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testNamesAreReadIgnoringCase() {
+
+        assertEquals(RenderPolicy.LAZY, RenderPolicy.parse("lazy"));
+        assertEquals(RenderPolicy.LAZY_IMMUTABLE, RenderPolicy.parse(" Lazy_Immutable "));
+        assertEquals(RenderPolicy.EAGER, RenderPolicy.parse("EAGER"));
+        assertTrue(RecordingAppender.entries(RenderPolicy.class.getName()).isEmpty());
+    }
+
+    @Test
+    public void testMissingNameGivesEager() {
+
+        assertEquals(RenderPolicy.EAGER, RenderPolicy.parse(null));
+        assertEquals(RenderPolicy.EAGER, RenderPolicy.parse(""));
+        assertTrue(RecordingAppender.entries(RenderPolicy.class.getName()).isEmpty());
+    }
+
+    @Test
+    public void testUnknownNameGivesEagerWithAWarning() {
+
+        assertEquals(RenderPolicy.EAGER, RenderPolicy.parse("lazzy"));
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries(RenderPolicy.class.getName());
+        assertEquals(1, entries.size());
+        assertEquals("WARN", entries.get(0).getLevel());
+        assertTrue(entries.get(0).getMessage(), entries.get(0).getMessage().contains("lazzy"));
+    }
+}
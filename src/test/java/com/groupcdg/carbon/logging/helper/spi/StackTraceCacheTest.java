@@ -0,0 +1,155 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+public class StackTraceCacheTest {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    private static final long WINDOW = TimeUnit.SECONDS.toNanos(1);
+
+    @Test
+    public void testDeduplicationIsOffByDefault() {
+
+        Throwable throwable = new IllegalStateException("failed");
+        String expected = LINE_SEPARATOR + printStackTrace(throwable);
+
+        assertEquals(expected, StackTraceCache.render(throwable));
+        assertEquals(expected, StackTraceCache.render(throwable));
+    }
+
+    @Test
+    public void testRepeatsWithinWindowAreReferencedById() {
+
+        StackTraceCache cache = new StackTraceCache(WINDOW);
+        Throwable[] throwables = new Throwable[2];
+        for (int i = 0; i < throwables.length; i++) {
+            throwables[i] = new IllegalStateException("failed");
+        }
+        String id = Long.toHexString(StackTraceCache.fingerprint(throwables[0]));
+
+        assertEquals(" [fingerprint " + id + "]" + LINE_SEPARATOR + printStackTrace(throwables[0]), cache.format(throwables[0], StackTraceRenderer.full(), 0L));
+        assertEquals(" [fingerprint " + id + ", occurrence 2, stack trace logged previously]", cache.format(throwables[1], StackTraceRenderer.full(), WINDOW - 1));
+    }
+
+    @Test
+    public void testNewWindowRendersTheCurrentThrowable() {
+
+        StackTraceCache cache = new StackTraceCache(WINDOW);
+        Throwable[] throwables = new Throwable[2];
+        for (int i = 0; i < throwables.length; i++) {
+            throwables[i] = new IllegalStateException("failed", new IOException("cause " + i));
+        }
+
+        cache.format(throwables[0], StackTraceRenderer.full(), 0L);
+        String second = cache.format(throwables[1], StackTraceRenderer.full(), WINDOW);
+
+        // Causes that differ only by message share a fingerprint, but the new window shows the current one
+        assertTrue(second, second.contains("occurrence 2]"));
+        assertTrue(second, second.endsWith(printStackTrace(throwables[1])));
+        assertTrue(second, second.contains("cause 1"));
+    }
+
+    @Test
+    public void testRepeatAfterWindowRendersTheCurrentThrowable() {
+
+        StackTraceCache cache = new StackTraceCache(WINDOW);
+        Throwable[] throwables = new Throwable[2];
+        for (int i = 0; i < throwables.length; i++) {
+            throwables[i] = new IllegalStateException("failed");
+        }
+        // Same fingerprint, but a trace that differs below the fingerprinted frames
+        Throwable second = throwables[1];
+        second.setStackTrace(appendFrame(second.getStackTrace()));
+
+        cache.format(throwables[0], StackTraceRenderer.full(), 0L);
+        String rendered = cache.format(second, StackTraceRenderer.full(), WINDOW);
+
+        assertTrue(rendered, rendered.startsWith(" [fingerprint " + Long.toHexString(StackTraceCache.fingerprint(second)) + ", occurrence 2]"));
+        assertTrue(rendered, rendered.endsWith(printStackTrace(second)));
+    }
+
+    @Test
+    public void testFingerprintCoversCausesButNotMessages() {
+
+        String[] messages = new String[] {"account 17 not found", "account 42 not found", "account 17 not found"};
+        long[] fingerprints = new long[messages.length];
+        for (int i = 0; i < messages.length; i++) {
+            fingerprints[i] = StackTraceCache.fingerprint(wrap(i == 2, messages[i]));
+        }
+
+        assertEquals(fingerprints[0], fingerprints[1]);
+        assertNotEquals(fingerprints[0], fingerprints[2]);
+    }
+
+    @Test
+    public void testFingerprintToleratesCircularCauses() {
+
+        Exception first = new Exception("first");
+        Exception second = new Exception("second", first);
+        first.initCause(second);
+
+        assertEquals(StackTraceCache.fingerprint(first), StackTraceCache.fingerprint(first));
+    }
+
+    @Test
+    public void testEqualRenderersShareEntries() {
+
+        StackTraceCache cache = new StackTraceCache(WINDOW);
+        Throwable throwable = new IllegalStateException("failed");
+
+        cache.format(throwable, StackTraceRenderer.of(5, true), 0L);
+        String repeated = cache.format(throwable, StackTraceRenderer.of(5, true), 1L);
+        String otherRenderer = cache.format(throwable, StackTraceRenderer.of(6, true), 2L);
+
+        assertTrue(repeated, repeated.contains("occurrence 2"));
+        assertFalse(otherRenderer, otherRenderer.contains("occurrence"));
+    }
+
+    /**
+     * Wraps a cause raised at the same site on every call, as a generic catch-and-wrap would
+     */
+    private static RuntimeException wrap(boolean illegalState, String message) {
+        Exception cause = illegalState ? new IllegalStateException(message) : new IOException(message);
+        return new RuntimeException("wrapped", cause);
+    }
+
+    private static StackTraceElement[] appendFrame(StackTraceElement[] frames) {
+
+        StackTraceElement[] result = new StackTraceElement[frames.length + 1];
+        System.arraycopy(frames, 0, result, 0, frames.length);
+        result[frames.length] = new StackTraceElement("example.Outer", "run", "Outer.java", 42);
+        return result;
+    }
+
+    private static String printStackTrace(Throwable throwable) {
+        StringWriter sw = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.helper.spi;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+
+import org.junit.Test;
+
+public class StackTraceRendererTest {
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator");
+
+    @Test
+    public void testUnlimitedRendererMatchesPrintStackTrace() {
+
+        Exception suppressed = new IllegalArgumentException("suppressed");
+        Exception root = new IOException("root cause");
+        Exception middle = new IllegalStateException("middle", root);
+        Exception top = new RuntimeException("top", middle);
+        top.addSuppressed(suppressed);
+        middle.addSuppressed(new UnsupportedOperationException("nested suppressed"));
+
+        assertEquals(printStackTrace(top), StackTraceRenderer.of(0).render(top));
+        assertEquals(printStackTrace(top), StackTraceRenderer.full().render(top));
+    }
+
+    @Test
+    public void testMaxFramesPerCauseLimitsEachCause() {
+
+        Exception throwable = new RuntimeException("top", new IOException("cause"));
+        throwable.setStackTrace(frames("a.A", 5));
+        throwable.getCause().setStackTrace(frames("b.B", 3));
+
+        String expected = "java.lang.RuntimeException: top" + LINE_SEPARATOR
+                + "\tat a.A.method0(A.java:1)" + LINE_SEPARATOR
+                + "\tat a.A.method1(A.java:2)" + LINE_SEPARATOR
+                + "\t... 3 frames omitted" + LINE_SEPARATOR
+                + "Caused by: java.io.IOException: cause" + LINE_SEPARATOR
+                + "\tat b.B.method0(B.java:1)" + LINE_SEPARATOR
+                + "\tat b.B.method1(B.java:2)" + LINE_SEPARATOR
+                + "\t... 1 frames omitted" + LINE_SEPARATOR;
+        assertEquals(expected, StackTraceRenderer.of(2).render(throwable));
+    }
+
+    @Test
+    public void testCollapsedPackagesAreReplacedByACount() {
+
+        Exception throwable = new RuntimeException("top");
+        throwable.setStackTrace(new StackTraceElement[] {
+            new StackTraceElement("app.Service", "call", "Service.java", 10),
+            new StackTraceElement("sun.reflect.Method", "invoke", "Method.java", 1),
+            new StackTraceElement("sun.reflect.Method", "invoke0", "Method.java", 2),
+            new StackTraceElement("app.Main", "main", "Main.java", 5)
+        });
+
+        String expected = "java.lang.RuntimeException: top" + LINE_SEPARATOR
+                + "\tat app.Service.call(Service.java:10)" + LINE_SEPARATOR
+                + "\t... 2 framework frames" + LINE_SEPARATOR
+                + "\tat app.Main.main(Main.java:5)" + LINE_SEPARATOR;
+        assertEquals(expected, StackTraceRenderer.of(0, "sun.reflect.").render(throwable));
+    }
+
+    @Test
+    public void testRenderersWithTheSameSettingsAreEqual() {
+
+        assertSame(StackTraceRenderer.full(), StackTraceRenderer.of(0, false));
+        assertEquals(StackTraceRenderer.of(5, true), StackTraceRenderer.of(5, true));
+        assertEquals(StackTraceRenderer.of(5, true).hashCode(), StackTraceRenderer.of(5, true).hashCode());
+        assertEquals(StackTraceRenderer.of(3, "a.", "b."), StackTraceRenderer.of(3, "a.", "b."));
+        assertNotEquals(StackTraceRenderer.of(5, true), StackTraceRenderer.of(5, false));
+        assertNotEquals(StackTraceRenderer.of(3, "a."), StackTraceRenderer.of(3, "b."));
+        assertNotEquals(StackTraceRenderer.full(), StackTraceRenderer.of(0));
+        assertTrue(StackTraceRenderer.full().equals(StackTraceRenderer.full()));
+    }
+
+    private static StackTraceElement[] frames(String className, int count) {
+
+        StackTraceElement[] frames = new StackTraceElement[count];
+        String fileName = className.substring(className.lastIndexOf('.') + 1) + ".java";
+        for (int i = 0; i < count; i++) {
+            frames[i] = new StackTraceElement(className, "method" + i, fileName, i + 1);
+        }
+        return frames;
+    }
+
+    private static String printStackTrace(Throwable throwable) {
+        StringWriter sw = new StringWriter();
+        throwable.printStackTrace(new PrintWriter(sw));
+        return sw.toString();
+    }
+}
@@ -0,0 +1,116 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.Level;
+import com.groupcdg.carbon.logging.annotation.LogExceptions;
+
+public class ExceptionMethodInterceptorTest {
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testElementsOfTheMethodAnnotationAreApplied() throws Exception {
+
+        invokeThrowing("failed", new IllegalStateException("expected"), "visible");
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries("ExceptionLogger");
+        assertEquals(1, entries.size());
+        assertEquals("ERROR", entries.get(0).getLevel());
+        assertTrue(entries.get(0).getMessage(), entries.get(0).getMessage().contains("visible"));
+    }
+
+    @Test
+    public void testRateLimiterIsSharedAcrossInvocations() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            invokeThrowing("limited", new IllegalStateException("expected"));
+        }
+
+        assertEquals(1, RecordingAppender.entries("ExceptionLogger").size());
+    }
+
+    @Test
+    public void testUnannotatedMethodsAreNotMatched() throws Exception {
+
+        ExceptionMethodInterceptor interceptor = ExceptionMethodInterceptor.of(Failing.class, Failing.class.getMethod("limited").getAnnotation(LogExceptions.class));
+
+        assertTrue(interceptor.isMatchedMethod(Failing.class.getMethod("limited")));
+        // The second lookup is answered from the cached descriptors
+        assertFalse(interceptor.isMatchedMethod(Failing.class.getMethod("unlogged")));
+        assertFalse(interceptor.isMatchedMethod(Failing.class.getMethod("unlogged")));
+    }
+
+    /**
+     * Drives a single interceptor as a proxy would for the given method of Failing
+     */
+    private static void invokeThrowing(String methodName, Throwable cause, Object... args) throws Exception {
+
+        for (Method next : Failing.class.getMethods()) {
+            if (next.getName().equals(methodName)) {
+                ExceptionMethodInterceptor interceptor = ExceptionMethodInterceptor.of(Failing.class, next.getAnnotation(LogExceptions.class));
+                SimpleFailing target = new SimpleFailing();
+                Object start = interceptor.interceptBefore(target, next, args, target);
+                interceptor.interceptAfterThrowing(target, next, args, target, cause, start);
+                return;
+            }
+        }
+        throw new IllegalStateException("No method " + methodName);
+    }
+
+    /**
+     * Annotated on the interface so that the test class is not also woven by ExceptionAspect
+     */
+    public interface Failing {
+
+        @LogExceptions(level = Level.ERROR, printStackTrace = false)
+        void failed(String argument);
+
+        @LogExceptions(level = Level.ERROR, printStackTrace = false, maxLoggedPerSecond = 1)
+        void limited();
+
+        void unlogged();
+    }
+
+    public static class SimpleFailing implements Failing {
+
+        @Override
+        public void failed(String argument) {
+        }
+
+        @Override
+        public void limited() {
+        }
+
+        @Override
+        public void unlogged() {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.Warn;
+import com.groupcdg.carbon.logging.bytecode.AnnotationBytecodeFactory;
+import com.groupcdg.carbon.logging.cglib.AnnotationCglibFactory;
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.proxy.AnnotationProxyFactory;
+
+public class InterceptionPlanTest {
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testPlanIsSharedByEveryProxyOfAClass() {
+
+        MethodInterceptor[] first = InterceptionPlan.of(AnnotatedGreeter.class).getInterceptors();
+        MethodInterceptor[] second = InterceptionPlan.of(AnnotatedGreeter.class).getInterceptors();
+
+        assertEquals(1, first.length);
+        assertTrue(first[0] instanceof LoggingMethodInterceptor);
+        assertSame(first[0], second[0]);
+    }
+
+    @Test
+    public void testDynamicProxiesApplyAnnotationsOfTheImplementation() throws Throwable {
+
+        Greeter proxy = AnnotationProxyFactory.getProxy(new AnnotatedGreeter());
+        assertLoggedOnlyGreet(proxy, Greeter.class);
+    }
+
+    @Test
+    public void testGeneratedProxiesApplyAnnotationsOfTheImplementation() throws Throwable {
+
+        Greeter proxy = AnnotationBytecodeFactory.getProxy(new AnnotatedGreeter());
+        assertLoggedOnlyGreet(proxy, Greeter.class);
+    }
+
+    @Test
+    public void testSubclassProxiesApplyAnnotationsOfTheImplementation() throws Throwable {
+
+        Greeter proxy = AnnotationCglibFactory.getProxy(new AnnotatedGreeter());
+        assertLoggedOnlyGreet(proxy, AnnotatedGreeter.class);
+    }
+
+    /**
+     * Checks the entries of the logger named after the proxied type, since the woven test class
+     * also logs through the aspects
+     */
+    private static void assertLoggedOnlyGreet(Greeter proxy, Class<?> loggerType) {
+
+        assertEquals("Hello World", proxy.greet("World"));
+        List<String> entries = recorded(loggerType);
+        assertEquals(entries.toString(), 2, entries.size());
+        for (String next : entries) {
+            assertTrue(next, next.startsWith("WARN ") && next.contains("greet"));
+        }
+
+        RecordingAppender.clear();
+        assertEquals("plain", proxy.plain());
+        assertEquals(0, recorded(loggerType).size());
+    }
+
+    private static List<String> recorded(Class<?> loggerType) {
+        List<String> result = new ArrayList<>();
+        for (RecordingAppender.Entry next : RecordingAppender.entries(loggerType.getName())) {
+            result.add(next.toString());
+        }
+        return result;
+    }
+
+    public interface Greeter {
+
+        String greet(String name);
+
+        String plain();
+    }
+
+    public static class AnnotatedGreeter implements Greeter {
+
+        @Warn
+        @Override
+        public String greet(String name) {
+            return "Hello " + name;
+        }
+
+        @Override
+        public String plain() {
+            return "plain";
+        }
+    }
+}
@@ -0,0 +1,185 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.Debug;
+import com.groupcdg.carbon.logging.annotation.Error;
+import com.groupcdg.carbon.logging.annotation.Info;
+import com.groupcdg.carbon.logging.annotation.Level;
+import com.groupcdg.carbon.logging.annotation.Log;
+import com.groupcdg.carbon.logging.annotation.None;
+import com.groupcdg.carbon.logging.annotation.Trace;
+import com.groupcdg.carbon.logging.annotation.Warn;
+import com.groupcdg.carbon.logging.proxy.spi.ProxyFactory;
+
+public class LoggingMethodInterceptorTest {
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testAnnotationsLogAtTheirOwnLevel() throws Exception {
+
+        Account proxy = proxy(Warn.class, "warned");
+        proxy.warned();
+        assertEquals(levels("WARN", "WARN"), recordedLevels());
+
+        RecordingAppender.clear();
+        proxy = proxy(Error.class, "failed");
+        proxy.failed();
+        assertEquals(levels("ERROR", "ERROR"), recordedLevels());
+    }
+
+    @Test
+    public void testLogUsesItsLevelWhereNoSpecificLevelIsGiven() throws Exception {
+
+        Account proxy = proxy(Log.class, "logged");
+        proxy.logged();
+        assertEquals(levels("WARN", "WARN"), recordedLevels());
+    }
+
+    @Test
+    public void testElementsOfTheAnnotationAreApplied() throws Exception {
+
+        Account proxy = proxy(Warn.class, "withoutArguments");
+        proxy.withoutArguments("secret");
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries(Account.class.getName());
+        assertEquals(1, entries.size());
+        assertFalse(entries.get(0).getMessage(), entries.get(0).getMessage().contains("secret"));
+    }
+
+    @Test
+    public void testUnannotatedMethodsAreNotMatched() throws Exception {
+
+        LoggingMethodInterceptor interceptor = LoggingMethodInterceptor.of(AnnotatedAccount.class, AnnotatedAccount.class.getMethod("warned").getAnnotation(Warn.class));
+
+        assertTrue(interceptor.isMatchedMethod(AnnotatedAccount.class.getMethod("warned")));
+        assertFalse(interceptor.isMatchedMethod(AnnotatedAccount.class.getMethod("failed")));
+    }
+
+    @Test
+    public void testEachAnnotationTypeIsResolved() throws Exception {
+
+        Class<?>[] annotationTypes = new Class<?>[] {Info.class, Debug.class, Trace.class, None.class};
+        String[] methodNames = new String[] {"informed", "debugged", "traced", "ignored"};
+        for (int i = 0; i < annotationTypes.length; i++) {
+            java.lang.reflect.Method method = AnnotatedAccount.class.getMethod(methodNames[i]);
+            @SuppressWarnings("unchecked")
+            LoggingMethodInterceptor interceptor = LoggingMethodInterceptor.of(AnnotatedAccount.class, method.getAnnotation((Class<? extends java.lang.annotation.Annotation>) annotationTypes[i]));
+            assertTrue(methodNames[i], interceptor.isMatchedMethod(method));
+        }
+    }
+
+    private static Account proxy(Class<? extends java.lang.annotation.Annotation> annotationType, String methodName) throws Exception {
+        return ProxyFactory.getProxy(new AnnotatedAccount(), LoggingMethodInterceptor.of(AnnotatedAccount.class, AnnotatedAccount.class.getMethod(methodName, parameterTypes(methodName)).getAnnotation(annotationType)));
+    }
+
+    private static Class<?>[] parameterTypes(String methodName) {
+        return "withoutArguments".equals(methodName) ? new Class<?>[] {String.class} : new Class<?>[0];
+    }
+
+    private static List<String> levels(String... levels) {
+        List<String> result = new ArrayList<>();
+        for (String next : levels) {
+            result.add(next);
+        }
+        return result;
+    }
+
+    private static List<String> recordedLevels() {
+        List<String> result = new ArrayList<>();
+        for (RecordingAppender.Entry next : RecordingAppender.entries(Account.class.getName())) {
+            result.add(next.getLevel());
+        }
+        return result;
+    }
+
+    public interface Account {
+
+        void warned();
+
+        void failed();
+
+        void logged();
+
+        void withoutArguments(String password);
+
+        void informed();
+
+        void debugged();
+
+        void traced();
+
+        void ignored();
+    }
+
+    public static class AnnotatedAccount implements Account {
+
+        @Warn
+        @Override
+        public void warned() {
+        }
+
+        @Error
+        @Override
+        public void failed() {
+        }
+
+        @Log(level = Level.WARN, beforeLevel = Level.DEFAULT)
+        @Override
+        public void logged() {
+        }
+
+        @Warn(logArguments = false, logAfter = false, logReturnValue = false)
+        @Override
+        public void withoutArguments(String password) {
+        }
+
+        @Info
+        @Override
+        public void informed() {
+        }
+
+        @Debug
+        @Override
+        public void debugged() {
+        }
+
+        @Trace
+        @Override
+        public void traced() {
+        }
+
+        @None
+        @Override
+        public void ignored() {
+        }
+    }
+}
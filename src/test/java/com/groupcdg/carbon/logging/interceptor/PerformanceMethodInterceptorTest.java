@@ -0,0 +1,118 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.interceptor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.reflect.Method;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+import com.groupcdg.carbon.logging.annotation.LatencyReporting;
+import com.groupcdg.carbon.logging.annotation.Level;
+import com.groupcdg.carbon.logging.annotation.LogPerformance;
+
+public class PerformanceMethodInterceptorTest {
+
+    @Before
+    public void clearRecordedEvents() {
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testElementsOfTheMethodAnnotationAreApplied() throws Exception {
+
+        for (int i = 0; i < 3; i++) {
+            invoke("bucketed", "visible");
+        }
+
+        List<RecordingAppender.Entry> entries = RecordingAppender.entries("TimedFastLogger");
+        assertEquals(3, entries.size());
+        assertEquals("ERROR", entries.get(0).getLevel());
+        assertTrue(entries.get(0).getMessage(), entries.get(0).getMessage().contains("visible"));
+    }
+
+    @Test
+    public void testSummaryReportingDoesNotLogEachCall() throws Exception {
+
+        invoke("summarised");
+
+        assertTrue(RecordingAppender.entries("TimedFastLogger").isEmpty());
+        assertTrue(RecordingAppender.entries(SimpleTimed.class.getName()).isEmpty());
+    }
+
+    @Test
+    public void testUnannotatedMethodsAreNotMatched() throws Exception {
+
+        PerformanceMethodInterceptor interceptor = PerformanceMethodInterceptor.of(Timed.class, Timed.class.getMethod("bucketed", String.class).getAnnotation(LogPerformance.class));
+
+        assertTrue(interceptor.isMatchedMethod(Timed.class.getMethod("bucketed", String.class)));
+        // The second lookup is answered from the cached descriptors
+        assertFalse(interceptor.isMatchedMethod(Timed.class.getMethod("untimed")));
+        assertFalse(interceptor.isMatchedMethod(Timed.class.getMethod("untimed")));
+    }
+
+    /**
+     * Drives the interceptor as a proxy would for the given method of Timed
+     */
+    private static void invoke(String methodName, Object... args) throws Exception {
+
+        for (Method next : Timed.class.getMethods()) {
+            if (next.getName().equals(methodName)) {
+                PerformanceMethodInterceptor interceptor = PerformanceMethodInterceptor.of(Timed.class, next.getAnnotation(LogPerformance.class));
+                SimpleTimed target = new SimpleTimed();
+                Object start = interceptor.interceptBefore(target, next, args, target);
+                interceptor.interceptAfter(target, next, args, target, null, start);
+                return;
+            }
+        }
+        throw new IllegalStateException("No method " + methodName);
+    }
+
+    /**
+     * Annotated on the interface so that the test class is not also woven by PerformanceAspect
+     */
+    public interface Timed {
+
+        @LogPerformance(level = Level.ERROR, thresholdMicros = 0, bucketMilliseconds = {60000}, bucketLoggerNames = {"TimedFastLogger", "TimedSlowLogger"})
+        void bucketed(String argument);
+
+        @LogPerformance(level = Level.ERROR, thresholdMicros = 0, latencyReporting = LatencyReporting.SUMMARY, bucketMilliseconds = {60000}, bucketLoggerNames = {"TimedFastLogger", "TimedSlowLogger"})
+        void summarised();
+
+        void untimed();
+    }
+
+    public static class SimpleTimed implements Timed {
+
+        @Override
+        public void bucketed(String argument) {
+        }
+
+        @Override
+        public void summarised() {
+        }
+
+        @Override
+        public void untimed() {
+        }
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.lang.management.ManagementFactory;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.Map;
+
+import javax.management.JMX;
+import javax.management.ObjectName;
+
+import org.junit.Test;
+
+public class InvocationMetricsRegistryTest {
+
+    @Test
+    public void testOverloadsWithTypesOfTheSameSimpleNameAreKeptApart() throws Exception {
+
+        InvocationMetricsRegistry registry = new InvocationMetricsRegistry("Overloads");
+        Method utilDate = Scheduler.class.getMethod("schedule", java.util.Date.class);
+        Method sqlDate = Scheduler.class.getMethod("schedule", java.sql.Date.class);
+
+        MethodInvocationMetrics utilMetrics = registry.forMethod(Scheduler.class, utilDate);
+        MethodInvocationMetrics sqlMetrics = registry.forMethod(Scheduler.class, sqlDate);
+
+        assertNotSame(utilMetrics, sqlMetrics);
+        assertEquals("schedule(java.util.Date)", utilMetrics.getSignature());
+        assertEquals("schedule(java.sql.Date)", sqlMetrics.getSignature());
+        assertEquals("schedule(java.lang.String[])", registry.forMethod(Scheduler.class, Scheduler.class.getMethod("schedule", String[].class)).getSignature());
+    }
+
+    @Test
+    public void testMethodsWithTheSameSignatureShareMetrics() throws Exception {
+
+        InvocationMetricsRegistry registry = new InvocationMetricsRegistry("Aliases");
+
+        assertSame(registry.forMethod(Scheduler.class, Scheduler.class.getMethod("cancel")),
+                registry.forMethod(Scheduler.class, Cancellable.class.getMethod("cancel")));
+    }
+
+    @Test
+    public void testStatisticsArePublishedOverJmx() throws Exception {
+
+        InvocationMetricsRegistry registry = new InvocationMetricsRegistry("Published");
+        MethodInvocationMetrics metrics = registry.forMethod(Scheduler.class, Scheduler.class.getMethod("schedule", java.util.Date.class));
+        metrics.enter();
+        metrics.exit(2000L, false);
+        metrics.enter();
+        metrics.exit(5000L, true);
+        metrics.enter();
+
+        InvocationStatistics statistics = metrics.snapshot();
+        assertEquals(2L, statistics.getInvocationCount());
+        assertEquals(1L, statistics.getErrorCount());
+        assertEquals(1L, statistics.getInFlightCount());
+        assertEquals(7000L, statistics.getTotalDurationNanos());
+        assertEquals(5000L, statistics.getMaxDurationNanos());
+
+        InvocationMetricsMXBean bean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(),
+                new ObjectName("com.groupcdg.carbon.logging:type=PublishedMetrics,name=" + ObjectName.quote(Scheduler.class.getName())),
+                InvocationMetricsMXBean.class);
+        assertEquals(Scheduler.class.getName(), bean.getTargetClass());
+
+        Map<String, InvocationStatistics> methods = bean.getMethods();
+        assertEquals(1, methods.size());
+        InvocationStatistics published = methods.get("schedule(java.util.Date)");
+        assertEquals(2L, published.getInvocationCount());
+        assertEquals(1L, published.getErrorCount());
+        assertEquals(1L, published.getInFlightCount());
+    }
+
+    @Test
+    public void testClassReloadedByAnotherLoaderReplacesItsBean() throws Exception {
+
+        InvocationMetricsRegistry registry = new InvocationMetricsRegistry("Reloaded");
+        MethodInvocationMetrics original = registry.forMethod(Scheduler.class, Scheduler.class.getMethod("cancel"));
+        original.enter();
+        original.exit(1000L, false);
+
+        try (URLClassLoader loader = isolatedLoader()) {
+            Class<?> reloaded = loader.loadClass(Scheduler.class.getName());
+            assertNotSame(Scheduler.class, reloaded);
+            registry.forMethod(reloaded, reloaded.getMethod("cancel"));
+
+            InvocationMetricsMXBean bean = JMX.newMXBeanProxy(ManagementFactory.getPlatformMBeanServer(), nameOf("Reloaded"), InvocationMetricsMXBean.class);
+            assertEquals(0L, bean.getMethods().get("cancel()").getInvocationCount());
+        }
+    }
+
+    @Test
+    public void testBeansOfCollectedClassesAreUnregistered() throws Exception {
+
+        InvocationMetricsRegistry registry = new InvocationMetricsRegistry("Collected");
+        WeakReference<Class<?>> reference = registerIsolatedScheduler(registry);
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertNull(reference.get());
+        assertTrue(ManagementFactory.getPlatformMBeanServer().isRegistered(nameOf("Collected")));
+
+        // Stale beans are swept when the next class is registered
+        registry.forMethod(Cancellable.class, Cancellable.class.getMethod("cancel"));
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(nameOf("Collected")));
+    }
+
+    private static WeakReference<Class<?>> registerIsolatedScheduler(InvocationMetricsRegistry registry) throws Exception {
+
+        try (URLClassLoader loader = isolatedLoader()) {
+            Class<?> isolated = loader.loadClass(Scheduler.class.getName());
+            registry.forMethod(isolated, isolated.getMethod("cancel"));
+            return new WeakReference<Class<?>>(isolated);
+        }
+    }
+
+    /**
+     * Loads the test classes again, without delegating to the loader of this test
+     */
+    private static URLClassLoader isolatedLoader() {
+        URL testClasses = Scheduler.class.getProtectionDomain().getCodeSource().getLocation();
+        return new URLClassLoader(new URL[] {testClasses}, null);
+    }
+
+    private static ObjectName nameOf(String category) throws Exception {
+        return new ObjectName("com.groupcdg.carbon.logging:type=" + category + "Metrics,name=" + ObjectName.quote(Scheduler.class.getName()));
+    }
+
+    public interface Cancellable {
+
+        void cancel();
+    }
+
+    public static class Scheduler implements Cancellable {
+
+        public void schedule(java.util.Date date) {
+        }
+
+        public void schedule(java.sql.Date date) {
+        }
+
+        public void schedule(String... cronExpressions) {
+        }
+
+        @Override
+        public void cancel() {
+        }
+    }
+}
@@ -0,0 +1,67 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void testBucketsCoverValuesWithinRelativeError() {
+
+        long previousIndex = -1;
+        for (long value = 0; value < 10000000L; value = value < 1000 ? value + 1 : value + value / 997) {
+            int index = LatencyHistogram.indexFor(value);
+            assertTrue("Buckets must not decrease at " + value, index >= previousIndex);
+            long highest = LatencyHistogram.highestValueFor(index);
+            assertTrue("Bucket for " + value + " ends below it at " + highest, highest >= value);
+            assertTrue("Bucket for " + value + " is too wide: " + highest, highest - value <= Math.max(1, value / 16));
+            previousIndex = index;
+        }
+    }
+
+    @Test
+    public void testIntervalReportsOnlyCallsSincePreviousInterval() {
+
+        LatencyHistogram histogram = new LatencyHistogram("test");
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+
+        LatencyHistogram.Summary first = histogram.interval();
+        assertEquals(1000, first.getCount());
+        assertEquals(1000000L, first.getMax());
+        assertWithinError(500000L, first.getP50());
+        assertWithinError(900000L, first.getP90());
+        assertWithinError(990000L, first.getP99());
+        assertWithinError(999000L, first.getP999());
+
+        histogram.record(42L);
+        LatencyHistogram.Summary second = histogram.interval();
+        assertEquals(1, second.getCount());
+        assertEquals(42L, second.getP50());
+        assertEquals(42L, second.getMax());
+
+        assertEquals(0, histogram.interval().getCount());
+    }
+
+    private static void assertWithinError(long expected, long actual) {
+        assertTrue("Expected about " + expected + " but was " + actual, Math.abs(actual - expected) <= expected / 16);
+    }
+}
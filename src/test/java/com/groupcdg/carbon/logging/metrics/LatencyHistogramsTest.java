@@ -0,0 +1,78 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+import java.lang.ref.WeakReference;
+import java.net.URL;
+import java.net.URLClassLoader;
+
+import org.junit.Test;
+
+public class LatencyHistogramsTest {
+
+    @Test
+    public void testReportSummarisesHistogramsWithCalls() throws Exception {
+
+        LatencyHistogram histogram = LatencyHistograms.forMethod(Measured.class, Measured.class.getMethod("measure"));
+        assertSame(histogram, LatencyHistograms.forMethod(Measured.class, Measured.class.getMethod("measure")));
+        LatencyHistograms.report();
+
+        histogram.record(1000000L);
+        histogram.record(2000000L);
+
+        int reported = 0;
+        for (LatencyHistogram.Summary next : LatencyHistograms.report()) {
+            if (next.getName().equals(Measured.class.getName() + ".measure")) {
+                assertEquals(2L, next.getCount());
+                reported++;
+            }
+        }
+        assertEquals(1, reported);
+    }
+
+    @Test
+    public void testHistogramsOfCollectedClassesAreReleased() throws Exception {
+
+        WeakReference<LatencyHistogram> reference = createHistogramOfIsolatedClass();
+
+        for (int i = 0; i < 50 && reference.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10L);
+        }
+        assertNull(reference.get());
+    }
+
+    private static WeakReference<LatencyHistogram> createHistogramOfIsolatedClass() throws Exception {
+
+        URL testClasses = Measured.class.getProtectionDomain().getCodeSource().getLocation();
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {testClasses}, null)) {
+            Class<?> isolated = loader.loadClass(Measured.class.getName());
+            LatencyHistogram histogram = LatencyHistograms.forMethod(isolated, isolated.getMethod("measure"));
+            histogram.record(1000L);
+            return new WeakReference<>(histogram);
+        }
+    }
+
+    public static class Measured {
+
+        public void measure() {
+        }
+    }
+}
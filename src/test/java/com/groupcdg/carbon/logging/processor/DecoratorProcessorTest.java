@@ -0,0 +1,179 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.processor;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import com.groupcdg.carbon.logging.RecordingAppender;
+
+public class DecoratorProcessorTest {
+
+    private static final String SERVICE = String.join("\n",
+            "package example;",
+            "",
+            "import com.groupcdg.carbon.logging.annotation.GenerateDecorator;",
+            "import com.groupcdg.carbon.logging.annotation.LogExceptions;",
+            "import com.groupcdg.carbon.logging.annotation.LogPerformance;",
+            "import com.groupcdg.carbon.logging.annotation.Record;",
+            "import com.groupcdg.carbon.logging.annotation.Warn;",
+            "",
+            "@GenerateDecorator",
+            "public interface AccountService {",
+            "",
+            "    @Warn(logReturnValue = true)",
+            "    String describe(long accountId);",
+            "",
+            "    @Warn",
+            "    @LogExceptions(logExceptionTypes = IllegalStateException.class, ignoredExceptionTypes = IllegalArgumentException.class)",
+            "    void close(long accountId) throws java.io.IOException;",
+            "",
+            "    @LogPerformance(thresholdMilliseconds = 10)",
+            "    int balance(long accountId);",
+            "",
+            "    @Record",
+            "    java.util.List<String> history(long accountId, int limit);",
+            "",
+            "    void unlogged();",
+            "}",
+            "");
+
+    private static final String IMPLEMENTATION = String.join("\n",
+            "package example;",
+            "",
+            "public class SimpleAccountService implements AccountService {",
+            "",
+            "    public String describe(long accountId) { return \"Account \" + accountId; }",
+            "",
+            "    public void close(long accountId) throws java.io.IOException { throw new java.io.IOException(\"Closed\"); }",
+            "",
+            "    public int balance(long accountId) { return 42; }",
+            "",
+            "    public java.util.List<String> history(long accountId, int limit) { return java.util.Collections.emptyList(); }",
+            "",
+            "    public void unlogged() { }",
+            "}",
+            "");
+
+    /**
+     * Annotations in the same package as the service, which would be applied in place of those of
+     * java.lang if the generated decorator referred to them by their simple names
+     */
+    private static final String SHADOWING_OVERRIDE = String.join("\n",
+            "package example;",
+            "",
+            "@java.lang.annotation.Target(java.lang.annotation.ElementType.TYPE)",
+            "public @interface Override {",
+            "}",
+            "");
+
+    private static final String SHADOWING_SUPPRESS_WARNINGS = String.join("\n",
+            "package example;",
+            "",
+            "@java.lang.annotation.Target(java.lang.annotation.ElementType.TYPE)",
+            "public @interface SuppressWarnings {",
+            "}",
+            "");
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private File generated;
+
+    private File classes;
+
+    @Before
+    public void compile() throws IOException {
+
+        File sources = folder.newFolder("sources");
+        generated = folder.newFolder("generated");
+        classes = folder.newFolder("classes");
+        File service = new File(sources, "AccountService.java");
+        Files.write(service.toPath(), SERVICE.getBytes(StandardCharsets.UTF_8));
+        File implementation = new File(sources, "SimpleAccountService.java");
+        Files.write(implementation.toPath(), IMPLEMENTATION.getBytes(StandardCharsets.UTF_8));
+        File override = new File(sources, "Override.java");
+        Files.write(override.toPath(), SHADOWING_OVERRIDE.getBytes(StandardCharsets.UTF_8));
+        File suppressWarnings = new File(sources, "SuppressWarnings.java");
+        Files.write(suppressWarnings.toPath(), SHADOWING_SUPPRESS_WARNINGS.getBytes(StandardCharsets.UTF_8));
+
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        StringWriter diagnostics = new StringWriter();
+        try (StandardJavaFileManager fileManager = compiler.getStandardFileManager(null, null, StandardCharsets.UTF_8)) {
+            Iterable<? extends JavaFileObject> units = fileManager.getJavaFileObjects(service, implementation, override, suppressWarnings);
+            List<String> options = Arrays.asList(
+                    "-classpath", System.getProperty("java.class.path"),
+                    "-processor", DecoratorProcessor.class.getName(),
+                    "-s", generated.getPath(),
+                    "-d", classes.getPath(),
+                    "-Xlint:all,-processing", "-Werror");
+            boolean compiled = compiler.getTask(diagnostics, fileManager, null, options, null, units).call();
+            // Lint warnings in the generated decorator fail the compilation
+            assertTrue(diagnostics.toString(), compiled);
+        }
+        RecordingAppender.clear();
+    }
+
+    @Test
+    public void testDecoratorIsGenerated() {
+
+        assertTrue(new File(generated, "example/AccountServiceLoggingDecorator.java").isFile());
+        assertTrue(new File(classes, "example/AccountServiceLoggingDecorator.class").isFile());
+    }
+
+    @Test
+    public void testDecoratorLogsAndDelegates() throws Exception {
+
+        try (URLClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()}, getClass().getClassLoader())) {
+            Class<?> serviceType = loader.loadClass("example.AccountService");
+            Object target = loader.loadClass("example.SimpleAccountService").newInstance();
+            Object decorator = loader.loadClass("example.AccountServiceLoggingDecorator").getConstructor(serviceType).newInstance(target);
+
+            assertEquals("Account 7", serviceType.getMethod("describe", long.class).invoke(decorator, 7L));
+            serviceType.getMethod("unlogged").invoke(decorator);
+
+            List<String> messages = new ArrayList<>();
+            for (RecordingAppender.Entry next : RecordingAppender.entries("example.AccountService")) {
+                assertEquals("WARN", next.getLevel());
+                messages.add(next.getMessage());
+            }
+            assertEquals(messages.toString(), 2, messages.size());
+            assertTrue(messages.get(0), messages.get(0).contains("describe"));
+            assertTrue(messages.get(1), messages.get(1).contains("Account 7"));
+        }
+    }
+}
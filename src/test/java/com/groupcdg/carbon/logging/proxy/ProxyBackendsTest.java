@@ -0,0 +1,265 @@
+/*
+ *  Copyright 2015 Computing Distribution Group Ltd
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.groupcdg.carbon.logging.proxy;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameters;
+
+import com.groupcdg.carbon.logging.bytecode.spi.BytecodeFactory;
+import com.groupcdg.carbon.logging.cglib.spi.CglibFactory;
+import com.groupcdg.carbon.logging.interceptor.api.MethodInterceptor;
+import com.groupcdg.carbon.logging.interceptor.api.MethodMatcher;
+import com.groupcdg.carbon.logging.proxy.spi.ProxyFactory;
+
+/**
+ * Checks that each proxy backend applies interceptors with the same behaviour
+ */
+@RunWith(Parameterized.class)
+public class ProxyBackendsTest {
+
+    private final Backend backend;
+
+    private final List<String> events = Collections.synchronizedList(new ArrayList<String>());
+
+    public ProxyBackendsTest(Backend backend) {
+        this.backend = backend;
+    }
+
+    @Parameters(name = "{0}")
+    public static List<Object[]> backends() {
+        List<Object[]> result = new ArrayList<>();
+        for (Backend next : Backend.values()) {
+            result.add(new Object[] {next});
+        }
+        return result;
+    }
+
+    @Test
+    public void testLastInterceptorIsOutermost() {
+
+        Service proxy = backend.getProxy(new SimpleService(), recorder("first", "add"), recorder("second", "add"));
+
+        assertEquals(3, proxy.add(1, 2));
+        assertEquals(Arrays.asList("second.before add", "first.before add", "first.after add=3", "second.after add=3"), events);
+    }
+
+    @Test
+    public void testCheckedExceptionsPropagateUnwrapped() {
+
+        Service proxy = backend.getProxy(new SimpleService(), recorder("first", "fail"), recorder("second", "fail"));
+
+        try {
+            proxy.fail();
+            fail("Expected an IOException");
+        } catch (IOException e) {
+            assertEquals("Failed", e.getMessage());
+        }
+        assertEquals(Arrays.asList("second.before fail", "first.before fail", "first.afterThrowing fail IOException", "second.afterThrowing fail IOException"), events);
+    }
+
+    @Test
+    public void testUnmatchedMethodsBypassInterceptors() {
+
+        Service proxy = backend.getProxy(new SimpleService(), recorder("first", "add"));
+
+        assertEquals("value", proxy.echo("value"));
+        assertEquals("SimpleService", proxy.toString());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void testOnlyMatchingInterceptorsApply() {
+
+        Service proxy = backend.getProxy(new SimpleService(), recorder("first", "add"), recorder("second", "echo"));
+
+        proxy.echo("value");
+        proxy.add(2, 2);
+        assertEquals(Arrays.asList("second.before echo", "second.after echo=value", "first.before add", "first.after add=4"), events);
+    }
+
+    @Test
+    public void testNullArgumentsAndResultsArePassedThrough() {
+
+        Service proxy = backend.getProxy(new SimpleService(), recorder("first", "echo"));
+
+        assertNull(proxy.echo(null));
+        assertEquals(Arrays.asList("first.before echo", "first.after echo=null"), events);
+    }
+
+    @Test
+    public void testNonPublicInterfacesAreProxied() {
+
+        Hidden proxy = backend.getProxy(new HiddenService(), recorder("first", "reveal"));
+
+        assertEquals("revealed", proxy.reveal());
+        assertEquals(Arrays.asList("first.before reveal", "first.after reveal=revealed"), events);
+    }
+
+    @Test
+    public void testProxyClassesAreReusedForTheSameRouting() {
+
+        Service first = backend.getProxy(new SimpleService(), recorder("first", "add"));
+        Service second = backend.getProxy(new SimpleService(), recorder("second", "add"));
+        Service other = backend.getProxy(new SimpleService(), recorder("other", "echo"));
+
+        assertSame(first.getClass(), second.getClass());
+        if (backend.routesInGeneratedClass) {
+            assertNotSame(first.getClass(), other.getClass());
+        }
+
+        // Proxies sharing a class still apply their own interceptors
+        second.add(1, 1);
+        assertEquals(Arrays.asList("second.before add", "second.after add=2"), events);
+    }
+
+    private MethodInterceptor recorder(String name, String... methodNames) {
+        return new RecordingInterceptor(name, events, methodNames);
+    }
+
+    enum Backend {
+
+        JDK(false) {
+            @Override
+            <V, W extends V> V getProxy(W target, MethodInterceptor... interceptors) {
+                return ProxyFactory.getProxy(target, interceptors);
+            }
+        },
+        CGLIB(true) {
+            @Override
+            <V, W extends V> V getProxy(W target, MethodInterceptor... interceptors) {
+                return CglibFactory.getProxy(target, interceptors);
+            }
+        },
+        BYTECODE(true) {
+            @Override
+            <V, W extends V> V getProxy(W target, MethodInterceptor... interceptors) {
+                return BytecodeFactory.getProxy(target, interceptors);
+            }
+        };
+
+        /**
+         * Whether unmatched methods are routed past the interceptors by the generated class
+         */
+        private final boolean routesInGeneratedClass;
+
+        private Backend(boolean routesInGeneratedClass) {
+            this.routesInGeneratedClass = routesInGeneratedClass;
+        }
+
+        abstract <V, W extends V> V getProxy(W target, MethodInterceptor... interceptors);
+    }
+
+    private static final class RecordingInterceptor implements MethodInterceptor, MethodMatcher {
+
+        private final String name;
+
+        private final List<String> events;
+
+        private final Set<String> methodNames;
+
+        private RecordingInterceptor(String name, List<String> events, String... methodNames) {
+            this.name = name;
+            this.events = events;
+            this.methodNames = new HashSet<>(Arrays.asList(methodNames));
+        }
+
+        @Override
+        public boolean isMatchedMethod(Method method) {
+            return methodNames.contains(method.getName());
+        }
+
+        @Override
+        public Object interceptBefore(Object proxy, Method method, Object[] args, Object realtarget) {
+            events.add(name + ".before " + method.getName());
+            return name;
+        }
+
+        @Override
+        public void interceptAfter(Object proxy, Method method, Object[] args, Object realtarget, Object retObject, Object interceptBeforeReturnObject) {
+            assertEquals(name, interceptBeforeReturnObject);
+            events.add(name + ".after " + method.getName() + "=" + retObject);
+        }
+
+        @Override
+        public void interceptAfterThrowing(Object proxy, Method method, Object[] args, Object realtarget, Throwable cause, Object interceptBeforeReturnObject) {
+            assertEquals(name, interceptBeforeReturnObject);
+            events.add(name + ".afterThrowing " + method.getName() + " " + cause.getClass().getSimpleName());
+        }
+    }
+
+    public interface Service {
+
+        int add(int a, int b);
+
+        String echo(String value);
+
+        void fail() throws IOException;
+    }
+
+    public static class SimpleService implements Service {
+
+        @Override
+        public int add(int a, int b) {
+            return a + b;
+        }
+
+        @Override
+        public String echo(String value) {
+            return value;
+        }
+
+        @Override
+        public void fail() throws IOException {
+            throw new IOException("Failed");
+        }
+
+        @Override
+        public String toString() {
+            return "SimpleService";
+        }
+    }
+
+    interface Hidden {
+
+        String reveal();
+    }
+
+    static class HiddenService implements Hidden {
+
+        @Override
+        public String reveal() {
+            return "revealed";
+        }
+    }
+}